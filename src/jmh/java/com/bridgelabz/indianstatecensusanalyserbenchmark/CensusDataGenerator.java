@@ -0,0 +1,95 @@
+package com.bridgelabz.indianstatecensusanalyserbenchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+
+public class CensusDataGenerator
+{
+    private static final long SEED = 20200701L;
+
+    /**
+     * METHOD TO WRITE A SYNTHETIC INDIA CENSUS CSV FILE
+     * @param directory provides the directory for the file
+     * @param rows provides the number of data rows
+     * @return path of the written file
+     */
+    public static Path writeIndiaCensusCSV(Path directory, int rows) throws IOException
+    {
+        Random random = new Random(SEED);
+        Path csvFile = directory.resolve("IndiaStateCensusData-" + rows + ".csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(csvFile))
+        {
+            writer.write("State,Population,AreaInSqKm,DensityPerSqKm\n");
+            for (int row = 0; row < rows; row++)
+            {
+                int area = 1 + random.nextInt(350000);
+                int population = random.nextInt(200000000);
+                writer.write("State " + row + "," + population + "," + area + "," + population / area + "\n");
+            }
+        }
+        return csvFile;
+    }
+
+    /**
+     * METHOD TO WRITE A SYNTHETIC INDIA STATE CODE CSV FILE MATCHING writeIndiaCensusCSV
+     * @param directory provides the directory for the file
+     * @param rows provides the number of data rows
+     * @return path of the written file
+     */
+    public static Path writeIndiaStateCodeCSV(Path directory, int rows) throws IOException
+    {
+        Path csvFile = directory.resolve("IndiaStateCode-" + rows + ".csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(csvFile))
+        {
+            writer.write("SrNo,StateName,TIN,StateCode\n");
+            for (int row = 0; row < rows; row++)
+                writer.write((row + 1) + ",State " + row + "," + (row + 10) + ",S" + row + "\n");
+        }
+        return csvFile;
+    }
+
+    /**
+     * METHOD TO WRITE A SYNTHETIC US CENSUS CSV FILE
+     * @param directory provides the directory for the file
+     * @param rows provides the number of data rows
+     * @return path of the written file
+     */
+    public static Path writeUSCensusCSV(Path directory, int rows) throws IOException
+    {
+        Random random = new Random(SEED + 1);
+        Path csvFile = directory.resolve("USCensusData-" + rows + ".csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(csvFile))
+        {
+            writer.write("State Id,State,Population,Housing units,Total area,Water area,Land area,"
+                    + "Population Density,Housing Density\n");
+            for (int row = 0; row < rows; row++)
+            {
+                double area = 100 + random.nextDouble() * 1700000;
+                int population = random.nextInt(40000000);
+                writer.write("U" + row + ",US State " + row + "," + population + "," + population / 2 + ","
+                        + String.format("%.2f", area) + "," + String.format("%.2f", area / 10) + ","
+                        + String.format("%.2f", area * 0.9) + "," + String.format("%.2f", population / area) + ","
+                        + String.format("%.2f", population / area / 2) + "\n");
+            }
+        }
+        return csvFile;
+    }
+
+    /**
+     * METHOD TO DELETE A GENERATED DIRECTORY AND ITS FILES
+     * @param directory provides the directory created for the benchmark
+     */
+    public static void delete(Path directory) throws IOException
+    {
+        try (Stream<Path> files = Files.list(directory))
+        {
+            for (Path file : (Iterable<Path>) files::iterator)
+                Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+}
@@ -0,0 +1,89 @@
+package com.bridgelabz.indianstatecensusanalyserbenchmark;
+
+import com.bridgelabz.indianstatecensusanalyser.exception.CensusAnalyserException;
+import com.bridgelabz.indianstatecensusanalyser.services.CensusAnalyser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExportBenchmark
+{
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"population", "populationDensity", "totalArea"})
+    public String fieldName;
+
+    private Path dataDirectory;
+    private String indiaCensusCSV;
+    private String usCensusCSV;
+    private CensusAnalyser indiaCensusAnalyser;
+
+    @Setup(Level.Trial)
+    public void loadData() throws IOException, CensusAnalyserException
+    {
+        dataDirectory = Files.createTempDirectory("census-export-benchmark");
+        indiaCensusCSV = CensusDataGenerator.writeIndiaCensusCSV(dataDirectory, rows).toString();
+        usCensusCSV = CensusDataGenerator.writeUSCensusCSV(dataDirectory, rows).toString();
+        indiaCensusAnalyser = new CensusAnalyser(CensusAnalyser.Country.INDIA);
+        indiaCensusAnalyser.loadCensusData(CensusAnalyser.Country.INDIA, CensusAnalyser.LoaderMode.MAPPED, ',',
+                indiaCensusCSV);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteData() throws IOException
+    {
+        CensusDataGenerator.delete(dataDirectory);
+    }
+
+    @Benchmark
+    public List getJsonSortedCensusData() throws CensusAnalyserException
+    {
+        return indiaCensusAnalyser.getJsonSortedCensusData(fieldName);
+    }
+
+    @Benchmark
+    public void writeSortedCensusData() throws IOException, CensusAnalyserException
+    {
+        try (OutputStream outputStream = Files.newOutputStream(dataDirectory.resolve("sorted.json")))
+        {
+            indiaCensusAnalyser.writeSortedCensusData(fieldName, outputStream);
+        }
+    }
+
+    @Benchmark
+    public String getMostDenselyPopulatedState() throws CensusAnalyserException
+    {
+        return new CensusAnalyser(CensusAnalyser.Country.US)
+                .getMostDenselyPopulatedState(',', indiaCensusCSV, usCensusCSV);
+    }
+
+    @Benchmark
+    public String getMostDenselyPopulatedStateFromRegistry() throws CensusAnalyserException
+    {
+        return indiaCensusAnalyser.getMostDenselyPopulatedState(',', indiaCensusCSV, usCensusCSV);
+    }
+}
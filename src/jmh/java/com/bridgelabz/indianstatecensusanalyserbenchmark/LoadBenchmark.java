@@ -0,0 +1,86 @@
+package com.bridgelabz.indianstatecensusanalyserbenchmark;
+
+import com.bridgelabz.indianstatecensusanalyser.exception.CensusAnalyserException;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusDAO;
+import com.bridgelabz.indianstatecensusanalyser.services.CensusAnalyser;
+import com.bridgelabz.indianstatecensusanalyser.utility.IndiaCensusAdapter;
+import com.bridgelabz.indianstatecensusanalyser.utility.USCensusAdapter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LoadBenchmark
+{
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"OPEN_CSV", "MAPPED", "PARALLEL"})
+    public CensusAnalyser.LoaderMode loaderMode;
+
+    private Path dataDirectory;
+    private String indiaCensusCSV;
+    private String indiaStateCodeCSV;
+    private String usCensusCSV;
+
+    @Setup(Level.Trial)
+    public void generateData() throws IOException
+    {
+        dataDirectory = Files.createTempDirectory("census-load-benchmark");
+        indiaCensusCSV = CensusDataGenerator.writeIndiaCensusCSV(dataDirectory, rows).toString();
+        indiaStateCodeCSV = CensusDataGenerator.writeIndiaStateCodeCSV(dataDirectory, rows).toString();
+        usCensusCSV = CensusDataGenerator.writeUSCensusCSV(dataDirectory, rows).toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteData() throws IOException
+    {
+        CensusDataGenerator.delete(dataDirectory);
+    }
+
+    @Benchmark
+    public Map<String, CensusDAO> loadIndiaCensus() throws CensusAnalyserException
+    {
+        return new IndiaCensusAdapter().loadCensusData(loaderMode, ',', indiaCensusCSV);
+    }
+
+    @Benchmark
+    public Map<String, CensusDAO> loadIndiaCensusWithStateCode() throws CensusAnalyserException
+    {
+        return new IndiaCensusAdapter().loadCensusData(loaderMode, ',', indiaCensusCSV, indiaStateCodeCSV);
+    }
+
+    @Benchmark
+    public Map<String, CensusDAO> loadUSCensus() throws CensusAnalyserException
+    {
+        return new USCensusAdapter().loadCensusData(loaderMode, ',', usCensusCSV);
+    }
+
+    @Benchmark
+    public int loadIndiaCensusIntoAnalyser() throws CensusAnalyserException
+    {
+        return new CensusAnalyser(CensusAnalyser.Country.INDIA)
+                .loadCensusData(CensusAnalyser.Country.INDIA, loaderMode, ',', indiaCensusCSV, indiaStateCodeCSV);
+    }
+}
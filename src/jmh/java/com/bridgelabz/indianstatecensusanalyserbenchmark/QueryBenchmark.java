@@ -0,0 +1,94 @@
+package com.bridgelabz.indianstatecensusanalyserbenchmark;
+
+import com.bridgelabz.indianstatecensusanalyser.exception.CensusAnalyserException;
+import com.bridgelabz.indianstatecensusanalyser.services.CensusAnalyser;
+import com.bridgelabz.indianstatecensusanalyser.services.CensusRegistry;
+import com.bridgelabz.indianstatecensusanalyser.utility.CensusResultCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class QueryBenchmark
+{
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"state", "stateCode", "population", "populationDensity", "totalArea"})
+    public String fieldName;
+
+    private Path dataDirectory;
+    private CensusAnalyser indiaCensusAnalyser;
+    private CensusAnalyser usCensusAnalyser;
+    private CensusAnalyser cachedCensusAnalyser;
+
+    @Setup(Level.Trial)
+    public void loadData() throws IOException, CensusAnalyserException
+    {
+        dataDirectory = Files.createTempDirectory("census-query-benchmark");
+        String indiaCensusCSV = CensusDataGenerator.writeIndiaCensusCSV(dataDirectory, rows).toString();
+        String indiaStateCodeCSV = CensusDataGenerator.writeIndiaStateCodeCSV(dataDirectory, rows).toString();
+        String usCensusCSV = CensusDataGenerator.writeUSCensusCSV(dataDirectory, rows).toString();
+        indiaCensusAnalyser = new CensusAnalyser(CensusAnalyser.Country.INDIA, new CensusRegistry(),
+                new CensusResultCache(0, 0));
+        indiaCensusAnalyser.loadCensusData(CensusAnalyser.Country.INDIA, CensusAnalyser.LoaderMode.MAPPED, ',',
+                indiaCensusCSV, indiaStateCodeCSV);
+        usCensusAnalyser = new CensusAnalyser(CensusAnalyser.Country.US, new CensusRegistry(),
+                new CensusResultCache(0, 0));
+        usCensusAnalyser.loadCensusData(CensusAnalyser.Country.US, CensusAnalyser.LoaderMode.MAPPED, ',',
+                usCensusCSV);
+        cachedCensusAnalyser = new CensusAnalyser(CensusAnalyser.Country.INDIA);
+        cachedCensusAnalyser.loadCensusData(CensusAnalyser.Country.INDIA, CensusAnalyser.LoaderMode.MAPPED, ',',
+                indiaCensusCSV, indiaStateCodeCSV);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteData() throws IOException
+    {
+        CensusDataGenerator.delete(dataDirectory);
+    }
+
+    @Benchmark
+    public String getSortedIndiaCensusData()
+    {
+        return indiaCensusAnalyser.getSortedCensusData(fieldName);
+    }
+
+    @Benchmark
+    public String getSortedUSCensusData()
+    {
+        return usCensusAnalyser.getSortedCensusData(fieldName);
+    }
+
+    @Benchmark
+    public String getTopTenUSCensusData()
+    {
+        return usCensusAnalyser.getTopCensusData(fieldName, 10);
+    }
+
+    @Benchmark
+    public String getCachedSortedIndiaCensusData()
+    {
+        return cachedCensusAnalyser.getSortedCensusData(fieldName);
+    }
+}
@@ -4,7 +4,7 @@ public class CensusAnalyserException extends Exception
 {
     public enum ExceptionType
     {
-        CSV_FILE_PROBLEM, INCORRECT_DELIMITER_OR_HEADER
+        CSV_FILE_PROBLEM, INCORRECT_DELIMITER_OR_HEADER, SNAPSHOT_FILE_PROBLEM
     }
 
     public ExceptionType type;
@@ -0,0 +1,505 @@
+package com.bridgelabz.indianstatecensusanalyser.model;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * Storage behind a CensusTable: the string dictionary, the five columns, one sort index per
+ * CensusField and the lookup of dictionary ids and rows by value. OnHeap keeps them in primitive
+ * arrays, OffHeap in direct or memory mapped buffers, so a large table costs the garbage collector a
+ * handful of buffer objects instead of its rows.
+ */
+abstract class CensusColumns
+{
+    abstract int size();
+
+    abstract int dictionarySize();
+
+    abstract String dictionaryValue(int id);
+
+    abstract int stateId(int row);
+
+    abstract int stateCodeId(int row);
+
+    abstract long population(int row);
+
+    abstract double totalArea(int row);
+
+    abstract double populationDensity(int row);
+
+    abstract int sortedRow(CensusField field, int rank);
+
+    abstract int[] sortedRows(CensusField field, int fromRank, int toRank);
+
+    /**
+     * METHOD TO FIND THE DICTIONARY ID OF A VALUE WITHOUT ALLOCATING
+     * @return dictionary id, NO_VALUE when the value is not in the dictionary
+     */
+    abstract int dictionaryId(String value);
+
+    /**
+     * METHOD TO FIND THE DICTIONARY ID OF A VALUE OF OTHER COLUMNS
+     * @param columns provides the other columns
+     * @param id provides the dictionary id in the other columns, NO_VALUE for a missing value
+     * @return dictionary id, NO_VALUE when the value is missing or not in the dictionary
+     */
+    int dictionaryId(CensusColumns columns, int id)
+    {
+        return id == CensusTable.NO_VALUE ? CensusTable.NO_VALUE : dictionaryId(columns.dictionaryValue(id));
+    }
+
+    /**
+     * @return row of a state dictionary id, the last one when rows share the state, NO_VALUE for none
+     */
+    abstract int stateRow(int stateId);
+
+    /**
+     * @return row of a state code dictionary id, the last one when rows share the code, NO_VALUE for none
+     */
+    abstract int stateCodeRow(int stateCodeId);
+
+    static class OnHeap extends CensusColumns
+    {
+        private final String[] dictionary;
+        private final int[] stateIds;
+        private final int[] stateCodeIds;
+        private final long[] population;
+        private final double[] totalArea;
+        private final double[] populationDensity;
+        final int[][] sortIndexes;
+        private volatile Lookup lookup;
+
+        OnHeap(String[] dictionary, int[] stateIds, int[] stateCodeIds, long[] population, double[] totalArea,
+               double[] populationDensity, int[][] sortIndexes)
+        {
+            this.dictionary = dictionary;
+            this.stateIds = stateIds;
+            this.stateCodeIds = stateCodeIds;
+            this.population = population;
+            this.totalArea = totalArea;
+            this.populationDensity = populationDensity;
+            this.sortIndexes = sortIndexes;
+        }
+
+        @Override
+        int size()
+        {
+            return population.length;
+        }
+
+        @Override
+        int dictionarySize()
+        {
+            return dictionary.length;
+        }
+
+        @Override
+        String dictionaryValue(int id)
+        {
+            return dictionary[id];
+        }
+
+        @Override
+        int stateId(int row)
+        {
+            return stateIds[row];
+        }
+
+        @Override
+        int stateCodeId(int row)
+        {
+            return stateCodeIds[row];
+        }
+
+        @Override
+        long population(int row)
+        {
+            return population[row];
+        }
+
+        @Override
+        double totalArea(int row)
+        {
+            return totalArea[row];
+        }
+
+        @Override
+        double populationDensity(int row)
+        {
+            return populationDensity[row];
+        }
+
+        @Override
+        int sortedRow(CensusField field, int rank)
+        {
+            return sortIndexes[field.ordinal()][rank];
+        }
+
+        @Override
+        int[] sortedRows(CensusField field, int fromRank, int toRank)
+        {
+            return Arrays.copyOfRange(sortIndexes[field.ordinal()], fromRank, toRank);
+        }
+
+        @Override
+        int dictionaryId(String value)
+        {
+            return lookup().dictionaryIds.get(value);
+        }
+
+        @Override
+        int stateRow(int stateId)
+        {
+            return lookup().stateRows[stateId];
+        }
+
+        @Override
+        int stateCodeRow(int stateCodeId)
+        {
+            return lookup().stateCodeRows[stateCodeId];
+        }
+
+        /**
+         * METHOD TO GET THE LOOKUP INDEX, BUILT ON FIRST USE
+         * Concurrent first uses may each build one, every copy is the same and fully built before it is shared
+         */
+        private Lookup lookup()
+        {
+            Lookup lookup = this.lookup;
+            if (lookup == null)
+            {
+                lookup = new Lookup(this);
+                this.lookup = lookup;
+            }
+            return lookup;
+        }
+
+        /**
+         * METHOD TO COMPARE ROWS BY A FIELD IN ITS DEFAULT ORDER, READING THE ARRAYS DIRECTLY
+         * Ties are broken by state, so the order does not depend on the order rows were added in
+         * @param field provides the field to compare on
+         * @return comparator ordering numeric fields descending and text fields ascending, missing last
+         */
+        CensusTable.RowComparator rowComparator(CensusField field)
+        {
+            switch (field)
+            {
+                case STATE:
+                    return (first, second) -> compareStrings(stateIds[first], stateIds[second]);
+                case STATE_CODE:
+                    return (first, second) -> {
+                        int comparison = compareStrings(stateCodeIds[first], stateCodeIds[second]);
+                        return comparison != 0 ? comparison : compareStrings(stateIds[first], stateIds[second]);
+                    };
+                case POPULATION:
+                    return (first, second) -> {
+                        int comparison = Long.compare(population[second], population[first]);
+                        return comparison != 0 ? comparison : compareStrings(stateIds[first], stateIds[second]);
+                    };
+                case POPULATION_DENSITY:
+                    return (first, second) -> {
+                        int comparison = Double.compare(populationDensity[second], populationDensity[first]);
+                        return comparison != 0 ? comparison : compareStrings(stateIds[first], stateIds[second]);
+                    };
+                default:
+                    return (first, second) -> {
+                        int comparison = Double.compare(totalArea[second], totalArea[first]);
+                        return comparison != 0 ? comparison : compareStrings(stateIds[first], stateIds[second]);
+                    };
+            }
+        }
+
+        private int compareStrings(int firstId, int secondId)
+        {
+            if (firstId == secondId)
+                return 0;
+            if (firstId == CensusTable.NO_VALUE)
+                return 1;
+            if (secondId == CensusTable.NO_VALUE)
+                return -1;
+            return dictionary[firstId].compareTo(dictionary[secondId]);
+        }
+
+        /**
+         * Dictionary ids of every state and state code, with the row of each state id and state code id.
+         */
+        private static class Lookup
+        {
+            private final CensusKeyIndex dictionaryIds;
+            private final int[] stateRows;
+            private final int[] stateCodeRows;
+
+            private Lookup(OnHeap columns)
+            {
+                dictionaryIds = new CensusKeyIndex(columns.dictionary.length);
+                for (int id = 0; id < columns.dictionary.length; id++)
+                    dictionaryIds.put(columns.dictionary[id], id);
+                stateRows = new int[columns.dictionary.length];
+                stateCodeRows = new int[columns.dictionary.length];
+                Arrays.fill(stateRows, CensusTable.NO_VALUE);
+                Arrays.fill(stateCodeRows, CensusTable.NO_VALUE);
+                for (int row = 0; row < columns.size(); row++)
+                {
+                    if (columns.stateIds[row] != CensusTable.NO_VALUE)
+                        stateRows[columns.stateIds[row]] = row;
+                    if (columns.stateCodeIds[row] != CensusTable.NO_VALUE)
+                        stateCodeRows[columns.stateCodeIds[row]] = row;
+                }
+            }
+        }
+    }
+
+    /**
+     * Columns in buffers outside the heap. Dictionary values are stored as UTF-8 bytes and decoded only
+     * when a value is read; lookups by value hash and compare the stored bytes, and the row of every
+     * state and state code id is kept in direct buffers too, so a lookup puts nothing on the heap.
+     */
+    static class OffHeap extends CensusColumns
+    {
+        private final OffHeapDictionary dictionary;
+        private final IntBuffer stateIds;
+        private final IntBuffer stateCodeIds;
+        private final LongBuffer population;
+        private final DoubleBuffer totalArea;
+        private final DoubleBuffer populationDensity;
+        private final IntBuffer[] sortIndexes;
+        private volatile RowIndex rowIndex;
+
+        OffHeap(OffHeapDictionary dictionary, IntBuffer stateIds, IntBuffer stateCodeIds, LongBuffer population,
+                DoubleBuffer totalArea, DoubleBuffer populationDensity, IntBuffer[] sortIndexes)
+        {
+            this.dictionary = dictionary;
+            this.stateIds = stateIds;
+            this.stateCodeIds = stateCodeIds;
+            this.population = population;
+            this.totalArea = totalArea;
+            this.populationDensity = populationDensity;
+            this.sortIndexes = sortIndexes;
+        }
+
+        /**
+         * METHOD TO COPY COLUMNS INTO DIRECT BUFFERS
+         * @param columns provides the columns to copy
+         * @return off heap columns in native byte order
+         * @throws ArithmeticException when a column needs more than 2 GB
+         */
+        static OffHeap copyOf(CensusColumns columns)
+        {
+            int size = columns.size();
+            OffHeapDictionary dictionary = new OffHeapDictionary(columns.dictionarySize());
+            for (int id = 0; id < columns.dictionarySize(); id++)
+                dictionary.encode(columns.dictionaryValue(id));
+            IntBuffer stateIds = allocate(size, Integer.BYTES).asIntBuffer();
+            IntBuffer stateCodeIds = allocate(size, Integer.BYTES).asIntBuffer();
+            LongBuffer population = allocate(size, Long.BYTES).asLongBuffer();
+            DoubleBuffer totalArea = allocate(size, Double.BYTES).asDoubleBuffer();
+            DoubleBuffer populationDensity = allocate(size, Double.BYTES).asDoubleBuffer();
+            for (int row = 0; row < size; row++)
+            {
+                stateIds.put(row, columns.stateId(row));
+                stateCodeIds.put(row, columns.stateCodeId(row));
+                population.put(row, columns.population(row));
+                totalArea.put(row, columns.totalArea(row));
+                populationDensity.put(row, columns.populationDensity(row));
+            }
+            IntBuffer[] sortIndexes = new IntBuffer[CensusField.values().length];
+            for (CensusField field : CensusField.values())
+            {
+                IntBuffer sortIndex = allocate(size, Integer.BYTES).asIntBuffer();
+                for (int rank = 0; rank < size; rank++)
+                    sortIndex.put(rank, columns.sortedRow(field, rank));
+                sortIndexes[field.ordinal()] = sortIndex;
+            }
+            return new OffHeap(dictionary, stateIds, stateCodeIds, population, totalArea, populationDensity,
+                    sortIndexes);
+        }
+
+        static ByteBuffer allocate(int count, int bytes)
+        {
+            return OffHeapDictionary.allocate(count, bytes);
+        }
+
+        @Override
+        int size()
+        {
+            return population.limit();
+        }
+
+        @Override
+        int dictionarySize()
+        {
+            return dictionary.size();
+        }
+
+        @Override
+        String dictionaryValue(int id)
+        {
+            return dictionary.value(id);
+        }
+
+        @Override
+        int stateId(int row)
+        {
+            return stateIds.get(row);
+        }
+
+        @Override
+        int stateCodeId(int row)
+        {
+            return stateCodeIds.get(row);
+        }
+
+        @Override
+        long population(int row)
+        {
+            return population.get(row);
+        }
+
+        @Override
+        double totalArea(int row)
+        {
+            return totalArea.get(row);
+        }
+
+        @Override
+        double populationDensity(int row)
+        {
+            return populationDensity.get(row);
+        }
+
+        @Override
+        int sortedRow(CensusField field, int rank)
+        {
+            return sortIndexes[field.ordinal()].get(rank);
+        }
+
+        @Override
+        int[] sortedRows(CensusField field, int fromRank, int toRank)
+        {
+            IntBuffer sortIndex = sortIndexes[field.ordinal()].duplicate();
+            sortIndex.position(fromRank);
+            int[] rows = new int[toRank - fromRank];
+            sortIndex.get(rows);
+            return rows;
+        }
+
+        @Override
+        int dictionaryId(String value)
+        {
+            return dictionary.id(value);
+        }
+
+        @Override
+        int dictionaryId(CensusColumns columns, int id)
+        {
+            if (columns instanceof OffHeap)
+                return dictionary.id(((OffHeap) columns).dictionary, id);
+            return super.dictionaryId(columns, id);
+        }
+
+        @Override
+        int stateRow(int stateId)
+        {
+            return rowIndex().stateRows.get(stateId);
+        }
+
+        @Override
+        int stateCodeRow(int stateCodeId)
+        {
+            return rowIndex().stateCodeRows.get(stateCodeId);
+        }
+
+        /**
+         * METHOD TO GET THE ROW OF EVERY STATE AND STATE CODE ID, BUILT ON FIRST USE FROM THE ID COLUMNS
+         */
+        private RowIndex rowIndex()
+        {
+            RowIndex rowIndex = this.rowIndex;
+            if (rowIndex == null)
+            {
+                rowIndex = new RowIndex(this);
+                this.rowIndex = rowIndex;
+            }
+            return rowIndex;
+        }
+
+        /**
+         * METHOD TO COMPARE ROWS BY A FIELD IN ITS DEFAULT ORDER, AS OnHeap.rowComparator DOES
+         * @param field provides the field to compare on
+         * @param dictionaryRanks provides the rank of every dictionary id in String.compareTo order
+         * @return comparator ordering numeric fields descending and text fields ascending, missing last
+         */
+        CensusTable.RowComparator rowComparator(CensusField field, IntBuffer dictionaryRanks)
+        {
+            CensusTable.RowComparator stateComparator = (first, second) ->
+                    compareRanks(dictionaryRanks, stateIds.get(first), stateIds.get(second));
+            switch (field)
+            {
+                case STATE:
+                    return stateComparator;
+                case STATE_CODE:
+                    return (first, second) -> {
+                        int comparison = compareRanks(dictionaryRanks, stateCodeIds.get(first),
+                                stateCodeIds.get(second));
+                        return comparison != 0 ? comparison : stateComparator.compare(first, second);
+                    };
+                case POPULATION:
+                    return (first, second) -> {
+                        int comparison = Long.compare(population.get(second), population.get(first));
+                        return comparison != 0 ? comparison : stateComparator.compare(first, second);
+                    };
+                case POPULATION_DENSITY:
+                    return (first, second) -> {
+                        int comparison = Double.compare(populationDensity.get(second), populationDensity.get(first));
+                        return comparison != 0 ? comparison : stateComparator.compare(first, second);
+                    };
+                default:
+                    return (first, second) -> {
+                        int comparison = Double.compare(totalArea.get(second), totalArea.get(first));
+                        return comparison != 0 ? comparison : stateComparator.compare(first, second);
+                    };
+            }
+        }
+
+        private static int compareRanks(IntBuffer dictionaryRanks, int firstId, int secondId)
+        {
+            if (firstId == secondId)
+                return 0;
+            if (firstId == CensusTable.NO_VALUE)
+                return 1;
+            if (secondId == CensusTable.NO_VALUE)
+                return -1;
+            return Integer.compare(dictionaryRanks.get(firstId), dictionaryRanks.get(secondId));
+        }
+
+        /**
+         * Row of every state id and state code id, in direct buffers indexed by dictionary id.
+         */
+        private static class RowIndex
+        {
+            private final IntBuffer stateRows;
+            private final IntBuffer stateCodeRows;
+
+            private RowIndex(OffHeap columns)
+            {
+                stateRows = allocate(columns.dictionarySize(), Integer.BYTES).asIntBuffer();
+                stateCodeRows = allocate(columns.dictionarySize(), Integer.BYTES).asIntBuffer();
+                for (int id = 0; id < columns.dictionarySize(); id++)
+                {
+                    stateRows.put(id, CensusTable.NO_VALUE);
+                    stateCodeRows.put(id, CensusTable.NO_VALUE);
+                }
+                for (int row = 0; row < columns.size(); row++)
+                {
+                    if (columns.stateId(row) != CensusTable.NO_VALUE)
+                        stateRows.put(columns.stateId(row), row);
+                    if (columns.stateCodeId(row) != CensusTable.NO_VALUE)
+                        stateCodeRows.put(columns.stateCodeId(row), row);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.bridgelabz.indianstatecensusanalyser.model;
+
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * Pull based stream of census records in sort order. The consumer asks for as many records as it
+ * can take and nothing is produced ahead of that demand, so the first records are available at once
+ * and a slow consumer never makes the cursor buffer. Closing releases what backs the cursor.
+ */
+public interface CensusCursor extends Iterator<CensusDAO>, AutoCloseable
+{
+    /**
+     * METHOD TO EMIT UP TO A NUMBER OF RECORDS
+     * @param demand provides the maximum number of records the consumer takes now
+     * @param consumer receives the records in sort order
+     * @return number of records emitted, less than demand only when the cursor is exhausted
+     */
+    default int next(int demand, Consumer<? super CensusDAO> consumer)
+    {
+        int emitted = 0;
+        while (emitted < demand && hasNext())
+        {
+            consumer.accept(next());
+            emitted++;
+        }
+        return emitted;
+    }
+
+    @Override
+    default void close()
+    {
+    }
+}
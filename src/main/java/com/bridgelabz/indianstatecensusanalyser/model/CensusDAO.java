@@ -1,6 +1,7 @@
 package com.bridgelabz.indianstatecensusanalyser.model;
 
 import com.bridgelabz.indianstatecensusanalyser.services.CensusAnalyser;
+import com.bridgelabz.indianstatecensusanalyser.utility.CensusAdapterFactory;
 
 public class CensusDAO
 {
@@ -10,27 +11,17 @@ public class CensusDAO
     public double totalArea;
     public double populationDensity;
 
-    public CensusDAO(IndiaCensusCSV indiaCensusCSV)
+    public CensusDAO()
     {
-        state = indiaCensusCSV.state;
-        populationDensity = indiaCensusCSV.densityPerSqKm;
-        totalArea = indiaCensusCSV.areaInSqKm;
-        population = indiaCensusCSV.population;
     }
 
-    public CensusDAO(USCensusCSV usCensusCSV)
+    public Object getCensusDTO(CensusAnalyser.Country country)
     {
-        population = usCensusCSV.population;
-        state = usCensusCSV.state;
-        totalArea = usCensusCSV.totalArea;
-        populationDensity = usCensusCSV.populationDensity;
-        stateCode = usCensusCSV.stateId;
+        return getCensusDTO(country.name());
     }
 
-    public Object getCensusDTO(CensusAnalyser.Country country)
+    public Object getCensusDTO(String countryId)
     {
-        if (country.equals((CensusAnalyser.Country.INDIA)))
-            return new IndiaCensusCSV(state, population, (int) populationDensity, (int) totalArea);
-        return new USCensusCSV(stateCode, state, population, totalArea, populationDensity);
+        return CensusAdapterFactory.getCensusAdapter(countryId).getCensusDTO(this);
     }
 }
\ No newline at end of file
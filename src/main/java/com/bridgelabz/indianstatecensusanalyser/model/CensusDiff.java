@@ -0,0 +1,122 @@
+package com.bridgelabz.indianstatecensusanalyser.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Row level difference between a loaded CensusTable and a newer set of records, keyed by state.
+ */
+public class CensusDiff
+{
+    public static final CensusDiff EMPTY = new CensusDiff(Collections.emptyList(), Collections.emptyList(),
+            Collections.emptyList());
+
+    public final List<CensusDAO> addedRecords;
+    public final List<CensusDAO> updatedRecords;
+    public final List<String> removedStates;
+
+    public CensusDiff(List<CensusDAO> addedRecords, List<CensusDAO> updatedRecords, List<String> removedStates)
+    {
+        this.addedRecords = Collections.unmodifiableList(addedRecords);
+        this.updatedRecords = Collections.unmodifiableList(updatedRecords);
+        this.removedStates = Collections.unmodifiableList(removedStates);
+    }
+
+    /**
+     * METHOD TO COMPARE A TABLE WITH NEWER RECORDS
+     * @param censusTable provides the loaded table, null when nothing is loaded yet
+     * @param censusDAOs provides the newer records, one per state
+     * @return states added, updated and removed by the newer records
+     */
+    public static CensusDiff between(CensusTable censusTable, Collection<CensusDAO> censusDAOs)
+    {
+        boolean[] matchedRows = new boolean[censusTable == null ? 0 : censusTable.size()];
+        List<CensusDAO> addedRecords = new ArrayList<>();
+        List<CensusDAO> updatedRecords = new ArrayList<>();
+        for (CensusDAO censusDAO : censusDAOs)
+        {
+            int row = censusTable == null ? CensusTable.NO_VALUE : censusTable.rowOfState(censusDAO.state);
+            if (row == CensusTable.NO_VALUE || matchedRows[row])
+                addedRecords.add(censusDAO);
+            else
+            {
+                matchedRows[row] = true;
+                if (!isSame(censusTable, row, censusDAO))
+                    updatedRecords.add(censusDAO);
+            }
+        }
+        return new CensusDiff(addedRecords, updatedRecords, removedStates(censusTable, matchedRows));
+    }
+
+    /**
+     * METHOD TO COMPARE A TABLE WITH A NEWER TABLE
+     * Rows are matched on dictionary ids, so between off heap tables no state is decoded and only the
+     * added and updated records are materialized
+     * @param censusTable provides the loaded table, null when nothing is loaded yet
+     * @param newerTable provides the table of the newer records, one row per state
+     * @return states added, updated and removed by the newer table
+     */
+    public static CensusDiff between(CensusTable censusTable, CensusTable newerTable)
+    {
+        boolean[] matchedRows = new boolean[censusTable == null ? 0 : censusTable.size()];
+        List<CensusDAO> addedRecords = new ArrayList<>();
+        List<CensusDAO> updatedRecords = new ArrayList<>();
+        for (int newerRow = 0; newerRow < newerTable.size(); newerRow++)
+        {
+            int row = censusTable == null ? CensusTable.NO_VALUE
+                    : censusTable.rowOfStateId(censusTable.dictionaryId(newerTable, newerTable.stateId(newerRow)));
+            if (row == CensusTable.NO_VALUE || matchedRows[row])
+                addedRecords.add(newerTable.getCensusDAO(newerRow));
+            else
+            {
+                matchedRows[row] = true;
+                if (!isSame(censusTable, row, newerTable, newerRow))
+                    updatedRecords.add(newerTable.getCensusDAO(newerRow));
+            }
+        }
+        return new CensusDiff(addedRecords, updatedRecords, removedStates(censusTable, matchedRows));
+    }
+
+    public boolean isEmpty()
+    {
+        return addedRecords.isEmpty() && updatedRecords.isEmpty() && removedStates.isEmpty();
+    }
+
+    /**
+     * METHOD TO LIST THE STATES OF UNMATCHED ROWS, DECODING ONLY THOSE STATES
+     */
+    private static List<String> removedStates(CensusTable censusTable, boolean[] matchedRows)
+    {
+        List<String> removedStates = new ArrayList<>();
+        for (int row = 0; row < matchedRows.length; row++)
+        {
+            int stateId = censusTable.stateId(row);
+            if (!matchedRows[row] && stateId != CensusTable.NO_VALUE && censusTable.rowOfStateId(stateId) == row)
+                removedStates.add(censusTable.dictionaryValue(stateId));
+        }
+        return removedStates;
+    }
+
+    private static boolean isSame(CensusTable censusTable, int row, CensusDAO censusDAO)
+    {
+        int stateCodeId = censusTable.stateCodeId(row);
+        return (censusDAO.stateCode == null ? stateCodeId == CensusTable.NO_VALUE
+                : stateCodeId != CensusTable.NO_VALUE && stateCodeId == censusTable.dictionaryId(censusDAO.stateCode))
+                && censusTable.population(row) == (censusDAO.population == null ? 0 : censusDAO.population)
+                && Double.compare(censusTable.totalArea(row), censusDAO.totalArea) == 0
+                && Double.compare(censusTable.populationDensity(row), censusDAO.populationDensity) == 0;
+    }
+
+    private static boolean isSame(CensusTable censusTable, int row, CensusTable newerTable, int newerRow)
+    {
+        int newerStateCodeId = newerTable.stateCodeId(newerRow);
+        return (newerStateCodeId == CensusTable.NO_VALUE ? censusTable.stateCodeId(row) == CensusTable.NO_VALUE
+                : censusTable.stateCodeId(row) == censusTable.dictionaryId(newerTable, newerStateCodeId)
+                && censusTable.stateCodeId(row) != CensusTable.NO_VALUE)
+                && censusTable.population(row) == newerTable.population(newerRow)
+                && Double.compare(censusTable.totalArea(row), newerTable.totalArea(newerRow)) == 0
+                && Double.compare(censusTable.populationDensity(row), newerTable.populationDensity(newerRow)) == 0;
+    }
+}
@@ -0,0 +1,34 @@
+package com.bridgelabz.indianstatecensusanalyser.model;
+
+public enum CensusField
+{
+    STATE("state", true),
+    STATE_CODE("stateCode", true),
+    POPULATION("population", false),
+    POPULATION_DENSITY("populationDensity", false),
+    TOTAL_AREA("totalArea", false);
+
+    public final String fieldName;
+    public final boolean ascending;
+
+    CensusField(String fieldName, boolean ascending)
+    {
+        this.fieldName = fieldName;
+        this.ascending = ascending;
+    }
+
+    /**
+     * METHOD TO FIND THE SORTABLE FIELD FOR A CensusDAO FIELD NAME
+     * @param fieldName provides field name as used by getSortedCensusData
+     * @return matching field or null if the field is not sortable
+     */
+    public static CensusField of(String fieldName)
+    {
+        for (CensusField field : values())
+        {
+            if (field.fieldName.equals(fieldName))
+                return field;
+        }
+        return null;
+    }
+}
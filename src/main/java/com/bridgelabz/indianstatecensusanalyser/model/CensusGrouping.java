@@ -0,0 +1,45 @@
+package com.bridgelabz.indianstatecensusanalyser.model;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Derives the group of a record from its state or state code. The key function is called once per
+ * distinct value of the grouped field, never per row, and receives null for a missing value.
+ */
+public class CensusGrouping
+{
+    public static final CensusGrouping ALL = new CensusGrouping(CensusField.STATE, value -> "ALL");
+
+    public final CensusField field;
+    public final Function<String, String> keyFunction;
+
+    public CensusGrouping(CensusField field, Function<String, String> keyFunction)
+    {
+        if (field != CensusField.STATE && field != CensusField.STATE_CODE)
+            throw new IllegalArgumentException("Records can only be grouped by state or state code");
+        this.field = field;
+        this.keyFunction = keyFunction;
+    }
+
+    /**
+     * METHOD TO GROUP RECORDS BY THE FIRST CHARACTERS OF THEIR STATE CODE
+     * @param length provides the number of leading characters forming the group
+     * @return grouping, records without state code fall into the null group
+     */
+    public static CensusGrouping byStateCodePrefix(int length)
+    {
+        return new CensusGrouping(CensusField.STATE_CODE, value -> value == null ? null
+                : value.substring(0, Math.min(length, value.length())));
+    }
+
+    /**
+     * METHOD TO GROUP RECORDS BY A REGION LOOKED UP FROM THEIR STATE
+     * @param stateRegions provides the region of every state
+     * @return grouping, states without region fall into the null group
+     */
+    public static CensusGrouping byRegion(Map<String, String> stateRegions)
+    {
+        return new CensusGrouping(CensusField.STATE, value -> value == null ? null : stateRegions.get(value));
+    }
+}
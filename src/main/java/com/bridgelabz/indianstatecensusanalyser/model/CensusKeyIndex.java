@@ -0,0 +1,95 @@
+package com.bridgelabz.indianstatecensusanalyser.model;
+
+/**
+ * Open addressing map from state names or codes to int values such as dictionary ids or row numbers.
+ * Keys and values sit in two parallel arrays probed linearly, so a lookup allocates nothing: no boxed
+ * value, no entry and no iterator. Keys are compared by reference first, which makes interned or
+ * dictionary strings a single comparison, and String caches its own hash code.
+ */
+public class CensusKeyIndex
+{
+    private String[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    public CensusKeyIndex(int expectedSize)
+    {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 4) * 2 - 1) << 1;
+        keys = new String[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * METHOD TO MAP A KEY TO A VALUE, REPLACING ANY EARLIER VALUE
+     * @param key provides the state or state code, null keys are not indexed
+     * @param value provides the value
+     */
+    public void put(String key, int value)
+    {
+        if (key == null)
+            return;
+        if ((size + 1) * 2 > keys.length)
+            resize();
+        int slot = slot(key);
+        if (keys[slot] == null)
+        {
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+    }
+
+    /**
+     * METHOD TO LOOK A KEY UP
+     * @param key provides the state or state code
+     * @return mapped value, CensusTable.NO_VALUE when the key is not indexed
+     */
+    public int get(String key)
+    {
+        if (key == null)
+            return CensusTable.NO_VALUE;
+        int slot = slot(key);
+        return keys[slot] == null ? CensusTable.NO_VALUE : values[slot];
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * METHOD TO FIND THE SLOT HOLDING A KEY OR THE EMPTY SLOT WHERE IT BELONGS
+     */
+    private int slot(String key)
+    {
+        int hash = key.hashCode() * 0x9E3779B9;
+        int slot = (hash ^ hash >>> 16) & mask;
+        while (true)
+        {
+            String slotKey = keys[slot];
+            if (slotKey == null || slotKey == key || slotKey.equals(key))
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void resize()
+    {
+        String[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new String[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        mask = keys.length - 1;
+        for (int index = 0; index < oldKeys.length; index++)
+        {
+            if (oldKeys[index] != null)
+            {
+                int slot = slot(oldKeys[index]);
+                keys[slot] = oldKeys[index];
+                values[slot] = oldValues[index];
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.bridgelabz.indianstatecensusanalyser.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Conjunction of conditions on census fields. A numeric condition is a closed range, exclusive bounds
+ * are moved to the next representable double, so every numeric test is the same two comparisons.
+ * A text condition matches one state or state code. On a CensusTable each condition is a scan of one
+ * primitive column over the rows still matching, the text value being looked up in the dictionary once.
+ */
+public class CensusPredicate
+{
+    private final List<Condition> conditions;
+
+    private CensusPredicate(List<Condition> conditions)
+    {
+        this.conditions = Collections.unmodifiableList(conditions);
+    }
+
+    public static CensusPredicate greaterThan(CensusField field, double value)
+    {
+        return range(field, Math.nextUp(value), Double.POSITIVE_INFINITY);
+    }
+
+    public static CensusPredicate atLeast(CensusField field, double value)
+    {
+        return range(field, value, Double.POSITIVE_INFINITY);
+    }
+
+    public static CensusPredicate lessThan(CensusField field, double value)
+    {
+        return range(field, Double.NEGATIVE_INFINITY, Math.nextDown(value));
+    }
+
+    public static CensusPredicate atMost(CensusField field, double value)
+    {
+        return range(field, Double.NEGATIVE_INFINITY, value);
+    }
+
+    /**
+     * METHOD TO MATCH A NUMERIC FIELD WITHIN A CLOSED RANGE
+     * @param field provides the numeric field
+     * @param min provides the lowest matching value
+     * @param max provides the highest matching value
+     * @return predicate with one condition
+     */
+    public static CensusPredicate between(CensusField field, double min, double max)
+    {
+        return range(field, min, max);
+    }
+
+    /**
+     * METHOD TO MATCH A TEXT FIELD AGAINST ONE VALUE
+     * @param field provides state or state code
+     * @param value provides the matching value
+     * @return predicate with one condition
+     */
+    public static CensusPredicate equalTo(CensusField field, String value)
+    {
+        if (!field.ascending)
+            throw new IllegalArgumentException("Numeric fields are matched with ranges");
+        return new CensusPredicate(Collections.singletonList(new Condition(field, 0, 0,
+                Objects.requireNonNull(value, "value"))));
+    }
+
+    private static CensusPredicate range(CensusField field, double min, double max)
+    {
+        if (field.ascending)
+            throw new IllegalArgumentException("Text fields are matched with equalTo");
+        return new CensusPredicate(Collections.singletonList(new Condition(field, min, max, null)));
+    }
+
+    /**
+     * METHOD TO COMBINE TWO PREDICATES
+     * @param other provides conditions that must hold as well
+     * @return predicate matching records that match both
+     */
+    public CensusPredicate and(CensusPredicate other)
+    {
+        List<Condition> combined = new ArrayList<>(conditions);
+        combined.addAll(other.conditions);
+        return new CensusPredicate(combined);
+    }
+
+    /**
+     * METHOD TO KEEP ONLY THE CONDITIONS ON SOME FIELDS
+     * @param fields provides the fields a record is known to have
+     * @return predicate over those fields, matching every record when no condition is left
+     */
+    public CensusPredicate on(Collection<CensusField> fields)
+    {
+        List<Condition> kept = new ArrayList<>();
+        for (Condition condition : conditions)
+        {
+            if (fields.contains(condition.field))
+                kept.add(condition);
+        }
+        return kept.size() == conditions.size() ? this : new CensusPredicate(kept);
+    }
+
+    public boolean isEmpty()
+    {
+        return conditions.isEmpty();
+    }
+
+    /**
+     * METHOD TO TEST ONE RECORD
+     * @param censusDAO provides the record, a missing population counting as 0 as in a CensusTable
+     * @return true if every condition holds
+     */
+    public boolean test(CensusDAO censusDAO)
+    {
+        for (Condition condition : conditions)
+        {
+            boolean matches;
+            switch (condition.field)
+            {
+                case STATE:
+                    matches = condition.text.equals(censusDAO.state);
+                    break;
+                case STATE_CODE:
+                    matches = condition.text.equals(censusDAO.stateCode);
+                    break;
+                case POPULATION:
+                    matches = condition.contains(censusDAO.population == null ? 0 : censusDAO.population);
+                    break;
+                case POPULATION_DENSITY:
+                    matches = condition.contains(censusDAO.populationDensity);
+                    break;
+                default:
+                    matches = condition.contains(censusDAO.totalArea);
+            }
+            if (!matches)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * METHOD TO FIND THE MATCHING ROWS OF A TABLE
+     * @param censusTable provides the table to scan
+     * @return matching row numbers in ascending order
+     */
+    public int[] select(CensusTable censusTable)
+    {
+        int[] rows = new int[censusTable.size()];
+        for (int row = 0; row < rows.length; row++)
+            rows[row] = row;
+        int count = rows.length;
+        for (Condition condition : conditions)
+            count = condition.scan(censusTable, rows, count);
+        return Arrays.copyOf(rows, count);
+    }
+
+    @Override
+    public String toString()
+    {
+        return conditions.toString();
+    }
+
+    private static class Condition
+    {
+        private final CensusField field;
+        private final double min;
+        private final double max;
+        private final String text;
+
+        private Condition(CensusField field, double min, double max, String text)
+        {
+            this.field = field;
+            this.min = min;
+            this.max = max;
+            this.text = text;
+        }
+
+        private boolean contains(double value)
+        {
+            return value >= min && value <= max;
+        }
+
+        /**
+         * METHOD TO KEEP THE ROWS MATCHING THIS CONDITION, COMPACTING THEM AT THE FRONT OF THE ARRAY
+         * @param rows provides the rows to check in its first count entries
+         * @return number of rows kept
+         */
+        private int scan(CensusTable censusTable, int[] rows, int count)
+        {
+            int kept = 0;
+            switch (field)
+            {
+                case STATE:
+                case STATE_CODE:
+                    int id = censusTable.dictionaryId(text);
+                    for (int index = 0; index < count && id != CensusTable.NO_VALUE; index++)
+                    {
+                        int row = rows[index];
+                        int rowId = field == CensusField.STATE ? censusTable.stateId(row)
+                                : censusTable.stateCodeId(row);
+                        if (rowId == id)
+                            rows[kept++] = row;
+                    }
+                    break;
+                case POPULATION:
+                    for (int index = 0; index < count; index++)
+                    {
+                        int row = rows[index];
+                        if (contains(censusTable.population(row)))
+                            rows[kept++] = row;
+                    }
+                    break;
+                case POPULATION_DENSITY:
+                    for (int index = 0; index < count; index++)
+                    {
+                        int row = rows[index];
+                        if (contains(censusTable.populationDensity(row)))
+                            rows[kept++] = row;
+                    }
+                    break;
+                default:
+                    for (int index = 0; index < count; index++)
+                    {
+                        int row = rows[index];
+                        if (contains(censusTable.totalArea(row)))
+                            rows[kept++] = row;
+                    }
+            }
+            return kept;
+        }
+
+        @Override
+        public String toString()
+        {
+            return field.ascending ? field.fieldName + "=" + text : field.fieldName + "[" + min + "," + max + "]";
+        }
+    }
+}
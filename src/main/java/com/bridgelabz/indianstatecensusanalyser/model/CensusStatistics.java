@@ -0,0 +1,29 @@
+package com.bridgelabz.indianstatecensusanalyser.model;
+
+import java.util.Map;
+
+/**
+ * Aggregated values of one numeric census field over a group of records.
+ */
+public class CensusStatistics
+{
+    public final String group;
+    public final int count;
+    public final double sum;
+    public final double average;
+    public final double min;
+    public final double max;
+    public final Map<Double, Double> percentiles;
+
+    public CensusStatistics(String group, int count, double sum, double min, double max,
+                            Map<Double, Double> percentiles)
+    {
+        this.group = group;
+        this.count = count;
+        this.sum = sum;
+        this.average = count == 0 ? 0 : sum / count;
+        this.min = min;
+        this.max = max;
+        this.percentiles = percentiles;
+    }
+}
@@ -0,0 +1,748 @@
+package com.bridgelabz.indianstatecensusanalyser.model;
+
+import com.bridgelabz.indianstatecensusanalyser.utility.CensusMetrics;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Column oriented census data. State and state code are dictionary encoded into one string
+ * dictionary, numeric fields are held in primitive arrays indexed by row. A sort index per
+ * CensusField is built with the table, so a reload brings fresh indexes with it. A table is
+ * never modified, applying a CensusDiff produces a new table. Columns, indexes and dictionary can be
+ * moved off the heap, into direct or memory mapped buffers, and are read in place from there; an
+ * OffHeapBuilder builds them there directly from streamed records.
+ */
+public class CensusTable
+{
+    public static final int NO_VALUE = -1;
+    private static final double MAX_DEAD_DICTIONARY_RATIO = 0.5;
+
+    private final CensusColumns columns;
+
+    private CensusTable(CensusColumns columns)
+    {
+        this.columns = columns;
+    }
+
+    /**
+     * METHOD TO BUILD A TABLE FROM THE BUILDER COLUMNS
+     * Without a previous table every sort index is sorted from scratch, otherwise the previous index is
+     * kept for unchanged rows and only the changed rows are sorted and merged into it
+     * @param previous provides the table the builder was derived from, null for a new table
+     * @param rowMapping provides the new row of every previous row, NO_VALUE for removed rows
+     * @param changedRows provides true for every new row that was updated or added
+     */
+    private CensusTable(Builder builder, CensusTable previous, int[] rowMapping, boolean[] changedRows)
+    {
+        CensusColumns.OnHeap heapColumns = new CensusColumns.OnHeap(
+                builder.dictionary.toArray(new String[builder.dictionary.size()]),
+                Arrays.copyOf(builder.stateIds, builder.size), Arrays.copyOf(builder.stateCodeIds, builder.size),
+                Arrays.copyOf(builder.population, builder.size), Arrays.copyOf(builder.totalArea, builder.size),
+                Arrays.copyOf(builder.populationDensity, builder.size), new int[CensusField.values().length][]);
+        for (CensusField field : CensusField.values())
+        {
+            CensusMetrics.Timer timer = CensusMetrics.start(CensusMetrics.Stage.SORT, field.fieldName);
+            heapColumns.sortIndexes[field.ordinal()] = previous == null
+                    ? sort(builder.size, heapColumns.rowComparator(field))
+                    : merge(builder.size, heapColumns.rowComparator(field), previous, field, rowMapping, changedRows);
+            timer.stop(builder.size, 0);
+        }
+        this.columns = heapColumns;
+    }
+
+    /**
+     * METHOD TO BUILD A TABLE FROM LOADED CENSUS RECORDS
+     * @param censusDAOs provides the records, their iteration order becomes the row order
+     * @return table holding one row per record
+     */
+    public static CensusTable of(Collection<CensusDAO> censusDAOs)
+    {
+        Builder builder = new Builder(censusDAOs.size());
+        for (CensusDAO censusDAO : censusDAOs)
+            builder.add(censusDAO);
+        return builder.build();
+    }
+
+    /**
+     * METHOD TO RESTORE A TABLE FROM SAVED COLUMNS WITHOUT RE-SORTING
+     * @param dictionary provides the string dictionary indexed by id
+     * @param stateIds provides the state dictionary id of every row
+     * @param stateCodeIds provides the state code dictionary id of every row, NO_VALUE when missing
+     * @param population provides the population column
+     * @param totalArea provides the total area column
+     * @param populationDensity provides the population density column
+     * @param sortIndexes provides one sort index per CensusField in ordinal order
+     * @return table over the given arrays
+     */
+    public static CensusTable restore(String[] dictionary, int[] stateIds, int[] stateCodeIds, long[] population,
+                                      double[] totalArea, double[] populationDensity, int[][] sortIndexes)
+    {
+        return new CensusTable(new CensusColumns.OnHeap(dictionary, stateIds, stateCodeIds, population, totalArea,
+                populationDensity, sortIndexes.clone()));
+    }
+
+    /**
+     * METHOD TO OPEN A TABLE OVER COLUMNS HELD IN BUFFERS, E.G. SECTIONS OF A MEMORY MAPPED FILE
+     * Nothing is copied, every read goes to the buffers
+     * @param dictionaryBytes provides the UTF-8 bytes of the dictionary values, one after another
+     * @param dictionaryOffsets provides the start of every value in dictionaryBytes, then the end of the last
+     * @param stateIds provides the state dictionary id of every row
+     * @param stateCodeIds provides the state code dictionary id of every row, NO_VALUE when missing
+     * @param population provides the population column
+     * @param totalArea provides the total area column
+     * @param populationDensity provides the population density column
+     * @param sortIndexes provides one sort index per CensusField in ordinal order
+     * @return table over the given buffers
+     */
+    public static CensusTable restore(ByteBuffer dictionaryBytes, IntBuffer dictionaryOffsets, IntBuffer stateIds,
+                                      IntBuffer stateCodeIds, LongBuffer population, DoubleBuffer totalArea,
+                                      DoubleBuffer populationDensity, IntBuffer[] sortIndexes)
+    {
+        return new CensusTable(new CensusColumns.OffHeap(new OffHeapDictionary(dictionaryBytes, dictionaryOffsets),
+                stateIds, stateCodeIds, population, totalArea, populationDensity, sortIndexes.clone()));
+    }
+
+    /**
+     * METHOD TO MOVE THE TABLE OFF THE HEAP
+     * The columns, sort indexes and dictionary are copied once into direct buffers, after which the
+     * table adds no objects per row for the garbage collector to trace
+     * @return table over direct buffers, this table when it is already off the heap
+     */
+    public CensusTable toOffHeap()
+    {
+        return isOffHeap() ? this : new CensusTable(CensusColumns.OffHeap.copyOf(columns));
+    }
+
+    public boolean isOffHeap()
+    {
+        return columns instanceof CensusColumns.OffHeap;
+    }
+
+    /**
+     * METHOD TO APPLY ROW LEVEL CHANGES WITHOUT REBUILDING THE WHOLE TABLE
+     * Unchanged and updated rows keep their order, added rows are appended and removed rows dropped.
+     * Dictionary values no row uses any more are kept until they make up more than half of the
+     * dictionary, then the dictionary is compacted. The sort indexes equal those of a table built
+     * from scratch out of the same records. The new table is built on the heap, even from an off heap
+     * table; CensusAnalyser rebuilds off heap tables with an OffHeapBuilder instead
+     * @param censusDiff provides the records to add, update and remove
+     * @return new table, this table when the diff is empty
+     */
+    public CensusTable apply(CensusDiff censusDiff)
+    {
+        if (censusDiff.isEmpty())
+            return this;
+        int[] rowMapping = new int[size()];
+        for (String state : censusDiff.removedStates)
+        {
+            int row = rowOfState(state);
+            if (row != NO_VALUE)
+                rowMapping[row] = NO_VALUE;
+        }
+        CensusDAO[] updatedRows = new CensusDAO[size()];
+        for (CensusDAO censusDAO : censusDiff.updatedRecords)
+        {
+            int row = rowOfState(censusDAO.state);
+            if (row != NO_VALUE && rowMapping[row] != NO_VALUE)
+                updatedRows[row] = censusDAO;
+        }
+        Builder builder = new Builder(size() + censusDiff.addedRecords.size());
+        int[] idMapping = encodeDictionary(builder, rowMapping, updatedRows);
+        boolean[] changedRows = new boolean[size() + censusDiff.addedRecords.size()];
+        for (int row = 0; row < size(); row++)
+        {
+            if (rowMapping[row] == NO_VALUE)
+                continue;
+            rowMapping[row] = builder.size;
+            changedRows[builder.size] = updatedRows[row] != null;
+            if (updatedRows[row] != null)
+                builder.add(updatedRows[row]);
+            else
+                builder.add(mappedId(idMapping, stateId(row)), mappedId(idMapping, stateCodeId(row)),
+                        population(row), totalArea(row), populationDensity(row));
+        }
+        for (CensusDAO censusDAO : censusDiff.addedRecords)
+        {
+            changedRows[builder.size] = true;
+            builder.add(censusDAO);
+        }
+        return new CensusTable(builder, this, rowMapping, changedRows);
+    }
+
+    /**
+     * METHOD TO CARRY THE DICTIONARY OVER TO A BUILDER, DROPPING UNUSED VALUES WHEN THERE ARE TOO MANY
+     * @param builder provides the builder of the new table
+     * @param rowMapping provides NO_VALUE for every removed row
+     * @param updatedRows provides the new record of every updated row
+     * @return builder id of every dictionary id, NO_VALUE for dropped values
+     */
+    private int[] encodeDictionary(Builder builder, int[] rowMapping, CensusDAO[] updatedRows)
+    {
+        boolean[] usedIds = new boolean[dictionarySize()];
+        int usedCount = 0;
+        for (int row = 0; row < size(); row++)
+        {
+            if (rowMapping[row] != NO_VALUE && updatedRows[row] == null)
+                usedCount += markUsed(usedIds, stateId(row)) + markUsed(usedIds, stateCodeId(row));
+        }
+        boolean compact = dictionarySize() - usedCount > dictionarySize() * MAX_DEAD_DICTIONARY_RATIO;
+        int[] idMapping = new int[dictionarySize()];
+        for (int id = 0; id < idMapping.length; id++)
+            idMapping[id] = compact && !usedIds[id] ? NO_VALUE : builder.encode(dictionaryValue(id));
+        return idMapping;
+    }
+
+    private static int markUsed(boolean[] usedIds, int id)
+    {
+        if (id == NO_VALUE || usedIds[id])
+            return 0;
+        usedIds[id] = true;
+        return 1;
+    }
+
+    private static int mappedId(int[] idMapping, int id)
+    {
+        return id == NO_VALUE ? NO_VALUE : idMapping[id];
+    }
+
+    public int size()
+    {
+        return columns.size();
+    }
+
+    public int dictionarySize()
+    {
+        return columns.dictionarySize();
+    }
+
+    public String dictionaryValue(int id)
+    {
+        return columns.dictionaryValue(id);
+    }
+
+    public int stateId(int row)
+    {
+        return columns.stateId(row);
+    }
+
+    public int stateCodeId(int row)
+    {
+        return columns.stateCodeId(row);
+    }
+
+    /**
+     * METHOD TO FIND THE DICTIONARY ID OF A STATE OR STATE CODE WITHOUT ALLOCATING
+     * @param value provides the state or state code
+     * @return dictionary id, NO_VALUE when the value is not in the table
+     */
+    public int dictionaryId(String value)
+    {
+        return columns.dictionaryId(value);
+    }
+
+    /**
+     * METHOD TO FIND THE DICTIONARY ID OF A VALUE OF ANOTHER TABLE
+     * Between off heap tables the stored bytes are compared and no String is decoded
+     * @param censusTable provides the other table
+     * @param id provides the dictionary id in the other table, NO_VALUE for a missing value
+     * @return dictionary id in this table, NO_VALUE when the value is missing or not in this table
+     */
+    public int dictionaryId(CensusTable censusTable, int id)
+    {
+        return columns.dictionaryId(censusTable.columns, id);
+    }
+
+    /**
+     * METHOD TO FIND THE ROW OF A STATE WITHOUT ALLOCATING
+     * @param state provides the state name
+     * @return row number, NO_VALUE when the state is not in the table
+     */
+    public int rowOfState(String state)
+    {
+        return rowOfStateId(columns.dictionaryId(state));
+    }
+
+    /**
+     * METHOD TO FIND THE ROW OF A STATE DICTIONARY ID
+     * @param stateId provides the dictionary id of the state
+     * @return row number, the last row when rows share the state, NO_VALUE when no row holds the state
+     */
+    public int rowOfStateId(int stateId)
+    {
+        return stateId == NO_VALUE ? NO_VALUE : columns.stateRow(stateId);
+    }
+
+    /**
+     * METHOD TO FIND THE ROW OF A STATE CODE WITHOUT ALLOCATING
+     * @param stateCode provides the state code
+     * @return row number, the last row when rows share the code, NO_VALUE when the code is not in the table
+     */
+    public int rowOfStateCode(String stateCode)
+    {
+        int id = columns.dictionaryId(stateCode);
+        return id == NO_VALUE ? NO_VALUE : columns.stateCodeRow(id);
+    }
+
+    public String state(int row)
+    {
+        return valueOf(columns.stateId(row));
+    }
+
+    public String stateCode(int row)
+    {
+        return valueOf(columns.stateCodeId(row));
+    }
+
+    public long population(int row)
+    {
+        return columns.population(row);
+    }
+
+    public double totalArea(int row)
+    {
+        return columns.totalArea(row);
+    }
+
+    public double populationDensity(int row)
+    {
+        return columns.populationDensity(row);
+    }
+
+    /**
+     * METHOD TO MATERIALIZE ONE ROW AS A CensusDAO
+     * @param row provides the row number
+     * @return new CensusDAO holding the row values
+     */
+    public CensusDAO getCensusDAO(int row)
+    {
+        CensusDAO censusDAO = new CensusDAO();
+        censusDAO.state = state(row);
+        censusDAO.stateCode = stateCode(row);
+        censusDAO.population = (int) population(row);
+        censusDAO.totalArea = totalArea(row);
+        censusDAO.populationDensity = populationDensity(row);
+        return censusDAO;
+    }
+
+    /**
+     * METHOD TO GET THE ROW AT A RANK OF THE PRECOMPUTED SORT INDEX
+     * @param field provides the sorted field
+     * @param rank provides the position in the default order of the field
+     * @return row number
+     */
+    public int sortedRow(CensusField field, int rank)
+    {
+        return columns.sortedRow(field, rank);
+    }
+
+    /**
+     * METHOD TO COPY ROW NUMBERS IN SORTED ORDER FROM THE PRECOMPUTED SORT INDEX
+     * @param field provides the sorted field
+     * @return row numbers in the default order of the field
+     */
+    public int[] sortedRows(CensusField field)
+    {
+        return sortedRows(field, 0, size());
+    }
+
+    /**
+     * METHOD TO COPY A SLICE OF THE PRECOMPUTED SORT INDEX
+     * @param field provides the sorted field
+     * @param fromRank provides the first rank, inclusive
+     * @param toRank provides the last rank, exclusive
+     * @return row numbers of the slice in the default order of the field
+     */
+    public int[] sortedRows(CensusField field, int fromRank, int toRank)
+    {
+        return columns.sortedRows(field, fromRank, toRank);
+    }
+
+    /**
+     * METHOD TO OPEN A CURSOR OVER THE PRECOMPUTED SORT INDEX OF A FIELD
+     * Each record is materialized only when the consumer pulls it
+     * @param field provides the sorted field
+     * @param fromBottom provides true to walk the sort index from its end
+     * @return cursor over every row of the table
+     */
+    public CensusCursor cursor(CensusField field, boolean fromBottom)
+    {
+        return new CensusCursor()
+        {
+            private int rank;
+
+            @Override
+            public boolean hasNext()
+            {
+                return rank < size();
+            }
+
+            @Override
+            public CensusDAO next()
+            {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                int indexRank = fromBottom ? size() - 1 - rank : rank;
+                rank++;
+                return getCensusDAO(sortedRow(field, indexRank));
+            }
+        };
+    }
+
+    /**
+     * METHOD TO SORT ROW NUMBERS BY A FIELD IN ITS DEFAULT ORDER
+     * Ties are ordered by state, then by row, and missing state codes go last
+     * @param size provides the number of rows
+     * @param rowComparator provides the order of the field
+     * @return row numbers in sorted order
+     */
+    private static int[] sort(int size, RowComparator rowComparator)
+    {
+        int[] rows = new int[size];
+        for (int row = 0; row < rows.length; row++)
+            rows[row] = row;
+        mergeSort(rows, new int[rows.length], 0, rows.length, rowComparator);
+        return rows;
+    }
+
+    /**
+     * METHOD TO MERGE THE SORTED CHANGED ROWS INTO THE PREVIOUS SORT INDEX OF A FIELD
+     * @param size provides the number of rows
+     * @param rowComparator provides the order of the field
+     * @param previous provides the previous table
+     * @param field provides the field to sort on
+     * @param rowMapping provides the new row of every previous row, NO_VALUE for removed rows
+     * @param changedRows provides true for every new row that was updated or added
+     * @return row numbers in sorted order
+     */
+    private static int[] merge(int size, RowComparator rowComparator, CensusTable previous, CensusField field,
+                               int[] rowMapping, boolean[] changedRows)
+    {
+        int changedCount = 0;
+        for (int row = 0; row < size; row++)
+        {
+            if (changedRows[row])
+                changedCount++;
+        }
+        int[] keptRows = new int[size - changedCount];
+        int keptCount = 0;
+        for (int rank = 0; rank < previous.size(); rank++)
+        {
+            int row = rowMapping[previous.sortedRow(field, rank)];
+            if (row != NO_VALUE && !changedRows[row])
+                keptRows[keptCount++] = row;
+        }
+        int[] sortedChangedRows = new int[changedCount];
+        for (int row = 0, index = 0; row < size; row++)
+        {
+            if (changedRows[row])
+                sortedChangedRows[index++] = row;
+        }
+        mergeSort(sortedChangedRows, new int[changedCount], 0, changedCount, rowComparator);
+        int[] rows = new int[size];
+        int kept = 0;
+        int changed = 0;
+        for (int index = 0; index < rows.length; index++)
+        {
+            if (changed >= changedCount || (kept < keptCount
+                    && rowComparator.compare(keptRows[kept], sortedChangedRows[changed]) <= 0))
+                rows[index] = keptRows[kept++];
+            else
+                rows[index] = sortedChangedRows[changed++];
+        }
+        return rows;
+    }
+
+    private String valueOf(int id)
+    {
+        return id == NO_VALUE ? null : columns.dictionaryValue(id);
+    }
+
+    private static void mergeSort(int[] rows, int[] buffer, int from, int to, RowComparator rowComparator)
+    {
+        if (to - from < 2)
+            return;
+        int middle = (from + to) >>> 1;
+        mergeSort(rows, buffer, from, middle, rowComparator);
+        mergeSort(rows, buffer, middle, to, rowComparator);
+        if (rowComparator.compare(rows[middle - 1], rows[middle]) <= 0)
+            return;
+        System.arraycopy(rows, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int index = from; index < to; index++)
+        {
+            if (right >= to || (left < middle && rowComparator.compare(buffer[left], buffer[right]) <= 0))
+                rows[index] = buffer[left++];
+            else
+                rows[index] = buffer[right++];
+        }
+    }
+
+    /**
+     * METHOD TO SORT THE VALUES FROM 0 TO SIZE IN DIRECT BUFFERS, AS mergeSort DOES ON ARRAYS
+     * @param size provides the number of values
+     * @param rowComparator provides the order of the values
+     * @return values in sorted order
+     */
+    private static IntBuffer sortOffHeap(int size, RowComparator rowComparator)
+    {
+        IntBuffer rows = CensusColumns.OffHeap.allocate(size, Integer.BYTES).asIntBuffer();
+        for (int row = 0; row < size; row++)
+            rows.put(row, row);
+        mergeSort(rows, CensusColumns.OffHeap.allocate(size, Integer.BYTES).asIntBuffer(), 0, size, rowComparator);
+        return rows;
+    }
+
+    private static void mergeSort(IntBuffer rows, IntBuffer buffer, int from, int to, RowComparator rowComparator)
+    {
+        if (to - from < 2)
+            return;
+        int middle = (from + to) >>> 1;
+        mergeSort(rows, buffer, from, middle, rowComparator);
+        mergeSort(rows, buffer, middle, to, rowComparator);
+        if (rowComparator.compare(rows.get(middle - 1), rows.get(middle)) <= 0)
+            return;
+        for (int index = from; index < to; index++)
+            buffer.put(index, rows.get(index));
+        int left = from;
+        int right = middle;
+        for (int index = from; index < to; index++)
+        {
+            if (right >= to || (left < middle && rowComparator.compare(buffer.get(left), buffer.get(right)) <= 0))
+                rows.put(index, buffer.get(left++));
+            else
+                rows.put(index, buffer.get(right++));
+        }
+    }
+
+    interface RowComparator
+    {
+        int compare(int firstRow, int secondRow);
+    }
+
+    public static class Builder
+    {
+        private final CensusKeyIndex dictionaryIds = new CensusKeyIndex(64);
+        private final List<String> dictionary = new ArrayList<>();
+        private int[] stateIds;
+        private int[] stateCodeIds;
+        private long[] population;
+        private double[] totalArea;
+        private double[] populationDensity;
+        private int size;
+
+        public Builder(int expectedSize)
+        {
+            int capacity = Math.max(expectedSize, 16);
+            stateIds = new int[capacity];
+            stateCodeIds = new int[capacity];
+            population = new long[capacity];
+            totalArea = new double[capacity];
+            populationDensity = new double[capacity];
+        }
+
+        /**
+         * METHOD TO APPEND ONE RECORD AS A NEW ROW
+         * @param censusDAO provides the record to copy into the columns
+         * @return this builder
+         */
+        public Builder add(CensusDAO censusDAO)
+        {
+            if (size == population.length)
+                grow();
+            stateIds[size] = encode(censusDAO.state);
+            stateCodeIds[size] = encode(censusDAO.stateCode);
+            population[size] = censusDAO.population == null ? 0 : censusDAO.population;
+            totalArea[size] = censusDAO.totalArea;
+            populationDensity[size] = censusDAO.populationDensity;
+            size++;
+            return this;
+        }
+
+        public CensusTable build()
+        {
+            return new CensusTable(this, null, null, null);
+        }
+
+        private void add(int stateId, int stateCodeId, long population, double totalArea, double populationDensity)
+        {
+            if (size == this.population.length)
+                grow();
+            stateIds[size] = stateId;
+            stateCodeIds[size] = stateCodeId;
+            this.population[size] = population;
+            this.totalArea[size] = totalArea;
+            this.populationDensity[size] = populationDensity;
+            size++;
+        }
+
+        private int encode(String value)
+        {
+            if (value == null)
+                return NO_VALUE;
+            int id = dictionaryIds.get(value);
+            if (id == NO_VALUE)
+            {
+                id = dictionary.size();
+                dictionaryIds.put(value, id);
+                dictionary.add(value);
+            }
+            return id;
+        }
+
+        private void grow()
+        {
+            int capacity = population.length * 2;
+            stateIds = Arrays.copyOf(stateIds, capacity);
+            stateCodeIds = Arrays.copyOf(stateCodeIds, capacity);
+            population = Arrays.copyOf(population, capacity);
+            totalArea = Arrays.copyOf(totalArea, capacity);
+            populationDensity = Arrays.copyOf(populationDensity, capacity);
+        }
+    }
+
+    /**
+     * Builds a table straight into direct buffers: the dictionary, columns and sort indexes never exist
+     * on the heap. A record whose state was added before replaces the earlier row, so records can be
+     * streamed from a file with the last row of a state winning, as in a map keyed by state.
+     */
+    public static class OffHeapBuilder
+    {
+        private final OffHeapDictionary dictionary;
+        private IntBuffer stateIds;
+        private IntBuffer stateCodeIds;
+        private LongBuffer population;
+        private DoubleBuffer totalArea;
+        private DoubleBuffer populationDensity;
+        private IntBuffer stateRows;
+        private int size;
+
+        public OffHeapBuilder(int expectedSize)
+        {
+            int capacity = Math.max(expectedSize, 16);
+            dictionary = new OffHeapDictionary(capacity * 2);
+            stateIds = allocate(capacity, Integer.BYTES).asIntBuffer();
+            stateCodeIds = allocate(capacity, Integer.BYTES).asIntBuffer();
+            population = allocate(capacity, Long.BYTES).asLongBuffer();
+            totalArea = allocate(capacity, Double.BYTES).asDoubleBuffer();
+            populationDensity = allocate(capacity, Double.BYTES).asDoubleBuffer();
+            stateRows = grow(allocate(0, Integer.BYTES).asIntBuffer(), capacity * 2);
+        }
+
+        /**
+         * METHOD TO ADD ONE RECORD, REPLACING THE ROW OF ITS STATE WHEN THE STATE WAS ADDED BEFORE
+         * @param censusDAO provides the record to copy into the columns
+         * @return this builder
+         */
+        public OffHeapBuilder add(CensusDAO censusDAO)
+        {
+            int stateId = dictionary.encode(censusDAO.state);
+            int stateCodeId = dictionary.encode(censusDAO.stateCode);
+            if (dictionary.size() > stateRows.capacity())
+                stateRows = grow(stateRows, Math.max(dictionary.size(), stateRows.capacity() * 2));
+            int row = stateId == NO_VALUE ? NO_VALUE : stateRows.get(stateId);
+            if (row == NO_VALUE)
+            {
+                if (size == population.capacity())
+                    grow();
+                row = size++;
+                if (stateId != NO_VALUE)
+                    stateRows.put(stateId, row);
+            }
+            stateIds.put(row, stateId);
+            stateCodeIds.put(row, stateCodeId);
+            population.put(row, censusDAO.population == null ? 0 : censusDAO.population);
+            totalArea.put(row, censusDAO.totalArea);
+            populationDensity.put(row, censusDAO.populationDensity);
+            return this;
+        }
+
+        /**
+         * METHOD TO SORT THE ROWS AND BUILD THE TABLE
+         * Dictionary values are ranked once, so sorting by state or state code compares ints
+         * @return off heap table, the builder must not be used afterwards
+         */
+        public CensusTable build()
+        {
+            IntBuffer sortedIds = sortOffHeap(dictionary.size(), dictionary::compare);
+            IntBuffer dictionaryRanks = allocate(dictionary.size(), Integer.BYTES).asIntBuffer();
+            for (int rank = 0; rank < dictionary.size(); rank++)
+                dictionaryRanks.put(sortedIds.get(rank), rank);
+            IntBuffer[] sortIndexes = new IntBuffer[CensusField.values().length];
+            CensusColumns.OffHeap offHeapColumns = new CensusColumns.OffHeap(dictionary, trimmed(stateIds),
+                    trimmed(stateCodeIds), trimmed(population), trimmed(totalArea), trimmed(populationDensity),
+                    sortIndexes);
+            for (CensusField field : CensusField.values())
+            {
+                CensusMetrics.Timer timer = CensusMetrics.start(CensusMetrics.Stage.SORT, field.fieldName);
+                sortIndexes[field.ordinal()] = sortOffHeap(size, offHeapColumns.rowComparator(field, dictionaryRanks));
+                timer.stop(size, 0);
+            }
+            return new CensusTable(offHeapColumns);
+        }
+
+        private void grow()
+        {
+            int capacity = population.capacity() * 2;
+            stateIds = grow(stateIds, capacity);
+            stateCodeIds = grow(stateCodeIds, capacity);
+            LongBuffer grownPopulation = allocate(capacity, Long.BYTES).asLongBuffer();
+            DoubleBuffer grownTotalArea = allocate(capacity, Double.BYTES).asDoubleBuffer();
+            DoubleBuffer grownPopulationDensity = allocate(capacity, Double.BYTES).asDoubleBuffer();
+            for (int row = 0; row < size; row++)
+            {
+                grownPopulation.put(row, population.get(row));
+                grownTotalArea.put(row, totalArea.get(row));
+                grownPopulationDensity.put(row, populationDensity.get(row));
+            }
+            population = grownPopulation;
+            totalArea = grownTotalArea;
+            populationDensity = grownPopulationDensity;
+        }
+
+        /**
+         * METHOD TO COPY AN INT BUFFER INTO A LARGER ONE, FILLING THE NEW PART WITH NO_VALUE
+         */
+        private static IntBuffer grow(IntBuffer buffer, int capacity)
+        {
+            IntBuffer grownBuffer = allocate(capacity, Integer.BYTES).asIntBuffer();
+            for (int index = 0; index < capacity; index++)
+                grownBuffer.put(index, index < buffer.capacity() ? buffer.get(index) : NO_VALUE);
+            return grownBuffer;
+        }
+
+        private IntBuffer trimmed(IntBuffer buffer)
+        {
+            IntBuffer trimmedBuffer = buffer.duplicate();
+            trimmedBuffer.limit(size);
+            return trimmedBuffer.slice();
+        }
+
+        private LongBuffer trimmed(LongBuffer buffer)
+        {
+            LongBuffer trimmedBuffer = buffer.duplicate();
+            trimmedBuffer.limit(size);
+            return trimmedBuffer.slice();
+        }
+
+        private DoubleBuffer trimmed(DoubleBuffer buffer)
+        {
+            DoubleBuffer trimmedBuffer = buffer.duplicate();
+            trimmedBuffer.limit(size);
+            return trimmedBuffer.slice();
+        }
+
+        private static ByteBuffer allocate(int count, int bytes)
+        {
+            return CensusColumns.OffHeap.allocate(count, bytes);
+        }
+    }
+}
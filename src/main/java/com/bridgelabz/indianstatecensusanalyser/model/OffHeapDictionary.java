@@ -0,0 +1,339 @@
+package com.bridgelabz.indianstatecensusanalyser.model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * String dictionary outside the heap: the UTF-8 bytes of every value one after another, the start of
+ * every value, and open addressing hash slots holding id + 1. Values are hashed like String.hashCode,
+ * compared like String.compareTo and matched against lookup keys on their stored bytes, so only
+ * reading a value creates a String. A dictionary created empty grows as values are encoded, one opened
+ * over existing buffers, e.g. a mapped snapshot, is read only and builds its hash slots on first lookup.
+ */
+class OffHeapDictionary
+{
+    private static final int EMPTY_SLOT = 0;
+
+    private ByteBuffer bytes;
+    private IntBuffer offsets;
+    private int size;
+    private volatile IntBuffer slots;
+
+    /**
+     * @param expectedSize provides the number of values to make room for before growing
+     */
+    OffHeapDictionary(int expectedSize)
+    {
+        int capacity = Math.max(expectedSize, 16);
+        bytes = allocate(capacity * 16, 1);
+        offsets = allocate(capacity + 1, Integer.BYTES).asIntBuffer();
+        slots = allocate(slotCount(capacity), Integer.BYTES).asIntBuffer();
+    }
+
+    /**
+     * @param bytes provides the UTF-8 bytes of the values, one after another
+     * @param offsets provides the start of every value in bytes, then the end of the last
+     */
+    OffHeapDictionary(ByteBuffer bytes, IntBuffer offsets)
+    {
+        this.bytes = bytes;
+        this.offsets = offsets;
+        this.size = offsets.limit() - 1;
+    }
+
+    static ByteBuffer allocate(int count, int bytes)
+    {
+        return ByteBuffer.allocateDirect(Math.multiplyExact(count, bytes)).order(ByteOrder.nativeOrder());
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    String value(int id)
+    {
+        int from = offsets.get(id);
+        byte[] value = new byte[offsets.get(id + 1) - from];
+        for (int index = 0; index < value.length; index++)
+            value[index] = bytes.get(from + index);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * METHOD TO FIND THE ID OF A VALUE WITHOUT ALLOCATING
+     * @param value provides the value
+     * @return id, CensusTable.NO_VALUE when the value is not in the dictionary
+     */
+    int id(String value)
+    {
+        if (value == null)
+            return CensusTable.NO_VALUE;
+        IntBuffer slots = slots();
+        int mask = slots.limit() - 1;
+        for (int slot = slot(value.hashCode(), mask); ; slot = (slot + 1) & mask)
+        {
+            int entry = slots.get(slot);
+            if (entry == EMPTY_SLOT)
+                return CensusTable.NO_VALUE;
+            if (equals(entry - 1, value))
+                return entry - 1;
+        }
+    }
+
+    /**
+     * METHOD TO FIND THE ID OF A VALUE OF ANOTHER DICTIONARY, COMPARING THE STORED BYTES
+     * @param dictionary provides the other dictionary
+     * @param otherId provides the id of the value in the other dictionary, NO_VALUE for a missing value
+     * @return id in this dictionary, CensusTable.NO_VALUE when the value is not in it
+     */
+    int id(OffHeapDictionary dictionary, int otherId)
+    {
+        if (otherId == CensusTable.NO_VALUE)
+            return CensusTable.NO_VALUE;
+        IntBuffer slots = slots();
+        int mask = slots.limit() - 1;
+        for (int slot = slot(dictionary.hashCode(otherId), mask); ; slot = (slot + 1) & mask)
+        {
+            int entry = slots.get(slot);
+            if (entry == EMPTY_SLOT)
+                return CensusTable.NO_VALUE;
+            if (equals(entry - 1, dictionary, otherId))
+                return entry - 1;
+        }
+    }
+
+    /**
+     * METHOD TO GET THE ID OF A VALUE, APPENDING IT WHEN IT IS NEW
+     * @param value provides the value, null is not encoded
+     * @return id, CensusTable.NO_VALUE for null
+     */
+    int encode(String value)
+    {
+        int id = id(value);
+        if (value == null || id != CensusTable.NO_VALUE)
+            return id;
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        ensureCapacity(encoded.length);
+        int from = offsets.get(size);
+        for (int index = 0; index < encoded.length; index++)
+            bytes.put(from + index, encoded[index]);
+        return append(from + encoded.length, value.hashCode());
+    }
+
+    /**
+     * METHOD TO GET THE ID OF A VALUE OF ANOTHER DICTIONARY, COPYING ITS BYTES WHEN IT IS NEW
+     * @param dictionary provides the other dictionary
+     * @param otherId provides the id of the value in the other dictionary, NO_VALUE for a missing value
+     * @return id in this dictionary, CensusTable.NO_VALUE for a missing value
+     */
+    int encode(OffHeapDictionary dictionary, int otherId)
+    {
+        int id = id(dictionary, otherId);
+        if (otherId == CensusTable.NO_VALUE || id != CensusTable.NO_VALUE)
+            return id;
+        int otherFrom = dictionary.offsets.get(otherId);
+        int length = dictionary.offsets.get(otherId + 1) - otherFrom;
+        ensureCapacity(length);
+        int from = offsets.get(size);
+        for (int index = 0; index < length; index++)
+            bytes.put(from + index, dictionary.bytes.get(otherFrom + index));
+        return append(from + length, dictionary.hashCode(otherId));
+    }
+
+    /**
+     * METHOD TO COMPARE TWO VALUES IN THE ORDER OF String.compareTo
+     * UTF-8 orders by code point, which differs from UTF-16 only between supplementary characters and
+     * characters above the surrogates, so code points are compared by their first UTF-16 unit first
+     */
+    int compare(int firstId, int secondId)
+    {
+        int first = offsets.get(firstId);
+        int firstEnd = offsets.get(firstId + 1);
+        int second = offsets.get(secondId);
+        int secondEnd = offsets.get(secondId + 1);
+        while (first < firstEnd && second < secondEnd)
+        {
+            int firstCodePoint = codePointAt(first);
+            int secondCodePoint = codePointAt(second);
+            if (firstCodePoint != secondCodePoint)
+            {
+                int comparison = Integer.compare(firstUnit(firstCodePoint), firstUnit(secondCodePoint));
+                return comparison != 0 ? comparison : Integer.compare(firstCodePoint, secondCodePoint);
+            }
+            first += utf8Length(first);
+            second += utf8Length(second);
+        }
+        return Integer.compare(firstEnd - first, secondEnd - second);
+    }
+
+    /**
+     * METHOD TO VIEW THE STORED BYTES, E.G. TO HAND THEM TO A TABLE
+     * @return bytes of every value, limited to the used part
+     */
+    ByteBuffer bytes()
+    {
+        ByteBuffer usedBytes = bytes.duplicate();
+        usedBytes.limit(offsets.get(size));
+        return usedBytes.slice();
+    }
+
+    /**
+     * @return start of every value and the end of the last, limited to the used part
+     */
+    IntBuffer offsets()
+    {
+        IntBuffer usedOffsets = offsets.duplicate();
+        usedOffsets.limit(size + 1);
+        return usedOffsets.slice();
+    }
+
+    private IntBuffer slots()
+    {
+        IntBuffer slots = this.slots;
+        if (slots == null)
+        {
+            slots = allocate(slotCount(size), Integer.BYTES).asIntBuffer();
+            for (int id = 0; id < size; id++)
+                insert(slots, id);
+            this.slots = slots;
+        }
+        return slots;
+    }
+
+    private int append(int end, int hashCode)
+    {
+        offsets.put(size + 1, end);
+        int id = size++;
+        IntBuffer slots = this.slots;
+        if (size * 2 > slots.limit())
+        {
+            slots = allocate(slots.limit() * 2, Integer.BYTES).asIntBuffer();
+            for (int index = 0; index < id; index++)
+                insert(slots, index);
+            this.slots = slots;
+        }
+        int mask = slots.limit() - 1;
+        int slot = slot(hashCode, mask);
+        while (slots.get(slot) != EMPTY_SLOT)
+            slot = (slot + 1) & mask;
+        slots.put(slot, id + 1);
+        return id;
+    }
+
+    private void insert(IntBuffer slots, int id)
+    {
+        int mask = slots.limit() - 1;
+        int slot = slot(hashCode(id), mask);
+        while (slots.get(slot) != EMPTY_SLOT)
+            slot = (slot + 1) & mask;
+        slots.put(slot, id + 1);
+    }
+
+    private void ensureCapacity(int length)
+    {
+        int end = Math.addExact(offsets.get(size), length);
+        if (end > bytes.capacity())
+        {
+            ByteBuffer grownBytes = allocate(Math.max(end, bytes.capacity() * 2), 1);
+            ByteBuffer usedBytes = bytes.duplicate();
+            usedBytes.clear();
+            grownBytes.put(usedBytes);
+            bytes = grownBytes;
+        }
+        if (size + 2 > offsets.capacity())
+        {
+            IntBuffer grownOffsets = allocate(offsets.capacity() * 2, Integer.BYTES).asIntBuffer();
+            IntBuffer usedOffsets = offsets.duplicate();
+            usedOffsets.clear();
+            grownOffsets.put(usedOffsets);
+            offsets = grownOffsets;
+        }
+    }
+
+    /**
+     * METHOD TO HASH A STORED VALUE LIKE String.hashCode, OVER ITS UTF-16 UNITS
+     */
+    private int hashCode(int id)
+    {
+        int hash = 0;
+        for (int index = offsets.get(id), end = offsets.get(id + 1); index < end; index += utf8Length(index))
+        {
+            int codePoint = codePointAt(index);
+            if (Character.isBmpCodePoint(codePoint))
+                hash = 31 * hash + codePoint;
+            else
+                hash = 31 * (31 * hash + Character.highSurrogate(codePoint)) + Character.lowSurrogate(codePoint);
+        }
+        return hash;
+    }
+
+    private boolean equals(int id, String value)
+    {
+        int index = offsets.get(id);
+        int end = offsets.get(id + 1);
+        for (int charIndex = 0; charIndex < value.length(); )
+        {
+            if (index >= end)
+                return false;
+            int codePoint = value.codePointAt(charIndex);
+            if (codePointAt(index) != codePoint)
+                return false;
+            index += utf8Length(index);
+            charIndex += Character.charCount(codePoint);
+        }
+        return index == end;
+    }
+
+    private boolean equals(int id, OffHeapDictionary dictionary, int otherId)
+    {
+        int from = offsets.get(id);
+        int length = offsets.get(id + 1) - from;
+        int otherFrom = dictionary.offsets.get(otherId);
+        if (dictionary.offsets.get(otherId + 1) - otherFrom != length)
+            return false;
+        for (int index = 0; index < length; index++)
+        {
+            if (bytes.get(from + index) != dictionary.bytes.get(otherFrom + index))
+                return false;
+        }
+        return true;
+    }
+
+    private int utf8Length(int index)
+    {
+        int lead = bytes.get(index) & 0xFF;
+        return lead < 0x80 ? 1 : lead < 0xE0 ? 2 : lead < 0xF0 ? 3 : 4;
+    }
+
+    private int codePointAt(int index)
+    {
+        int lead = bytes.get(index) & 0xFF;
+        if (lead < 0x80)
+            return lead;
+        if (lead < 0xE0)
+            return (lead & 0x1F) << 6 | bytes.get(index + 1) & 0x3F;
+        if (lead < 0xF0)
+            return (lead & 0x0F) << 12 | (bytes.get(index + 1) & 0x3F) << 6 | bytes.get(index + 2) & 0x3F;
+        return (lead & 0x07) << 18 | (bytes.get(index + 1) & 0x3F) << 12 | (bytes.get(index + 2) & 0x3F) << 6
+                | bytes.get(index + 3) & 0x3F;
+    }
+
+    private static int firstUnit(int codePoint)
+    {
+        return Character.isBmpCodePoint(codePoint) ? codePoint : Character.highSurrogate(codePoint);
+    }
+
+    private static int slotCount(int size)
+    {
+        return Integer.highestOneBit(Math.max(size, 4) * 2 - 1) << 1;
+    }
+
+    private static int slot(int hashCode, int mask)
+    {
+        int hash = hashCode * 0x9E3779B9;
+        return (hash ^ hash >>> 16) & mask;
+    }
+}
@@ -0,0 +1,250 @@
+package com.bridgelabz.indianstatecensusanalyser.services;
+
+import com.bridgelabz.indianstatecensusanalyser.model.CensusField;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusGrouping;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusStatistics;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Aggregates a numeric field of a CensusTable per group. Groups are resolved once per dictionary
+ * value, so the row pass only reads primitive columns; large tables are split across fork-join
+ * workers and the partial sums merged. Percentiles are read off the precomputed sort index of the
+ * field, which already holds every group in order, so nothing is sorted at query time.
+ */
+public class CensusAggregator
+{
+    private static final int MIN_CHUNK_ROWS = 1 << 16;
+
+    private final ForkJoinPool forkJoinPool;
+
+    public CensusAggregator()
+    {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public CensusAggregator(ForkJoinPool forkJoinPool)
+    {
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    /**
+     * METHOD TO AGGREGATE A NUMERIC FIELD PER GROUP
+     * @param censusTable provides the snapshot to aggregate
+     * @param field provides the numeric field
+     * @param grouping provides the group of every record
+     * @param percentiles provides the nearest rank percentiles to compute, each above 0 and at most 100
+     * @return statistics per group ordered by group, the null group last
+     */
+    public List<CensusStatistics> aggregate(CensusTable censusTable, CensusField field, CensusGrouping grouping,
+                                            double... percentiles)
+    {
+        if (field.ascending)
+            throw new IllegalArgumentException("Only numeric fields can be aggregated");
+        for (double percentile : percentiles)
+        {
+            if (!(percentile > 0 && percentile <= 100))
+                throw new IllegalArgumentException("Percentile must be above 0 and at most 100");
+        }
+        List<String> groupKeys = new ArrayList<>();
+        int[] idGroups = groupIds(censusTable, grouping, groupKeys);
+        int nullGroup = idGroups[censusTable.dictionarySize()];
+        GroupTotals groupTotals = new TotalsTask(censusTable, field, grouping.field, idGroups, nullGroup,
+                groupKeys.size(), 0, censusTable.size()).invokeIn(forkJoinPool);
+        double[][] percentileValues = percentileValues(censusTable, field, grouping.field, idGroups, nullGroup,
+                groupTotals.counts, percentiles);
+        List<CensusStatistics> statistics = new ArrayList<>();
+        for (int group = 0; group < groupKeys.size(); group++)
+        {
+            if (groupTotals.counts[group] == 0)
+                continue;
+            Map<Double, Double> groupPercentiles = new LinkedHashMap<>();
+            for (int index = 0; index < percentiles.length; index++)
+                groupPercentiles.put(percentiles[index], percentileValues[group][index]);
+            statistics.add(new CensusStatistics(groupKeys.get(group), groupTotals.counts[group],
+                    groupTotals.sums[group], groupTotals.mins[group], groupTotals.maxes[group], groupPercentiles));
+        }
+        statistics.sort(Comparator.comparing(censusStatistics -> censusStatistics.group,
+                Comparator.nullsLast(Comparator.<String>naturalOrder())));
+        return statistics;
+    }
+
+    /**
+     * METHOD TO NUMBER THE GROUPS OF EVERY DICTIONARY VALUE
+     * @param groupKeys receives the key of every group number
+     * @return group number per dictionary id, with the group of a missing value at index dictionarySize
+     */
+    private static int[] groupIds(CensusTable censusTable, CensusGrouping grouping, List<String> groupKeys)
+    {
+        Map<String, Integer> groupNumbers = new HashMap<>();
+        int[] idGroups = new int[censusTable.dictionarySize() + 1];
+        for (int id = 0; id <= censusTable.dictionarySize(); id++)
+        {
+            String value = id == censusTable.dictionarySize() ? null : censusTable.dictionaryValue(id);
+            String groupKey = grouping.keyFunction.apply(value);
+            Integer group = groupNumbers.get(groupKey);
+            if (group == null)
+            {
+                group = groupKeys.size();
+                groupNumbers.put(groupKey, group);
+                groupKeys.add(groupKey);
+            }
+            idGroups[id] = group;
+        }
+        return idGroups;
+    }
+
+    private static int groupOf(CensusTable censusTable, CensusField groupField, int[] idGroups, int nullGroup, int row)
+    {
+        int id = groupField == CensusField.STATE ? censusTable.stateId(row) : censusTable.stateCodeId(row);
+        return id == CensusTable.NO_VALUE ? nullGroup : idGroups[id];
+    }
+
+    private static double valueOf(CensusTable censusTable, CensusField field, int row)
+    {
+        switch (field)
+        {
+            case POPULATION:
+                return censusTable.population(row);
+            case POPULATION_DENSITY:
+                return censusTable.populationDensity(row);
+            default:
+                return censusTable.totalArea(row);
+        }
+    }
+
+    /**
+     * METHOD TO PICK NEAREST RANK PERCENTILES OF EVERY GROUP FROM THE SORT INDEX
+     * The index is in descending order, so the k-th smallest of a group of n is its (n - k)-th row in the index
+     * @return values per group, one per requested percentile
+     */
+    private static double[][] percentileValues(CensusTable censusTable, CensusField field, CensusField groupField,
+                                               int[] idGroups, int nullGroup, int[] counts, double[] percentiles)
+    {
+        double[][] percentileValues = new double[counts.length][percentiles.length];
+        if (percentiles.length == 0)
+            return percentileValues;
+        int[][] targetRanks = new int[counts.length][percentiles.length];
+        for (int group = 0; group < counts.length; group++)
+        {
+            for (int index = 0; index < percentiles.length; index++)
+                targetRanks[group][index] = counts[group]
+                        - Math.max(1, (int) Math.ceil(percentiles[index] / 100 * counts[group]));
+        }
+        int[] seen = new int[counts.length];
+        for (int rank = 0; rank < censusTable.size(); rank++)
+        {
+            int row = censusTable.sortedRow(field, rank);
+            int group = groupOf(censusTable, groupField, idGroups, nullGroup, row);
+            for (int index = 0; index < percentiles.length; index++)
+            {
+                if (targetRanks[group][index] == seen[group])
+                    percentileValues[group][index] = valueOf(censusTable, field, row);
+            }
+            seen[group]++;
+        }
+        return percentileValues;
+    }
+
+    private static class GroupTotals
+    {
+        private final int[] counts;
+        private final double[] sums;
+        private final double[] mins;
+        private final double[] maxes;
+
+        private GroupTotals(int groups)
+        {
+            counts = new int[groups];
+            sums = new double[groups];
+            mins = new double[groups];
+            maxes = new double[groups];
+            Arrays.fill(mins, Double.POSITIVE_INFINITY);
+            Arrays.fill(maxes, Double.NEGATIVE_INFINITY);
+        }
+
+        private GroupTotals merge(GroupTotals other)
+        {
+            for (int group = 0; group < counts.length; group++)
+            {
+                counts[group] += other.counts[group];
+                sums[group] += other.sums[group];
+                mins[group] = Math.min(mins[group], other.mins[group]);
+                maxes[group] = Math.max(maxes[group], other.maxes[group]);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Sums a range of rows, splitting ranges above the minimum chunk size in halves.
+     */
+    private static class TotalsTask extends RecursiveTask<GroupTotals>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final CensusTable censusTable;
+        private final CensusField field;
+        private final CensusField groupField;
+        private final int[] idGroups;
+        private final int nullGroup;
+        private final int groups;
+        private final int from;
+        private final int to;
+
+        private TotalsTask(CensusTable censusTable, CensusField field, CensusField groupField, int[] idGroups,
+                           int nullGroup, int groups, int from, int to)
+        {
+            this.censusTable = censusTable;
+            this.field = field;
+            this.groupField = groupField;
+            this.idGroups = idGroups;
+            this.nullGroup = nullGroup;
+            this.groups = groups;
+            this.from = from;
+            this.to = to;
+        }
+
+        private GroupTotals invokeIn(ForkJoinPool forkJoinPool)
+        {
+            return to - from <= MIN_CHUNK_ROWS ? compute() : forkJoinPool.invoke(this);
+        }
+
+        @Override
+        protected GroupTotals compute()
+        {
+            if (to - from > MIN_CHUNK_ROWS)
+            {
+                int middle = (from + to) >>> 1;
+                TotalsTask later = new TotalsTask(censusTable, field, groupField, idGroups, nullGroup, groups,
+                        middle, to);
+                later.fork();
+                GroupTotals earlier = new TotalsTask(censusTable, field, groupField, idGroups, nullGroup, groups,
+                        from, middle).compute();
+                return earlier.merge(later.join());
+            }
+            GroupTotals groupTotals = new GroupTotals(groups);
+            for (int row = from; row < to; row++)
+            {
+                int group = groupOf(censusTable, groupField, idGroups, nullGroup, row);
+                double value = valueOf(censusTable, field, row);
+                groupTotals.counts[group]++;
+                groupTotals.sums[group] += value;
+                if (value < groupTotals.mins[group])
+                    groupTotals.mins[group] = value;
+                if (value > groupTotals.maxes[group])
+                    groupTotals.maxes[group] = value;
+            }
+            return groupTotals;
+        }
+    }
+}
@@ -1,15 +1,37 @@
 package com.bridgelabz.indianstatecensusanalyser.services;
 
 import com.bridgelabz.indianstatecensusanalyser.exception.CensusAnalyserException;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusCursor;
 import com.bridgelabz.indianstatecensusanalyser.model.CensusDAO;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusDiff;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusField;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusGrouping;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusPredicate;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusStatistics;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusTable;
 import com.bridgelabz.indianstatecensusanalyser.utility.CensusAdapterFactory;
+import com.bridgelabz.indianstatecensusanalyser.utility.CensusExternalSorter;
+import com.bridgelabz.indianstatecensusanalyser.utility.CensusFileCache;
+import com.bridgelabz.indianstatecensusanalyser.utility.CensusJoin;
+import com.bridgelabz.indianstatecensusanalyser.utility.CensusJsonWriter;
+import com.bridgelabz.indianstatecensusanalyser.utility.CensusMetrics;
+import com.bridgelabz.indianstatecensusanalyser.utility.CensusResultCache;
+import com.bridgelabz.indianstatecensusanalyser.utility.CensusSnapshotFile;
 import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 
-import static java.util.stream.Collectors.toCollection;
-
+/**
+ * Loaded census data is an immutable CensusTable published through an atomic reference. Every query
+ * reads the reference once and works on that snapshot, so readers never block and never see a
+ * reload half done, while a reload builds its table off to the side and swaps it in. With OFF_HEAP
+ * storage the published table lives in direct buffers, or in the mapping of a loaded snapshot file,
+ * and sorting, lookups and exports read it in place.
+ */
 public class CensusAnalyser
 {
     public enum Country
@@ -17,15 +39,80 @@ public class CensusAnalyser
         INDIA, US
     }
 
-    private Country country;
-    Map<String, CensusDAO> censusMap;
+    public enum LoaderMode
+    {
+        OPEN_CSV, MAPPED, PARALLEL
+    }
+
+    public enum Storage
+    {
+        HEAP, OFF_HEAP
+    }
+
+    private final String countryId;
+    private final AtomicReference<CensusTable> censusTable = new AtomicReference<>();
+    private final CensusRegistry censusRegistry;
+    private final CensusFileCache censusFileCache = new CensusFileCache();
+    private final CensusAggregator censusAggregator = new CensusAggregator();
+    private final CensusResultCache resultCache;
+    private final Storage storage;
+    private CensusTable reloadedTable;
+    private String reloadKey;
     private static final String SORTED_BY_POPULATION_JSON_PATH = "./IndiaStateCensusSortedByPopulation.json";
     private static final String SORTED_BY_POPULATION_DENSITY_JSON_PATH = "./IndiaStateCensusSortedByDensity.json";
     private static final String SORTED_BY_AREA_JSON_PATH = "./IndiaStateCensusSortedByArea.json";
+    private static final Gson GSON = new Gson();
 
     public CensusAnalyser(Country country)
     {
-        this.country = country;
+        this(country, new CensusRegistry());
+    }
+
+    public CensusAnalyser(Country country, CensusRegistry censusRegistry)
+    {
+        this(country, censusRegistry, new CensusResultCache());
+    }
+
+    public CensusAnalyser(Country country, CensusRegistry censusRegistry, CensusResultCache resultCache)
+    {
+        this(country, censusRegistry, resultCache, Storage.HEAP);
+    }
+
+    /**
+     * @param storage provides where loaded tables are kept, OFF_HEAP to parse loaded files straight
+     *                into direct buffers so the heap does not grow with the data
+     */
+    public CensusAnalyser(Country country, CensusRegistry censusRegistry, CensusResultCache resultCache,
+                          Storage storage)
+    {
+        this(country.name(), censusRegistry, resultCache, storage);
+    }
+
+    /**
+     * @param countryId provides the id of the registered CensusAdapter whose records this analyser returns
+     * @param storage provides where loaded tables are kept
+     */
+    public CensusAnalyser(String countryId, CensusRegistry censusRegistry, CensusResultCache resultCache,
+                          Storage storage)
+    {
+        this.countryId = countryId;
+        this.censusRegistry = censusRegistry;
+        this.resultCache = resultCache;
+        this.storage = storage;
+    }
+
+    public CensusRegistry getCensusRegistry()
+    {
+        return censusRegistry;
+    }
+
+    /**
+     * METHOD TO GET THE CACHE OF RENDERED QUERY RESULTS, E.G. FOR ITS HIT, MISS AND EVICTION COUNTS
+     * @return result cache of this analyser
+     */
+    public CensusResultCache getResultCache()
+    {
+        return resultCache;
     }
 
     /**
@@ -38,31 +125,389 @@ public class CensusAnalyser
     public int loadCensusData(Country country, char separator, String... csvFilePath)
             throws CensusAnalyserException
     {
-        censusMap = CensusAdapterFactory.getCensusDataObject(country, separator, csvFilePath);
-        return censusMap.size();
+        return this.loadCensusData(country.name(), separator, csvFilePath);
+    }
+
+    /**
+     * METHOD TO LOAD CENSUS DATA OF A COUNTRY GIVEN BY ITS ADAPTER ID
+     * @param countryId provides the id of the registered CensusAdapter reading the files
+     * @param csvFilePath provides the path of file
+     * @param separator provides the seperator for records in csv file
+     * @return number of records
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public int loadCensusData(String countryId, char separator, String... csvFilePath)
+            throws CensusAnalyserException
+    {
+        return this.loadCensusData(countryId, LoaderMode.OPEN_CSV, separator, csvFilePath);
+    }
+
+    /**
+     * METHOD TO LOAD CENSUS DATA WITH THE GIVEN LOADER
+     * @param loaderMode provides the csv loader, OpenCSV bean iterator, memory mapped tokenizer or parallel chunks
+     * @param csvFilePath provides the path of file
+     * @param separator provides the seperator for records in csv file
+     * @return number of records
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public int loadCensusData(Country country, LoaderMode loaderMode, char separator, String... csvFilePath)
+            throws CensusAnalyserException
+    {
+        return this.loadCensusData(country.name(), loaderMode, separator, csvFilePath);
+    }
+
+    /**
+     * METHOD TO LOAD CENSUS DATA OF A COUNTRY GIVEN BY ITS ADAPTER ID WITH THE GIVEN LOADER
+     * @param countryId provides the id of the registered CensusAdapter reading the files
+     * @param loaderMode provides the csv loader, OpenCSV bean iterator, memory mapped tokenizer or parallel chunks
+     * @param csvFilePath provides the path of file
+     * @param separator provides the seperator for records in csv file
+     * @return number of records
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public int loadCensusData(String countryId, LoaderMode loaderMode, char separator, String... csvFilePath)
+            throws CensusAnalyserException
+    {
+        return publish(loadCensusTable(countryId, new CensusJoin(loaderMode, separator), csvFilePath));
+    }
+
+    /**
+     * METHOD TO LOAD CENSUS DATA OF THE COUNTRY OF THIS ANALYSER WITH THE GIVEN LOADER
+     * @param loaderMode provides the csv loader
+     * @param csvFilePath provides the path of file
+     * @param separator provides the seperator for records in csv file
+     * @return number of records
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public int loadCensusData(LoaderMode loaderMode, char separator, String... csvFilePath)
+            throws CensusAnalyserException
+    {
+        return publish(loadCensusTable(countryId, new CensusJoin(loaderMode, separator), csvFilePath));
+    }
+
+    /**
+     * METHOD TO LOAD ONLY THE CENSUS RECORDS MATCHING A PREDICATE
+     * The predicate is pushed down into the loader, rows that cannot match are dropped while parsing
+     * @param loaderMode provides the csv loader
+     * @param censusPredicate provides the conditions every loaded record must meet
+     * @param csvFilePath provides the path of file
+     * @param separator provides the seperator for records in csv file
+     * @return number of records
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public int loadCensusData(Country country, LoaderMode loaderMode, char separator, CensusPredicate censusPredicate,
+                              String... csvFilePath) throws CensusAnalyserException
+    {
+        return this.loadCensusData(country.name(), loaderMode, separator, censusPredicate, csvFilePath);
+    }
+
+    /**
+     * METHOD TO LOAD ONLY THE CENSUS RECORDS MATCHING A PREDICATE FOR A COUNTRY GIVEN BY ITS ADAPTER ID
+     * @param countryId provides the id of the registered CensusAdapter reading the files
+     * @param loaderMode provides the csv loader
+     * @param censusPredicate provides the conditions every loaded record must meet
+     * @param csvFilePath provides the path of file
+     * @param separator provides the seperator for records in csv file
+     * @return number of records
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public int loadCensusData(String countryId, LoaderMode loaderMode, char separator,
+                              CensusPredicate censusPredicate, String... csvFilePath) throws CensusAnalyserException
+    {
+        return publish(loadCensusTable(countryId, new CensusJoin(loaderMode, separator).filter(censusPredicate),
+                csvFilePath));
+    }
+
+    /**
+     * METHOD TO LOAD CENSUS DATA AND JOIN SIDE FILES ONTO IT
+     * Join statistics of the load are available from the given CensusJoin
+     * @param censusJoin provides the loader, separator and side files keyed by state or state code
+     * @param csvFilePath provides the path of census file
+     * @return number of records
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public int loadCensusData(Country country, CensusJoin censusJoin, String csvFilePath)
+            throws CensusAnalyserException
+    {
+        return this.loadCensusData(country.name(), censusJoin, csvFilePath);
+    }
+
+    /**
+     * METHOD TO LOAD CENSUS DATA OF A COUNTRY GIVEN BY ITS ADAPTER ID AND JOIN SIDE FILES ONTO IT
+     * @param countryId provides the id of the registered CensusAdapter reading the files
+     * @param censusJoin provides the loader, separator and side files keyed by state or state code
+     * @param csvFilePath provides the path of census file
+     * @return number of records
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public int loadCensusData(String countryId, CensusJoin censusJoin, String csvFilePath)
+            throws CensusAnalyserException
+    {
+        return publish(loadCensusTable(countryId, censusJoin, csvFilePath));
+    }
+
+    /**
+     * METHOD TO RELOAD CENSUS DATA INCREMENTALLY
+     * Nothing is parsed while every file keeps the size, modification time and content hash it had at
+     * the previous reload. Otherwise only the changed files are parsed, the join is rebuilt from the
+     * records cached for the others, compared with the published table and only the added, updated and
+     * removed states are applied to it and its sort indexes instead of rebuilding them. With OFF_HEAP
+     * storage the census file is streamed again, so its records are never kept on the heap, and the new
+     * table is built off the heap instead and compared with the published one on dictionary ids
+     * @param loaderMode provides the csv loader
+     * @param csvFilePath provides the path of file
+     * @param separator provides the seperator for records in csv file
+     * @return row level changes applied to the loaded data
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public CensusDiff reloadCensusData(Country country, LoaderMode loaderMode, char separator,
+                                       String... csvFilePath) throws CensusAnalyserException
+    {
+        return this.reloadCensusData(country.name(), loaderMode, separator, csvFilePath);
+    }
+
+    /**
+     * METHOD TO RELOAD CENSUS DATA OF A COUNTRY GIVEN BY ITS ADAPTER ID INCREMENTALLY
+     * @param countryId provides the id of the registered CensusAdapter reading the files
+     * @param loaderMode provides the csv loader
+     * @param csvFilePath provides the path of file
+     * @param separator provides the seperator for records in csv file
+     * @return row level changes applied to the loaded data
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public synchronized CensusDiff reloadCensusData(String countryId, LoaderMode loaderMode, char separator,
+                                                    String... csvFilePath) throws CensusAnalyserException
+    {
+        String reloadKey = String.join("|", countryId, loaderMode.name(), String.valueOf(separator),
+                String.join("|", csvFilePath));
+        CensusFileCache.Fingerprints fingerprints = censusFileCache.fingerprint(csvFilePath);
+        CensusTable loadedTable = censusTable.get();
+        if (loadedTable != null && loadedTable == reloadedTable && reloadKey.equals(this.reloadKey)
+                && censusFileCache.isLoaded(fingerprints))
+            return CensusDiff.EMPTY;
+        CensusJoin censusJoin = new CensusJoin(loaderMode, separator).fileCache(censusFileCache);
+        CensusDiff censusDiff;
+        if (storage == Storage.OFF_HEAP)
+        {
+            CensusTable newerTable = loadCensusTable(countryId, censusJoin, csvFilePath);
+            censusDiff = CensusDiff.between(loadedTable, newerTable);
+            reloadedTable = censusDiff.isEmpty() && loadedTable != null ? loadedTable : newerTable;
+        }
+        else
+        {
+            Map<String, CensusDAO> censusMap = CensusAdapterFactory.getCensusDataObject(countryId, censusJoin,
+                    csvFilePath);
+            censusDiff = CensusDiff.between(loadedTable, censusMap.values());
+            reloadedTable = stored(loadedTable == null ? CensusTable.of(censusMap.values())
+                    : loadedTable.apply(censusDiff));
+        }
+        publish(reloadedTable);
+        censusFileCache.loaded(fingerprints);
+        censusFileCache.retain(csvFilePath);
+        this.reloadKey = reloadKey;
+        return censusDiff;
+    }
+
+    /**
+     * METHOD TO LOAD CENSUS DATA INTO A NEW TABLE IN THE STORAGE OF THIS ANALYSER WITHOUT PUBLISHING IT
+     * With OFF_HEAP storage the records are streamed into an off heap table as they are parsed, so
+     * neither a map of the records nor a heap table is built on the way
+     * @param countryId provides the id of the adapter reading the files
+     * @param censusJoin provides the loader, separator, side files and filter
+     * @param csvFilePath provides the path of file, optionally followed by the state code file
+     * @return loaded table
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    private CensusTable loadCensusTable(String countryId, CensusJoin censusJoin, String... csvFilePath)
+            throws CensusAnalyserException
+    {
+        if (storage == Storage.OFF_HEAP)
+        {
+            CensusTable.OffHeapBuilder offHeapBuilder = new CensusTable.OffHeapBuilder(0);
+            CensusAdapterFactory.getCensusAdapter(countryId).forEachCensusRecord(censusJoin, offHeapBuilder::add,
+                    csvFilePath);
+            return offHeapBuilder.build();
+        }
+        return CensusTable.of(CensusAdapterFactory.getCensusDataObject(countryId, censusJoin, csvFilePath).values());
+    }
+
+    private int publish(CensusTable loadedTable)
+    {
+        CensusTable storedTable = stored(loadedTable);
+        censusTable.set(storedTable);
+        resultCache.invalidate();
+        return storedTable.size();
+    }
+
+    /**
+     * METHOD TO MOVE A LOADED TABLE TO THE STORAGE OF THIS ANALYSER
+     * Tables loaded from files are already built in it, this only copies tables restored on the heap
+     * @return the table itself on the heap, or its off heap copy
+     */
+    private CensusTable stored(CensusTable loadedTable)
+    {
+        return storage == Storage.OFF_HEAP ? loadedTable.toOffHeap() : loadedTable;
+    }
+
+    /**
+     * METHOD TO IDENTIFY THE CONTENT OF A WRITTEN FILE BY ITS SIZE AND MODIFICATION TIME
+     * @return stamp of the file, null when it does not exist
+     */
+    private static String fileStamp(String filePath)
+    {
+        File file = new File(filePath);
+        return file.isFile() ? file.length() + ":" + file.lastModified() : null;
+    }
+
+    private String resultKey(String query, Object... arguments)
+    {
+        StringBuilder resultKey = new StringBuilder(countryId).append('|').append(query);
+        for (Object argument : arguments)
+            resultKey.append('|').append(argument);
+        return resultKey.toString();
+    }
+
+    /**
+     * METHOD TO SAVE LOADED CENSUS DATA AS A BINARY SNAPSHOT
+     * @param snapshotFilePath provides the path of snapshot file, replaced atomically if present
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public void saveSnapshot(String snapshotFilePath) throws CensusAnalyserException
+    {
+        CensusSnapshotFile.save(censusTable.get(), countryId, snapshotFilePath);
+    }
+
+    /**
+     * METHOD TO LOAD CENSUS DATA FROM A BINARY SNAPSHOT INSTEAD OF CSV FILES
+     * With OFF_HEAP storage the snapshot is memory mapped and read in place instead of copied
+     * @param snapshotFilePath provides the path of snapshot file saved for the country of this analyser
+     * @return number of records
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public int loadSnapshot(String snapshotFilePath) throws CensusAnalyserException
+    {
+        return publish(storage == Storage.OFF_HEAP ? CensusSnapshotFile.map(snapshotFilePath, countryId)
+                : CensusSnapshotFile.open(snapshotFilePath, countryId));
     }
 
     /**
      * METHOD TO CREATE JSON FILE FOR INDIAN STATE CENSUS DATA
+     * The file is not written again while it still holds the current data
      * @return List if Json file
      */
-    private List<CensusDAO> jsonFileCreater(String sortedCensusData, String filePath)
+    private List<CensusDAO> jsonFileCreater(CensusField field, String filePath)
             throws CensusAnalyserException
     {
-        BufferedReader bufferedReader;
-        try(FileWriter writer = new FileWriter(filePath))
+        CensusTable censusTable = this.censusTable.get();
+        String fileKey = resultKey("file", field, filePath);
+        String fileStamp = fileStamp(filePath);
+        if (fileStamp == null || !fileStamp.equals(resultCache.get(fileKey, censusTable)))
         {
-            writer.write(sortedCensusData);
-            bufferedReader = new BufferedReader(new FileReader(filePath));
+            try (Writer writer = new BufferedWriter(new FileWriter(filePath)))
+            {
+                this.writeSortedCensusData(censusTable, field, writer);
+            }
+            catch (IOException | NullPointerException e)
+            {
+                throw new CensusAnalyserException(e.getMessage(),
+                        CensusAnalyserException.ExceptionType.CSV_FILE_PROBLEM);
+            }
+            resultCache.put(fileKey, censusTable, fileStamp(filePath));
         }
-        catch (IOException | NullPointerException e)
+        List<CensusDAO> censusCSVList = new ArrayList<>(censusTable.size());
+        for (int rank = 0; rank < censusTable.size(); rank++)
+            censusCSVList.add(censusTable.getCensusDAO(censusTable.sortedRow(field, rank)));
+        return censusCSVList;
+    }
+
+    /**
+     * METHOD TO STREAM SORTED STATE CENSUS DATA AS JSON TO AN OUTPUT STREAM
+     * @param fieldName provides field name for sorting
+     * @param outputStream receives UTF-8 json, flushed but left open
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public void writeSortedCensusData(String fieldName, OutputStream outputStream) throws CensusAnalyserException
+    {
+        this.writeSortedCensusData(fieldName,
+                new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * METHOD TO STREAM SORTED STATE CENSUS DATA AS JSON TO A WRITER
+     * Records are written one by one through the sort index, the output matches getSortedCensusData
+     * @param fieldName provides field name for sorting
+     * @param writer receives the json, flushed but left open
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public void writeSortedCensusData(String fieldName, Writer writer) throws CensusAnalyserException
+    {
+        this.writeSortedCensusData(censusTable.get(), CensusField.of(fieldName), writer);
+    }
+
+    /**
+     * METHOD TO SORT A CENSUS FILE LARGER THAN THE HEAP AND STREAM IT AS JSON TO A WRITER
+     * The file is not loaded into this analyser, its sorted runs are spilled to temporary files and
+     * merged straight into the writer. Unlike loaded data, every row is kept, ties are broken by state
+     * and rows of the same state keep file order
+     * @param fieldName provides field name for sorting
+     * @param externalSorter provides the memory budget, run size and directory of the spilled runs
+     * @param separator provides the seperator for records in csv file
+     * @param csvFilePath provides the path of census file
+     * @param writer receives the json, flushed but left open
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public void writeExternallySortedCensusData(String fieldName, CensusExternalSorter externalSorter,
+                                                char separator, String csvFilePath, Writer writer)
+            throws CensusAnalyserException
+    {
+        CensusField field = CensusField.of(fieldName);
+        if (field == null)
+        {
+            this.writeCensusData(null, writer);
+            return;
+        }
+        try (CensusCursor censusCursor = externalSorter.sort(countryId, separator, field, csvFilePath))
+        {
+            this.writeCensusData(censusCursor, writer);
+        }
+    }
+
+    private void writeSortedCensusData(CensusTable censusTable, CensusField field, Writer writer)
+            throws CensusAnalyserException
+    {
+        this.writeCensusData(field == null ? null : censusTable.cursor(field, false), writer);
+    }
+
+    /**
+     * METHOD TO WRITE THE RECORDS OF A CURSOR AS A JSON ARRAY OF COUNTRY SPECIFIC RECORDS
+     * @param censusCursor provides the records in order, null to write null json
+     * @param writer receives the json, flushed but left open
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    private void writeCensusData(CensusCursor censusCursor, Writer writer) throws CensusAnalyserException
+    {
+        CensusJsonWriter censusJsonWriter = new CensusJsonWriter(writer);
+        CensusMetrics.Timer timer = CensusMetrics.start(CensusMetrics.Stage.WRITE, countryId);
+        long rows = 0;
+        try
+        {
+            if (censusCursor == null)
+                censusJsonWriter.writeNull();
+            else
+            {
+                censusJsonWriter.beginArray();
+                for (; censusCursor.hasNext(); rows++)
+                    censusJsonWriter.write(censusCursor.next().getCensusDTO(countryId));
+                censusJsonWriter.endArray();
+            }
+            censusJsonWriter.flush();
+            timer.stop(rows, 0);
+        }
+        catch (IOException | UncheckedIOException | JsonIOException e)
         {
             throw new CensusAnalyserException(e.getMessage(),
                     CensusAnalyserException.ExceptionType.CSV_FILE_PROBLEM);
         }
-        CensusDAO[] stateCensusMap = new Gson().fromJson(bufferedReader, CensusDAO[].class);
-        List<CensusDAO> censusCSVList = Arrays.asList(stateCensusMap);
-        return censusCSVList;
     }
 
     /**
@@ -72,60 +517,218 @@ public class CensusAnalyser
      */
     public String getSortedCensusData(String fieldName)
     {
-        Comparator<CensusDAO> daoComparator;
-        ArrayList censusList = null;
-        switch (fieldName)
+        CensusTable censusTable = this.censusTable.get();
+        return resultCache.get(resultKey("sorted", fieldName), censusTable, () -> {
+            CensusField field = CensusField.of(fieldName);
+            List<Object> censusList = field == null ? null : getSortedCensusList(censusTable, field);
+            String sortedCensusData = toJson(fieldName, censusList);
+            return sortedCensusData;
+        });
+    }
+
+    /**
+     * METHOD TO STREAM SORTED STATE CENSUS DATA RECORD BY RECORD
+     * The cursor reads the sort index of the data loaded when it was opened, records are built as they
+     * are pulled, so the first ones are available without sorting or serializing the rest
+     * @param fieldName provides field name for sorting
+     * @return cursor in the sorted order of the field, null for an unknown field
+     */
+    public CensusCursor getSortedCensusCursor(String fieldName)
+    {
+        CensusField field = CensusField.of(fieldName);
+        return field == null ? null : censusTable.get().cursor(field, false);
+    }
+
+    /**
+     * METHOD TO GET ONE PAGE OF SORTED STATE CENSUS DATA
+     * @param fieldName provides field name for sorting
+     * @param offset provides the number of sorted records to skip
+     * @param limit provides the maximum number of records in the page
+     * @return sorted data of the page
+     */
+    public String getSortedCensusData(String fieldName, int offset, int limit)
+    {
+        CensusTable censusTable = this.censusTable.get();
+        return resultCache.get(resultKey("page", fieldName, offset, limit), censusTable, () -> {
+            CensusField field = CensusField.of(fieldName);
+            List<Object> censusList = null;
+            if (field != null)
+            {
+                int fromRank = Math.min(Math.max(offset, 0), censusTable.size());
+                int toRank = (int) Math.min((long) fromRank + Math.max(limit, 0), censusTable.size());
+                censusList = getSortedCensusList(censusTable, field, fromRank, toRank, false);
+            }
+            return toJson(fieldName, censusList);
+        });
+    }
+
+    /**
+     * METHOD TO GET THE FIRST RECORDS IN THE SORTED ORDER OF A FIELD
+     * @param fieldName provides field name for sorting
+     * @param count provides the number of records
+     * @return top records, highest first for numeric fields
+     */
+    public String getTopCensusData(String fieldName, int count)
+    {
+        return this.getSortedCensusData(fieldName, 0, count);
+    }
+
+    /**
+     * METHOD TO GET THE LAST RECORDS IN THE SORTED ORDER OF A FIELD
+     * @param fieldName provides field name for sorting
+     * @param count provides the number of records
+     * @return bottom records, starting from the very last, lowest first for numeric fields
+     */
+    public String getBottomCensusData(String fieldName, int count)
+    {
+        CensusTable censusTable = this.censusTable.get();
+        return resultCache.get(resultKey("bottom", fieldName, count), censusTable, () -> {
+            CensusField field = CensusField.of(fieldName);
+            List<Object> censusList = null;
+            if (field != null)
+                censusList = getSortedCensusList(censusTable, field, 0,
+                        Math.min(Math.max(count, 0), censusTable.size()), true);
+            return toJson(fieldName, censusList);
+        });
+    }
+
+    /**
+     * METHOD TO LOOK UP THE LOADED CENSUS DATA OF ONE STATE
+     * The state is found through the open addressing index of the table, the lookup itself allocates nothing
+     * @param state provides the state name
+     * @return country specific record, null when the state is not loaded
+     */
+    public Object getStateCensusData(String state)
+    {
+        CensusTable censusTable = this.censusTable.get();
+        int row = censusTable.rowOfState(state);
+        return row == CensusTable.NO_VALUE ? null : censusTable.getCensusDAO(row).getCensusDTO(countryId);
+    }
+
+    /**
+     * METHOD TO LOOK UP THE STATE A STATE CODE BELONGS TO
+     * @param stateCode provides the state code
+     * @return state name, null when no loaded state has the code
+     */
+    public String getStateOfStateCode(String stateCode)
+    {
+        CensusTable censusTable = this.censusTable.get();
+        int row = censusTable.rowOfStateCode(stateCode);
+        return row == CensusTable.NO_VALUE ? null : censusTable.state(row);
+    }
+
+    /**
+     * METHOD TO GET THE LOADED RECORDS MATCHING A PREDICATE IN THE SORTED ORDER OF A FIELD
+     * Matching rows are found by scanning the primitive columns, then read off the sort index
+     * @param fieldName provides field name for sorting
+     * @param censusPredicate provides the conditions the records must meet
+     * @return json of the matching records, null json for an unknown field
+     */
+    public String getFilteredCensusData(String fieldName, CensusPredicate censusPredicate)
+    {
+        CensusTable censusTable = this.censusTable.get();
+        return resultCache.get(resultKey("filtered", fieldName, censusPredicate), censusTable,
+                () -> getFilteredCensusData(censusTable, CensusField.of(fieldName), censusPredicate));
+    }
+
+    private String getFilteredCensusData(CensusTable censusTable, CensusField field, CensusPredicate censusPredicate)
+    {
+        ArrayList<Object> censusList = null;
+        if (field != null)
         {
-            case "state":
-                daoComparator = Comparator.comparing(census -> census.state );
-                censusList = getSortedInAccendindOrder(daoComparator);
-                break;
-            case "stateCode":
-                daoComparator = Comparator.comparing(census -> census.stateCode );
-                censusList = getSortedInAccendindOrder(daoComparator);
-                break;
-            case "population":
-                daoComparator = Comparator.comparing(census -> census.population );
-                censusList = getSortedInDescendingOrder(daoComparator);
-                break;
-            case "populationDensity":
-                daoComparator = Comparator.comparing(census -> census.populationDensity );
-                censusList = getSortedInDescendingOrder(daoComparator);
-                break;
-            case "totalArea":
-                daoComparator = Comparator.comparing(census -> census.totalArea );
-                censusList = getSortedInDescendingOrder(daoComparator);
-                break;
+            CensusMetrics.Timer timer = CensusMetrics.start(CensusMetrics.Stage.QUERY, String.valueOf(censusPredicate));
+            int[] rows = censusPredicate.select(censusTable);
+            timer.stop(rows.length, 0);
+            boolean[] selected = new boolean[censusTable.size()];
+            for (int row : rows)
+                selected[row] = true;
+            censusList = new ArrayList<>(rows.length);
+            for (int rank = 0; rank < censusTable.size() && censusList.size() < rows.length; rank++)
+            {
+                int row = censusTable.sortedRow(field, rank);
+                if (selected[row])
+                    censusList.add(censusTable.getCensusDAO(row).getCensusDTO(countryId));
+            }
         }
-        String sortedCensusData = new Gson().toJson(censusList);
-        return sortedCensusData;
+        return toJson(String.valueOf(censusPredicate), censusList);
     }
 
     /**
-     * METHOD TO SORT STATE CENSUS DATA IN ACCENDING ORDER
-     * @param daoComparator provides data in Comparator format
-     * @return sorted list
+     * METHOD TO AGGREGATE A NUMERIC FIELD OF LOADED CENSUS DATA PER GROUP
+     * @param fieldName provides numeric field name to aggregate
+     * @param grouping provides the group of every record, CensusGrouping.ALL for one group
+     * @param percentiles provides the nearest rank percentiles to compute
+     * @return count, sum, average, min, max and percentiles per group, null for an unknown or text field
      */
-    private ArrayList<CensusDAO> getSortedInAccendindOrder(Comparator<CensusDAO> daoComparator)
+    public List<CensusStatistics> getCensusStatistics(String fieldName, CensusGrouping grouping,
+                                                      double... percentiles)
     {
-        ArrayList censusList = censusMap.values().stream()
-                .sorted(daoComparator)
-                .map(censusDAO -> censusDAO.getCensusDTO(country))
-                .collect(toCollection(ArrayList::new));
-        return censusList;
+        CensusField field = CensusField.of(fieldName);
+        if (field == null || field.ascending)
+            return null;
+        CensusMetrics.Timer timer = CensusMetrics.start(CensusMetrics.Stage.QUERY, fieldName);
+        List<CensusStatistics> statistics = censusAggregator.aggregate(censusTable.get(), field, grouping,
+                percentiles);
+        timer.stop(statistics.size(), 0);
+        return statistics;
     }
 
     /**
-     * METHOD TO SORT STATE CENSUS DATA IN DESCENDING ORDER
-     * @param daoComparator provides data in Comparator format
-     * @return sorted list
+     * METHOD TO AGGREGATE A NUMERIC FIELD OF LOADED CENSUS DATA PER GROUP AS JSON
+     * @param fieldName provides numeric field name to aggregate
+     * @param grouping provides the group of every record, CensusGrouping.ALL for one group
+     * @param percentiles provides the nearest rank percentiles to compute
+     * @return json of the statistics per group, null json for an unknown or text field
      */
-    private ArrayList<CensusDAO> getSortedInDescendingOrder(Comparator<CensusDAO> daoComparator)
+    public String getAggregatedCensusData(String fieldName, CensusGrouping grouping, double... percentiles)
     {
-        ArrayList censusList = censusMap.values().stream()
-                .sorted(daoComparator.reversed())
-                .map(censusDAO -> censusDAO.getCensusDTO(country))
-                .collect(toCollection(ArrayList::new));
+        return GSON.toJson(this.getCensusStatistics(fieldName, grouping, percentiles));
+    }
+
+    /**
+     * METHOD TO RENDER A RESULT LIST AS JSON, TIMED AS THE SERIALIZE STAGE
+     * @param subject provides what the result was queried by
+     * @param censusList provides the records, null for an unknown field
+     * @return json of the records
+     */
+    private static String toJson(String subject, List<?> censusList)
+    {
+        CensusMetrics.Timer timer = CensusMetrics.start(CensusMetrics.Stage.SERIALIZE, subject);
+        String json = GSON.toJson(censusList);
+        timer.stop(censusList == null ? 0 : censusList.size(), json.length());
+        return json;
+    }
+
+    /**
+     * METHOD TO READ STATE CENSUS DATA THROUGH THE SORT INDEX OF A FIELD
+     * Text fields are sorted in accending order and numeric fields in descending order
+     * @param censusTable provides the snapshot to read
+     * @param field provides field for sorting
+     * @return sorted list of country specific records
+     */
+    private ArrayList<Object> getSortedCensusList(CensusTable censusTable, CensusField field)
+    {
+        return getSortedCensusList(censusTable, field, 0, censusTable.size(), false);
+    }
+
+    /**
+     * METHOD TO READ A RANGE OF RANKS FROM THE SORT INDEX OF A FIELD
+     * @param censusTable provides the snapshot to read
+     * @param field provides field for sorting
+     * @param fromRank provides the first rank, inclusive
+     * @param toRank provides the last rank, exclusive
+     * @param fromBottom provides true to count ranks from the end of the sort index
+     * @return list of country specific records in rank order
+     */
+    private ArrayList<Object> getSortedCensusList(CensusTable censusTable, CensusField field, int fromRank, int toRank,
+                                                  boolean fromBottom)
+    {
+        ArrayList<Object> censusList = new ArrayList<>(toRank - fromRank);
+        for (int rank = fromRank; rank < toRank; rank++)
+        {
+            int indexRank = fromBottom ? censusTable.size() - 1 - rank : rank;
+            censusList.add(censusTable.getCensusDAO(censusTable.sortedRow(field, indexRank)).getCensusDTO(countryId));
+        }
         return censusList;
     }
 
@@ -141,13 +744,13 @@ public class CensusAnalyser
         switch (fieldName)
         {
             case "population":
-                censusList = jsonFileCreater(this.getSortedCensusData(fieldName), SORTED_BY_POPULATION_JSON_PATH);
+                censusList = jsonFileCreater(CensusField.POPULATION, SORTED_BY_POPULATION_JSON_PATH);
                 break;
             case "populationDensity":
-                censusList = jsonFileCreater(this.getSortedCensusData(fieldName), SORTED_BY_POPULATION_DENSITY_JSON_PATH);
+                censusList = jsonFileCreater(CensusField.POPULATION_DENSITY, SORTED_BY_POPULATION_DENSITY_JSON_PATH);
             break;
             case "totalArea":
-                censusList = jsonFileCreater(this.getSortedCensusData(fieldName), SORTED_BY_AREA_JSON_PATH);
+                censusList = jsonFileCreater(CensusField.TOTAL_AREA, SORTED_BY_AREA_JSON_PATH);
             break;
         }
         return censusList;
@@ -155,6 +758,8 @@ public class CensusAnalyser
 
     /**
      * METHOD TO GET MOST DENSELY POPULATED STATE AMONG INDIA AND US
+     * Each country is answered from its own table in the registry, loaded only on first use or when
+     * other files are passed, the data loaded into this analyser is left untouched
      * @param csvFilePath provides CSV file path for IndiaCensusCSV and USCensusCSV file
      * @param separator provides the seperator for records in csv file
      * @return most densely populated state
@@ -163,12 +768,12 @@ public class CensusAnalyser
     public String getMostDenselyPopulatedState(char separator, String... csvFilePath)
             throws CensusAnalyserException
     {
-        this.loadCensusData(Country.INDIA, separator, csvFilePath[0]);
-        CensusDAO[] censusList1 = new Gson().fromJson(this.getSortedCensusData("populationDensity"), CensusDAO[].class);
-        this.loadCensusData(Country.US, separator, csvFilePath[1]);
-        CensusDAO[] censusList2 = new Gson().fromJson(this.getSortedCensusData("populationDensity"), CensusDAO[].class);
-        if (Double.compare(censusList1[0].populationDensity, censusList2[0].populationDensity) > 0)
-            return censusList1[0].state;
-        return censusList2[0].state;
+        CensusTable indiaTable = censusRegistry.getCensusTable(Country.INDIA, separator, csvFilePath[0]);
+        CensusDAO indiaCensus = indiaTable.getCensusDAO(indiaTable.sortedRow(CensusField.POPULATION_DENSITY, 0));
+        CensusTable usTable = censusRegistry.getCensusTable(Country.US, separator, csvFilePath[1]);
+        CensusDAO usCensus = usTable.getCensusDAO(usTable.sortedRow(CensusField.POPULATION_DENSITY, 0));
+        if (Double.compare(indiaCensus.populationDensity, usCensus.populationDensity) > 0)
+            return indiaCensus.state;
+        return usCensus.state;
     }
 }
\ No newline at end of file
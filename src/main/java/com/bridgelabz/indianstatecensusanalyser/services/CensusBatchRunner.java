@@ -0,0 +1,276 @@
+package com.bridgelabz.indianstatecensusanalyser.services;
+
+import com.bridgelabz.indianstatecensusanalyser.exception.CensusAnalyserException;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusField;
+import com.bridgelabz.indianstatecensusanalyser.utility.CensusResultCache;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs a manifest of load and export jobs concurrently. Jobs run on virtual threads when the JVM has
+ * them and on a fixed pool otherwise. At most maxConcurrentJobs jobs are in flight, submission waits
+ * for a free slot, so loaded tables never pile up, and at most maxConcurrentIo files are read or
+ * written at once. A failing file is reported in the result of its job and the batch carries on.
+ * Outputs are written to a temporary file next to them and moved into place once complete, so a
+ * failed write never leaves a truncated json file behind.
+ */
+public class CensusBatchRunner
+{
+    private final int maxConcurrentJobs;
+    private final Semaphore ioPermits;
+
+    public CensusBatchRunner()
+    {
+        this(Runtime.getRuntime().availableProcessors(), 4);
+    }
+
+    /**
+     * @param maxConcurrentJobs provides the number of jobs loaded or exported at the same time
+     * @param maxConcurrentIo provides the number of files read or written at the same time
+     */
+    public CensusBatchRunner(int maxConcurrentJobs, int maxConcurrentIo)
+    {
+        if (maxConcurrentJobs < 1 || maxConcurrentIo < 1)
+            throw new IllegalArgumentException("Concurrency limits must be at least 1");
+        this.maxConcurrentJobs = maxConcurrentJobs;
+        this.ioPermits = new Semaphore(maxConcurrentIo, true);
+    }
+
+    /**
+     * METHOD TO RUN EVERY JOB OF A MANIFEST
+     * @param jobs provides the jobs, not to be changed while the batch runs
+     * @return one result per job in manifest order
+     */
+    public List<JobResult> run(List<Job> jobs)
+    {
+        ExecutorService executorService = newExecutorService();
+        Semaphore jobPermits = new Semaphore(maxConcurrentJobs);
+        try
+        {
+            List<CompletableFuture<JobResult>> futures = new ArrayList<>(jobs.size());
+            for (Job job : jobs)
+            {
+                jobPermits.acquireUninterruptibly();
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    try
+                    {
+                        return runJob(job);
+                    }
+                    finally
+                    {
+                        jobPermits.release();
+                    }
+                }, executorService));
+            }
+            List<JobResult> results = new ArrayList<>(jobs.size());
+            for (CompletableFuture<JobResult> future : futures)
+                results.add(future.join());
+            return results;
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * METHOD TO LOAD THE FILES OF ONE JOB AND WRITE EACH OF ITS OUTPUTS
+     * @return result holding every written file and every failure, keyed by the file that failed
+     */
+    private JobResult runJob(Job job)
+    {
+        CensusAnalyser censusAnalyser = new CensusAnalyser(job.countryId, new CensusRegistry(),
+                new CensusResultCache(0, 0), CensusAnalyser.Storage.HEAP);
+        Map<String, CensusAnalyserException> failures = new LinkedHashMap<>();
+        List<String> writtenFiles = new ArrayList<>();
+        int numOfRecords;
+        ioPermits.acquireUninterruptibly();
+        try
+        {
+            numOfRecords = censusAnalyser.loadCensusData(job.countryId, job.loaderMode, job.separator,
+                    job.csvFilePath);
+        }
+        catch (CensusAnalyserException e)
+        {
+            failures.put(job.csvFilePath[0], e);
+            return new JobResult(job, 0, writtenFiles, failures);
+        }
+        catch (RuntimeException e)
+        {
+            failures.put(job.csvFilePath[0], new CensusAnalyserException(String.valueOf(e.getMessage()),
+                    CensusAnalyserException.ExceptionType.CSV_FILE_PROBLEM));
+            return new JobResult(job, 0, writtenFiles, failures);
+        }
+        finally
+        {
+            ioPermits.release();
+        }
+        for (Map.Entry<String, String> output : job.outputs.entrySet())
+        {
+            ioPermits.acquireUninterruptibly();
+            try
+            {
+                writeOutput(censusAnalyser, output.getValue(), output.getKey());
+                writtenFiles.add(output.getKey());
+            }
+            catch (CensusAnalyserException e)
+            {
+                failures.put(output.getKey(), e);
+            }
+            catch (IOException | RuntimeException e)
+            {
+                failures.put(output.getKey(), new CensusAnalyserException(String.valueOf(e.getMessage()),
+                        CensusAnalyserException.ExceptionType.CSV_FILE_PROBLEM));
+            }
+            finally
+            {
+                ioPermits.release();
+            }
+        }
+        return new JobResult(job, numOfRecords, writtenFiles, failures);
+    }
+
+    /**
+     * METHOD TO WRITE SORTED DATA TO A TEMPORARY FILE AND MOVE IT OVER THE OUTPUT FILE ONCE COMPLETE
+     * @param fieldName provides field name for sorting
+     * @param jsonFilePath provides the output file, left untouched when writing fails
+     */
+    private static void writeOutput(CensusAnalyser censusAnalyser, String fieldName, String jsonFilePath)
+            throws CensusAnalyserException, IOException
+    {
+        Path jsonPath = Paths.get(jsonFilePath).toAbsolutePath();
+        Path temporaryPath = Files.createTempFile(jsonPath.getParent(), jsonPath.getFileName().toString(), ".tmp");
+        try
+        {
+            try (Writer writer = Files.newBufferedWriter(temporaryPath, StandardCharsets.UTF_8))
+            {
+                censusAnalyser.writeSortedCensusData(fieldName, writer);
+            }
+            try
+            {
+                Files.move(temporaryPath, jsonPath, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+                Files.move(temporaryPath, jsonPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally
+        {
+            deleteQuietly(temporaryPath);
+        }
+    }
+
+    private static void deleteQuietly(Path path)
+    {
+        try
+        {
+            Files.deleteIfExists(path);
+        }
+        catch (IOException e)
+        {
+            path.toFile().deleteOnExit();
+        }
+    }
+
+    /**
+     * METHOD TO CREATE A VIRTUAL THREAD PER TASK EXECUTOR, OR A FIXED POOL ON JVMS WITHOUT VIRTUAL THREADS
+     */
+    private ExecutorService newExecutorService()
+    {
+        try
+        {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            return Executors.newFixedThreadPool(maxConcurrentJobs);
+        }
+    }
+
+    /**
+     * One manifest entry: the census files of a country and the sorted json files to write from them.
+     */
+    public static class Job
+    {
+        public final String countryId;
+        public final CensusAnalyser.LoaderMode loaderMode;
+        public final char separator;
+        private final String[] csvFilePath;
+        private final Map<String, String> outputs = new LinkedHashMap<>();
+
+        public Job(CensusAnalyser.Country country, CensusAnalyser.LoaderMode loaderMode, char separator,
+                   String... csvFilePath)
+        {
+            this(country.name(), loaderMode, separator, csvFilePath);
+        }
+
+        /**
+         * @param countryId provides the id of the registered CensusAdapter reading the files
+         * @param csvFilePath provides the census file and optionally the state code file
+         */
+        public Job(String countryId, CensusAnalyser.LoaderMode loaderMode, char separator, String... csvFilePath)
+        {
+            if (csvFilePath.length == 0)
+                throw new IllegalArgumentException("A job needs a census file");
+            this.countryId = countryId;
+            this.loaderMode = loaderMode;
+            this.separator = separator;
+            this.csvFilePath = csvFilePath.clone();
+        }
+
+        /**
+         * METHOD TO WRITE THE DATA SORTED BY A FIELD TO A JSON FILE
+         * A field may be written to several files, a second export to the same file replaces the first
+         * @param fieldName provides field name for sorting
+         * @param jsonFilePath provides the output file, replaced if present
+         * @return this job
+         */
+        public Job export(String fieldName, String jsonFilePath)
+        {
+            if (CensusField.of(fieldName) == null)
+                throw new IllegalArgumentException("Unknown census field " + fieldName);
+            outputs.put(jsonFilePath, fieldName);
+            return this;
+        }
+    }
+
+    public static class JobResult
+    {
+        public final Job job;
+        public final int numOfRecords;
+        public final List<String> writtenFiles;
+        public final Map<String, CensusAnalyserException> failures;
+
+        private JobResult(Job job, int numOfRecords, List<String> writtenFiles,
+                          Map<String, CensusAnalyserException> failures)
+        {
+            this.job = job;
+            this.numOfRecords = numOfRecords;
+            this.writtenFiles = Collections.unmodifiableList(writtenFiles);
+            this.failures = Collections.unmodifiableMap(failures);
+        }
+
+        public boolean isSuccess()
+        {
+            return failures.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.bridgelabz.indianstatecensusanalyser.services;
+
+import com.bridgelabz.indianstatecensusanalyser.exception.CensusAnalyserException;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusDiff;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Watches census directories and reloads the analyser of a country on a background thread when one of
+ * its files is created or modified. Events are debounced: a reload runs only once the files have been
+ * quiet for the debounce period, so a file still being written is not parsed half way. Reloads go
+ * through CensusAnalyser.reloadCensusData, so nothing is parsed while the files keep their content, only
+ * changed states are applied to the loaded table and readers switch to the new data only once it is complete.
+ * Files are named by glob patterns such as "IndiaStateCensusData*.csv", so a file arriving under a new name
+ * is picked up too; when several files match, the most recently modified one is loaded. A failed reload is
+ * retried with a delay doubling from the debounce period up to one minute until it succeeds or a file changes.
+ */
+public class CensusDirectoryWatcher implements Closeable
+{
+    private static final long NO_DEADLINE = -1;
+    private static final long MAX_RETRY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    public interface Listener
+    {
+        default void censusDataLoaded(String countryId, CensusDiff censusDiff)
+        {
+        }
+
+        default void censusDataFailed(String countryId, CensusAnalyserException exception)
+        {
+        }
+    }
+
+    private final WatchService watchService;
+    private final long debounceNanos;
+    private final Listener listener;
+    private final Map<WatchKey, List<WatchedFiles>> watchedDirectories = new ConcurrentHashMap<>();
+    private final List<WatchedFiles> watchedFiles = new CopyOnWriteArrayList<>();
+    private final Thread watcherThread = new Thread(this::watchDirectories, "census-directory-watcher");
+
+    public CensusDirectoryWatcher(long debounceMillis, Listener listener) throws IOException
+    {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(debounceMillis, 1));
+        this.listener = listener;
+        watcherThread.setDaemon(true);
+    }
+
+    /**
+     * METHOD TO WATCH THE CENSUS FILES OF A COUNTRY IN A DIRECTORY
+     * The files are loaded once right away and again after every change
+     * @param censusAnalyser provides the analyser that publishes the loaded data
+     * @param country provides country of the files
+     * @param loaderMode provides the csv loader
+     * @param separator provides the seperator for records in csv file
+     * @param directory provides the watched directory
+     * @param fileNames provides glob patterns of the census file name and optional state code file name,
+     *                  as for loadCensusData
+     * @return this watcher
+     * @throws IOException when the directory cannot be watched
+     */
+    public CensusDirectoryWatcher watch(CensusAnalyser censusAnalyser, CensusAnalyser.Country country,
+                                        CensusAnalyser.LoaderMode loaderMode, char separator, Path directory,
+                                        String... fileNames) throws IOException
+    {
+        return this.watch(censusAnalyser, country.name(), loaderMode, separator, directory, fileNames);
+    }
+
+    /**
+     * METHOD TO WATCH THE CENSUS FILES OF A COUNTRY GIVEN BY ITS ADAPTER ID IN A DIRECTORY
+     * @param censusAnalyser provides the analyser that publishes the loaded data
+     * @param countryId provides the id of the registered CensusAdapter reading the files
+     * @param loaderMode provides the csv loader
+     * @param separator provides the seperator for records in csv file
+     * @param directory provides the watched directory
+     * @param fileNames provides glob patterns of the census file name and optional state code file name
+     * @return this watcher
+     * @throws IOException when the directory cannot be watched
+     */
+    public CensusDirectoryWatcher watch(CensusAnalyser censusAnalyser, String countryId,
+                                        CensusAnalyser.LoaderMode loaderMode, char separator, Path directory,
+                                        String... fileNames) throws IOException
+    {
+        WatchKey watchKey = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        WatchedFiles files = new WatchedFiles(censusAnalyser, countryId, loaderMode, separator, directory, fileNames);
+        watchedDirectories.computeIfAbsent(watchKey, key -> new CopyOnWriteArrayList<>()).add(files);
+        watchedFiles.add(files);
+        files.retryNanos = debounceNanos;
+        files.deadline.set(System.nanoTime());
+        return this;
+    }
+
+    public CensusDirectoryWatcher start()
+    {
+        watcherThread.start();
+        return this;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        watcherThread.interrupt();
+        watchService.close();
+    }
+
+    private void watchDirectories()
+    {
+        try
+        {
+            while (!Thread.currentThread().isInterrupted())
+            {
+                long waitNanos = reloadDueFiles();
+                WatchKey watchKey = watchService.poll(waitNanos, TimeUnit.NANOSECONDS);
+                if (watchKey != null)
+                    handleEvents(watchKey);
+            }
+        }
+        catch (InterruptedException | ClosedWatchServiceException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * METHOD TO RELOAD EVERY COUNTRY WHOSE FILES HAVE BEEN QUIET FOR THE DEBOUNCE PERIOD
+     * @return nanoseconds until the next pending reload is due, at most one debounce period
+     */
+    private long reloadDueFiles()
+    {
+        long waitNanos = debounceNanos;
+        for (WatchedFiles files : watchedFiles)
+        {
+            long deadline = files.deadline.get();
+            if (deadline == NO_DEADLINE)
+                continue;
+            long remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos > 0)
+                waitNanos = Math.min(waitNanos, remainingNanos);
+            else if (files.deadline.compareAndSet(deadline, NO_DEADLINE))
+                reload(files);
+        }
+        return waitNanos;
+    }
+
+    private void handleEvents(WatchKey watchKey)
+    {
+        List<WatchedFiles> directoryFiles = watchedDirectories.getOrDefault(watchKey, Collections.emptyList());
+        for (WatchEvent<?> event : watchKey.pollEvents())
+        {
+            for (WatchedFiles files : directoryFiles)
+            {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW || files.matches((Path) event.context()))
+                {
+                    files.retryNanos = debounceNanos;
+                    files.deadline.set(System.nanoTime() + debounceNanos);
+                }
+            }
+        }
+        if (!watchKey.reset())
+            watchedDirectories.remove(watchKey);
+    }
+
+    private void reload(WatchedFiles files)
+    {
+        try
+        {
+            CensusDiff censusDiff = files.censusAnalyser.reloadCensusData(files.countryId, files.loaderMode,
+                    files.separator, files.csvFilePaths());
+            files.retryNanos = debounceNanos;
+            listener.censusDataLoaded(files.countryId, censusDiff);
+        }
+        catch (CensusAnalyserException e)
+        {
+            retry(files);
+            listener.censusDataFailed(files.countryId, e);
+        }
+        catch (RuntimeException e)
+        {
+            retry(files);
+            listener.censusDataFailed(files.countryId, new CensusAnalyserException(String.valueOf(e.getMessage()),
+                    CensusAnalyserException.ExceptionType.CSV_FILE_PROBLEM));
+        }
+    }
+
+    /**
+     * METHOD TO SCHEDULE ANOTHER ATTEMPT OF A FAILED RELOAD, BACKING OFF EXPONENTIALLY
+     * A change of the files arriving meanwhile schedules its own reload and resets the delay
+     */
+    private void retry(WatchedFiles files)
+    {
+        files.deadline.compareAndSet(NO_DEADLINE, System.nanoTime() + files.retryNanos);
+        files.retryNanos = Math.min(files.retryNanos * 2, MAX_RETRY_NANOS);
+    }
+
+    private static class WatchedFiles
+    {
+        private final CensusAnalyser censusAnalyser;
+        private final String countryId;
+        private final CensusAnalyser.LoaderMode loaderMode;
+        private final char separator;
+        private final Path directory;
+        private final List<PathMatcher> fileNameMatchers = new ArrayList<>();
+        private final List<String> fileNames;
+        private final AtomicLong deadline = new AtomicLong(NO_DEADLINE);
+        private volatile long retryNanos;
+
+        private WatchedFiles(CensusAnalyser censusAnalyser, String countryId,
+                             CensusAnalyser.LoaderMode loaderMode, char separator, Path directory,
+                             String... fileNames)
+        {
+            this.censusAnalyser = censusAnalyser;
+            this.countryId = countryId;
+            this.loaderMode = loaderMode;
+            this.separator = separator;
+            this.directory = directory;
+            this.fileNames = Arrays.asList(fileNames);
+            for (String fileName : fileNames)
+                fileNameMatchers.add(directory.getFileSystem().getPathMatcher("glob:" + fileName));
+        }
+
+        private boolean matches(Path fileName)
+        {
+            for (PathMatcher fileNameMatcher : fileNameMatchers)
+            {
+                if (fileNameMatcher.matches(fileName))
+                    return true;
+            }
+            return false;
+        }
+
+        /**
+         * METHOD TO RESOLVE THE FILE PATHS, LEAVING OUT OPTIONAL FILES THAT HAVE NOT ARRIVED YET
+         * A census file matching nothing resolves to its pattern, so the reload reports it as missing
+         */
+        private String[] csvFilePaths()
+        {
+            List<String> csvFilePaths = new ArrayList<>();
+            for (int index = 0; index < fileNames.size(); index++)
+            {
+                Path csvFilePath = newestMatch(fileNameMatchers.get(index));
+                if (csvFilePath != null)
+                    csvFilePaths.add(csvFilePath.toString());
+                else if (csvFilePaths.isEmpty())
+                    csvFilePaths.add(directory.resolve(fileNames.get(index)).toString());
+            }
+            return csvFilePaths.toArray(new String[0]);
+        }
+
+        private Path newestMatch(PathMatcher fileNameMatcher)
+        {
+            Path newestPath = null;
+            long newestModified = Long.MIN_VALUE;
+            try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory))
+            {
+                for (Path path : directoryStream)
+                {
+                    if (!fileNameMatcher.matches(path.getFileName()) || !Files.isRegularFile(path))
+                        continue;
+                    long lastModified = Files.getLastModifiedTime(path).toMillis();
+                    if (newestPath == null || lastModified > newestModified
+                            || lastModified == newestModified && path.compareTo(newestPath) > 0)
+                    {
+                        newestPath = path;
+                        newestModified = lastModified;
+                    }
+                }
+            }
+            catch (IOException e)
+            {
+                return null;
+            }
+            return newestPath;
+        }
+    }
+}
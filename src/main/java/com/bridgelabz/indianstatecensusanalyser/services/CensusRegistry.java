@@ -0,0 +1,305 @@
+package com.bridgelabz.indianstatecensusanalyser.services;
+
+import com.bridgelabz.indianstatecensusanalyser.exception.CensusAnalyserException;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusDAO;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusField;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusTable;
+import com.bridgelabz.indianstatecensusanalyser.utility.CensusAdapterFactory;
+import com.google.gson.Gson;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the loaded CensusTable of every country so cross-country queries are answered from resident
+ * data. Countries are keyed by the id of their CensusAdapter, so a country added through a new adapter
+ * is registered like the built in ones. The country map is immutable and swapped atomically, like the
+ * table of a CensusAnalyser.
+ * Queries walk the precomputed sort indexes, so a maximum or minimum costs one probe per country
+ * and a merged ranking of k records costs k steps of a k-way merge.
+ */
+public class CensusRegistry
+{
+    private final AtomicReference<Map<String, RegisteredTable>> registeredTables =
+            new AtomicReference<>(Collections.emptyMap());
+
+    /**
+     * METHOD TO LOAD CENSUS DATA OF A COUNTRY INTO THE REGISTRY
+     * @param country provides country to load data
+     * @param loaderMode provides the csv loader
+     * @param separator provides the seperator for records in csv file
+     * @param csvFilePath provides the path of file
+     * @return number of records
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public int loadCensusData(CensusAnalyser.Country country, CensusAnalyser.LoaderMode loaderMode, char separator,
+                              String... csvFilePath) throws CensusAnalyserException
+    {
+        return this.loadCensusData(country.name(), loaderMode, separator, csvFilePath);
+    }
+
+    /**
+     * METHOD TO LOAD CENSUS DATA OF A COUNTRY GIVEN BY ITS ADAPTER ID INTO THE REGISTRY
+     * @param countryId provides the id of the registered CensusAdapter reading the files
+     * @param loaderMode provides the csv loader
+     * @param separator provides the seperator for records in csv file
+     * @param csvFilePath provides the path of file
+     * @return number of records
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public int loadCensusData(String countryId, CensusAnalyser.LoaderMode loaderMode, char separator,
+                              String... csvFilePath) throws CensusAnalyserException
+    {
+        CensusTable censusTable = CensusTable.of(CensusAdapterFactory.getCensusDataObject(countryId, loaderMode,
+                separator, csvFilePath).values());
+        register(countryId, new RegisteredTable(censusTable, source(separator, csvFilePath)));
+        return censusTable.size();
+    }
+
+    /**
+     * METHOD TO GET THE TABLE OF A COUNTRY, LOADING IT ONLY IF IT IS ABSENT OR CAME FROM OTHER FILES
+     * @param country provides country to load data
+     * @param separator provides the seperator for records in csv file
+     * @param csvFilePath provides the path of file
+     * @return resident table of the country
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public CensusTable getCensusTable(CensusAnalyser.Country country, char separator, String... csvFilePath)
+            throws CensusAnalyserException
+    {
+        return this.getCensusTable(country.name(), separator, csvFilePath);
+    }
+
+    /**
+     * METHOD TO GET THE TABLE OF A COUNTRY GIVEN BY ITS ADAPTER ID, LOADING IT ONLY IF IT IS ABSENT OR CAME
+     * FROM OTHER FILES
+     * @param countryId provides the id of the registered CensusAdapter reading the files
+     * @param separator provides the seperator for records in csv file
+     * @param csvFilePath provides the path of file
+     * @return resident table of the country
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public CensusTable getCensusTable(String countryId, char separator, String... csvFilePath)
+            throws CensusAnalyserException
+    {
+        RegisteredTable registeredTable = registeredTables.get().get(countryId);
+        if (registeredTable == null || !source(separator, csvFilePath).equals(registeredTable.source))
+            this.loadCensusData(countryId, CensusAnalyser.LoaderMode.OPEN_CSV, separator, csvFilePath);
+        return registeredTables.get().get(countryId).censusTable;
+    }
+
+    /**
+     * METHOD TO REGISTER AN ALREADY BUILT TABLE FOR A COUNTRY
+     * @param country provides country of the data
+     * @param censusTable provides the table, replacing any table of the country
+     */
+    public void register(CensusAnalyser.Country country, CensusTable censusTable)
+    {
+        register(country.name(), censusTable);
+    }
+
+    /**
+     * METHOD TO REGISTER AN ALREADY BUILT TABLE FOR A COUNTRY GIVEN BY ITS ADAPTER ID
+     * @param countryId provides the id of the registered CensusAdapter of the data
+     * @param censusTable provides the table, replacing any table of the country
+     */
+    public void register(String countryId, CensusTable censusTable)
+    {
+        register(countryId, new RegisteredTable(censusTable, null));
+    }
+
+    /**
+     * METHOD TO GET THE RESIDENT TABLE OF A COUNTRY
+     * @param country provides country of the data
+     * @return table, null when the country is not loaded
+     */
+    public CensusTable getCensusTable(CensusAnalyser.Country country)
+    {
+        return this.getCensusTable(country.name());
+    }
+
+    /**
+     * METHOD TO GET THE RESIDENT TABLE OF A COUNTRY GIVEN BY ITS ADAPTER ID
+     * @param countryId provides the id of the registered CensusAdapter of the data
+     * @return table, null when the country is not loaded
+     */
+    public CensusTable getCensusTable(String countryId)
+    {
+        RegisteredTable registeredTable = registeredTables.get().get(countryId);
+        return registeredTable == null ? null : registeredTable.censusTable;
+    }
+
+    /**
+     * METHOD TO GET THE RECORD WITH THE GREATEST VALUE OF A FIELD ACROSS ALL LOADED COUNTRIES
+     * Ties go to the country whose id sorts first
+     * @param fieldName provides field name to compare
+     * @return record, null for an unknown field or when nothing is loaded
+     */
+    public CensusDAO getMaxCensusData(String fieldName)
+    {
+        return getExtremeCensusData(CensusField.of(fieldName), true);
+    }
+
+    /**
+     * METHOD TO GET THE RECORD WITH THE SMALLEST VALUE OF A FIELD ACROSS ALL LOADED COUNTRIES
+     * Ties go to the country whose id sorts first
+     * @param fieldName provides field name to compare
+     * @return record, null for an unknown field or when nothing is loaded
+     */
+    public CensusDAO getMinCensusData(String fieldName)
+    {
+        return getExtremeCensusData(CensusField.of(fieldName), false);
+    }
+
+    /**
+     * METHOD TO RANK RECORDS OF ALL LOADED COUNTRIES TOGETHER IN THE DEFAULT ORDER OF A FIELD
+     * Text fields are merged in accending order and numeric fields in descending order
+     * @param fieldName provides field name for sorting
+     * @param count provides the maximum number of records
+     * @return json of the merged ranking, null json for an unknown field
+     */
+    public String getMergedCensusData(String fieldName, int count)
+    {
+        CensusField field = CensusField.of(fieldName);
+        if (field == null)
+            return new Gson().toJson(null);
+        List<CensusTable> censusTables = new ArrayList<>();
+        for (RegisteredTable registeredTable : registeredTables.get().values())
+            censusTables.add(registeredTable.censusTable);
+        int[] ranks = new int[censusTables.size()];
+        List<CensusDAO> censusList = new ArrayList<>();
+        while (censusList.size() < count)
+        {
+            int next = -1;
+            for (int index = 0; index < censusTables.size(); index++)
+            {
+                CensusTable censusTable = censusTables.get(index);
+                if (ranks[index] >= censusTable.size())
+                    continue;
+                if (next < 0 || compare(field, censusTable, censusTable.sortedRow(field, ranks[index]),
+                        censusTables.get(next), censusTables.get(next).sortedRow(field, ranks[next])) < 0)
+                    next = index;
+            }
+            if (next < 0)
+                break;
+            CensusTable censusTable = censusTables.get(next);
+            censusList.add(censusTable.getCensusDAO(censusTable.sortedRow(field, ranks[next]++)));
+        }
+        return new Gson().toJson(censusList);
+    }
+
+    private CensusDAO getExtremeCensusData(CensusField field, boolean max)
+    {
+        if (field == null)
+            return null;
+        CensusTable bestTable = null;
+        int bestRow = -1;
+        for (RegisteredTable registeredTable : registeredTables.get().values())
+        {
+            CensusTable censusTable = registeredTable.censusTable;
+            int row = extremeRow(censusTable, field, max);
+            if (row < 0)
+                continue;
+            int comparison = bestTable == null ? 0 : compare(field, censusTable, row, bestTable, bestRow);
+            if (field.ascending)
+                comparison = -comparison;
+            if (bestTable == null || (max ? comparison < 0 : comparison > 0))
+            {
+                bestTable = censusTable;
+                bestRow = row;
+            }
+        }
+        return bestTable == null ? null : bestTable.getCensusDAO(bestRow);
+    }
+
+    /**
+     * METHOD TO PICK THE ROW HOLDING THE GREATEST OR SMALLEST VALUE FROM THE SORT INDEX
+     * Numeric fields are indexed in descending order and text fields in accending order with
+     * missing values last, so the answer is at one end of the index or just before the missing values
+     */
+    private static int extremeRow(CensusTable censusTable, CensusField field, boolean max)
+    {
+        if (censusTable.size() == 0)
+            return -1;
+        if (!field.ascending)
+            return censusTable.sortedRow(field, max ? 0 : censusTable.size() - 1);
+        if (!max)
+        {
+            int row = censusTable.sortedRow(field, 0);
+            return hasValue(censusTable, field, row) ? row : -1;
+        }
+        for (int rank = censusTable.size() - 1; rank >= 0; rank--)
+        {
+            if (hasValue(censusTable, field, censusTable.sortedRow(field, rank)))
+                return censusTable.sortedRow(field, rank);
+        }
+        return -1;
+    }
+
+    private static boolean hasValue(CensusTable censusTable, CensusField field, int row)
+    {
+        int id = field == CensusField.STATE ? censusTable.stateId(row) : censusTable.stateCodeId(row);
+        return id != CensusTable.NO_VALUE;
+    }
+
+    /**
+     * METHOD TO COMPARE ROWS OF TWO TABLES IN THE DEFAULT ORDER OF A FIELD
+     * @return negative when the first row comes first
+     */
+    private static int compare(CensusField field, CensusTable firstTable, int firstRow, CensusTable secondTable,
+                               int secondRow)
+    {
+        switch (field)
+        {
+            case STATE:
+                return compareStrings(firstTable.state(firstRow), secondTable.state(secondRow));
+            case STATE_CODE:
+                return compareStrings(firstTable.stateCode(firstRow), secondTable.stateCode(secondRow));
+            case POPULATION:
+                return Long.compare(secondTable.population(secondRow), firstTable.population(firstRow));
+            case POPULATION_DENSITY:
+                return Double.compare(secondTable.populationDensity(secondRow),
+                        firstTable.populationDensity(firstRow));
+            default:
+                return Double.compare(secondTable.totalArea(secondRow), firstTable.totalArea(firstRow));
+        }
+    }
+
+    private static int compareStrings(String first, String second)
+    {
+        if (first == null || second == null)
+            return first == null ? (second == null ? 0 : 1) : -1;
+        return first.compareTo(second);
+    }
+
+    private void register(String countryId, RegisteredTable registeredTable)
+    {
+        registeredTables.updateAndGet(current -> {
+            Map<String, RegisteredTable> updated = new TreeMap<>(current);
+            updated.put(countryId, registeredTable);
+            return Collections.unmodifiableMap(updated);
+        });
+    }
+
+    private static String source(char separator, String... csvFilePath)
+    {
+        return separator + Arrays.toString(csvFilePath);
+    }
+
+    private static class RegisteredTable
+    {
+        private final CensusTable censusTable;
+        private final String source;
+
+        private RegisteredTable(CensusTable censusTable, String source)
+        {
+            this.censusTable = censusTable;
+            this.source = source;
+        }
+    }
+}
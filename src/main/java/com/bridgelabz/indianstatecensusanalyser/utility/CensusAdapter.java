@@ -4,24 +4,158 @@ import com.bridgelabz.csvbuilderjar.CSVBuilderException;
 import com.bridgelabz.csvbuilderjar.CSVBuilderFactory;
 import com.bridgelabz.indianstatecensusanalyser.exception.CensusAnalyserException;
 import com.bridgelabz.indianstatecensusanalyser.model.CensusDAO;
-import com.bridgelabz.indianstatecensusanalyser.model.IndiaCensusCSV;
-import com.bridgelabz.indianstatecensusanalyser.model.IndiaStateCodeCSV;
-import com.bridgelabz.indianstatecensusanalyser.model.USCensusCSV;
+import com.bridgelabz.indianstatecensusanalyser.services.CensusAnalyser;
+import com.bridgelabz.indianstatecensusanalyser.utility.CensusCSVSchema.CensusColumn;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.Reader;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
 import java.nio.file.NoSuchFileException;
-import java.nio.file.Paths;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
 import java.util.stream.StreamSupport;
 
+/**
+ * Census adapter of one country. Adapters are plugged in through ServiceLoader: an implementation
+ * declares the id of its country, the annotated csv model class it reads, any model fields the default column
+ * mapping does not know and the DTO its records are returned as. Loading, joining and the fast
+ * loaders are shared, so a new country only needs its adapter listed in
+ * META-INF/services/com.bridgelabz.indianstatecensusanalyser.utility.CensusAdapter.
+ */
 public abstract class CensusAdapter
 {
-    public abstract Map<String, CensusDAO> loadCensusData(char separator, String... csvFilePath)
-            throws CensusAnalyserException;
+    /**
+     * METHOD TO GET THE ID THE ADAPTER IS REGISTERED UNDER
+     * @return country id, the name of the CensusAnalyser.Country constant for built in countries
+     */
+    public abstract String getCountryId();
+
+    /**
+     * METHOD TO GET THE CSV MODEL CLASS OF THE CENSUS FILE
+     * @return class annotated with CsvBindByName
+     */
+    public abstract Class<?> getCensusCSVClass();
+
+    /**
+     * METHOD TO GET THE CSV MODEL CLASS OF THE STATE CODE FILE JOINED ONTO A SECOND PATH
+     * @return class annotated with CsvBindByName, null when the country has no state code file
+     */
+    public Class<?> getStateCodeCSVClass()
+    {
+        return null;
+    }
+
+    /**
+     * METHOD TO MAP MODEL FIELD NAMES OF THIS COUNTRY TO CENSUS COLUMNS
+     * @return field names the default mapping of CensusCSVSchema does not cover
+     */
+    public Map<String, CensusColumn> getFieldColumns()
+    {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * METHOD TO PROJECT A RECORD INTO THE DTO RETURNED BY QUERIES
+     * @param censusDAO provides the record
+     * @return dto of this country
+     */
+    public abstract Object getCensusDTO(CensusDAO censusDAO);
+
+    /**
+     * METHOD TO LOAD STATE CENSUS DATA OF THIS COUNTRY
+     * @param loaderMode provides the csv loader to use
+     * @param separator provides the seperator for records in csv file
+     * @param csvFilePath provides the path of file, optionally followed by the state code file
+     * @return map of loaded data
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public Map<String, CensusDAO> loadCensusData(CensusAnalyser.LoaderMode loaderMode, char separator,
+                                                 String... csvFilePath) throws CensusAnalyserException
+    {
+        return this.loadCensusData(loaderMode, separator, getCensusCSVClass(), csvFilePath);
+    }
+
+    /**
+     * METHOD TO LOAD CENSUS DATA WITH THE OPENCSV LOADER
+     * @param separator provides the seperator for records in csv file
+     * @param csvFilePath provides the path of file
+     * @return map of loaded data
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public Map<String, CensusDAO> loadCensusData(char separator, String... csvFilePath)
+            throws CensusAnalyserException
+    {
+        return this.loadCensusData(CensusAnalyser.LoaderMode.OPEN_CSV, separator, csvFilePath);
+    }
+
+    /**
+     * METHOD TO LOAD STATE CENSUS DATA OF THIS COUNTRY AND JOIN SIDE FILES ONTO IT
+     * @param censusJoin provides the loader, separator and side files
+     * @param csvFilePath provides the path of census file, optionally followed by the state code file
+     * @return map of loaded data
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public Map<String, CensusDAO> loadCensusData(CensusJoin censusJoin, String... csvFilePath)
+            throws CensusAnalyserException
+    {
+        return this.loadCensusData(censusJoin, getCensusCSVClass(), csvFilePath);
+    }
+
+    /**
+     * METHOD TO LOAD STATE CENSUS DATA WITH THE GIVEN LOADER
+     * @param <E> gives generic class type
+     * @param loaderMode provides the csv loader to use
+     * @param separator provides the seperator for records in csv file
+     * @param csvFilePath provides the path of file
+     * @return map of loaded data
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public <E> Map<String, CensusDAO> loadCensusData(CensusAnalyser.LoaderMode loaderMode, char separator,
+                                                     Class<E> censusCSVClass, String... csvFilePath)
+            throws CensusAnalyserException
+    {
+        return loadCensusData(new CensusJoin(loaderMode, separator), censusCSVClass, csvFilePath);
+    }
+
+    /**
+     * METHOD TO LOAD STATE CENSUS DATA AND JOIN THE SIDE FILES OF A CensusJoin ONTO IT
+     * A second file is added to the join as a state code side file when the country has one
+     * @param <E> gives generic class type
+     * @param censusJoin provides the loader, separator and side files
+     * @param csvFilePath provides the path of census file
+     * @return map of loaded data
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public <E> Map<String, CensusDAO> loadCensusData(CensusJoin censusJoin, Class<E> censusCSVClass,
+                                                     String... csvFilePath) throws CensusAnalyserException
+    {
+        if (csvFilePath.length == 2 && getStateCodeCSVClass() != null)
+            censusJoin.sideFile(csvFilePath[1], getStateCodeCSVClass(), CensusJoin.JoinKey.STATE);
+        return censusJoin.load(censusCSVClass, csvFilePath[0]);
+    }
+
+    /**
+     * METHOD TO STREAM THE JOINED STATE CENSUS RECORDS OF THIS COUNTRY WITHOUT COLLECTING THEM
+     * A second file is added to the join as a state code side file when the country has one
+     * @param censusJoin provides the loader, separator, side files and filter
+     * @param censusConsumer receives every joined record in file order, a state repeated in the file more than once
+     * @param csvFilePath provides the path of census file, optionally followed by the state code file
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public void forEachCensusRecord(CensusJoin censusJoin, Consumer<CensusDAO> censusConsumer, String... csvFilePath)
+            throws CensusAnalyserException
+    {
+        if (csvFilePath.length == 2 && getStateCodeCSVClass() != null)
+            censusJoin.sideFile(csvFilePath[1], getStateCodeCSVClass(), CensusJoin.JoinKey.STATE);
+        censusJoin.forEach(getCensusCSVClass(), csvFilePath[0], censusConsumer);
+    }
 
     /**
      * METHOD TO LOAD STATE CENSUS DATA
@@ -35,38 +169,95 @@ public abstract class CensusAdapter
     public <E> Map<String, CensusDAO> loadCensusData(char separator, Class<E> censusCSVClass, String... csvFilePath)
             throws CensusAnalyserException
     {
-        Map<String, CensusDAO> censusMap = new HashMap<>();
-        try( Reader reader = Files.newBufferedReader(Paths.get(csvFilePath[0])))
-        {
-            Iterator<E> censusIterator = CSVBuilderFactory.createCSVBuilder(0)
-                    .getCSVFileIterator(reader, censusCSVClass, separator);
-            Iterable<E> csvIterable = () -> censusIterator;
-            switch (censusCSVClass.getSimpleName())
+        return loadCensusData(CensusAnalyser.LoaderMode.OPEN_CSV, separator, censusCSVClass, csvFilePath);
+    }
+
+    /**
+     * METHOD TO READ ONE CSV FILE INTO A MAP WITH THE GIVEN LOADER
+     * @param loaderMode provides the csv loader to use
+     * @param separator provides the seperator for records in csv file
+     * @param censusCSVClass provides the annotated csv model class describing the columns
+     * @param csvFilePath provides the path of file
+     * @param keyFunction provides the map key of a record, the last kept row winning for a repeated key
+     * @param rowFilter provides the test every row must pass to be kept, null to keep every row
+     * @return map of loaded data
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    static Map<String, CensusDAO> readCensusFile(CensusAnalyser.LoaderMode loaderMode, char separator,
+                                                 Class<?> censusCSVClass, String csvFilePath,
+                                                 Function<CensusDAO, String> keyFunction,
+                                                 Predicate<CensusDAO> rowFilter)
+            throws CensusAnalyserException
+    {
+        return parseCensusFile(csvFilePath, () -> {
+            if (loaderMode == CensusAnalyser.LoaderMode.PARALLEL)
+                return new ParallelCSVLoader(separator, censusCSVClass).read(csvFilePath, keyFunction, rowFilter);
+            Map<String, CensusDAO> censusMap = new HashMap<>();
+            if (loaderMode == CensusAnalyser.LoaderMode.MAPPED)
+                new MappedCSVReader(separator, censusCSVClass).read(csvFilePath, rowFilter,
+                        censusDAO -> censusMap.put(keyFunction.apply(censusDAO), censusDAO));
+            else
+                forEachOpenCSVRow(separator, censusCSVClass, csvFilePath, rowFilter,
+                        censusDAO -> censusMap.put(keyFunction.apply(censusDAO), censusDAO));
+            return censusMap;
+        }, Map::size);
+    }
+
+    /**
+     * METHOD TO STREAM THE ROWS OF ONE CSV FILE WITH THE GIVEN LOADER WITHOUT COLLECTING THEM
+     * The parallel loader parses a few chunks ahead on the workers and hands their rows over in file order
+     * @param loaderMode provides the csv loader to use
+     * @param separator provides the seperator for records in csv file
+     * @param censusCSVClass provides the annotated csv model class describing the columns
+     * @param csvFilePath provides the path of file
+     * @param rowFilter provides the test every row must pass to be kept, null to keep every row
+     * @param rowConsumer receives every kept row in file order
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    static void forEachCensusFileRow(CensusAnalyser.LoaderMode loaderMode, char separator, Class<?> censusCSVClass,
+                                     String csvFilePath, Predicate<CensusDAO> rowFilter,
+                                     Consumer<CensusDAO> rowConsumer) throws CensusAnalyserException
+    {
+        int[] rowCount = new int[1];
+        Consumer<CensusDAO> countingConsumer = censusDAO -> {
+            rowCount[0]++;
+            rowConsumer.accept(censusDAO);
+        };
+        parseCensusFile(csvFilePath, () -> {
+            switch (loaderMode)
             {
-                case "IndiaCensusCSV":
-                    StreamSupport.stream(csvIterable.spliterator(), false)
-                            .map(IndiaCensusCSV.class::cast)
-                            .forEach(csvState -> censusMap.put(csvState.state, new CensusDAO(csvState)));
-                    if (csvFilePath.length == 2)
-                    {
-                        try (Reader codeReader = Files.newBufferedReader(Paths.get(csvFilePath[1])))
-                        {
-                            Iterator<IndiaStateCodeCSV> stateCodeIterator = CSVBuilderFactory.createCSVBuilder(0)
-                                    .getCSVFileIterator(codeReader, IndiaStateCodeCSV.class, separator);
-                            Iterable<IndiaStateCodeCSV> codeCSVIterable = () -> stateCodeIterator;
-                            StreamSupport.stream(codeCSVIterable.spliterator(), false)
-                                    .filter(csvState -> censusMap.get(csvState.StateName) != null)
-                                    .forEach(csvState -> censusMap.get(csvState.StateName).stateCode = csvState.StateCode);
-                        }
-                    }
+                case PARALLEL:
+                    new ParallelCSVLoader(separator, censusCSVClass).forEach(csvFilePath, rowFilter, countingConsumer);
                     break;
-                case "USCensusCSV":
-                    StreamSupport.stream(csvIterable.spliterator(), false)
-                            .map(USCensusCSV.class::cast)
-                            .forEach(csvState -> censusMap.put(csvState.state, new CensusDAO(csvState)));
+                case MAPPED:
+                    new MappedCSVReader(separator, censusCSVClass).read(csvFilePath, rowFilter, countingConsumer);
                     break;
+                default:
+                    forEachOpenCSVRow(separator, censusCSVClass, csvFilePath, rowFilter, countingConsumer);
             }
-            return censusMap;
+            return rowCount[0];
+        }, Integer::intValue);
+    }
+
+    /**
+     * METHOD TO RUN A PARSER OF ONE FILE, TIMING IT AND TRANSLATING ITS FAILURES
+     * @param <T> gives the type of the parse result
+     * @param csvFilePath provides the path of file
+     * @param censusFileParser provides the parsing
+     * @param rowCount provides the number of rows in the parse result
+     * @return parse result
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    private static <T> T parseCensusFile(String csvFilePath, CensusFileParser<T> censusFileParser,
+                                         ToIntFunction<T> rowCount) throws CensusAnalyserException
+    {
+        CensusMetrics.Timer timer = CensusMetrics.start(CensusMetrics.Stage.PARSE, csvFilePath);
+        try
+        {
+            T result = censusFileParser.parse();
+            if (timer.isEnabled())
+                timer.stop(rowCount.applyAsInt(result), new File(csvFilePath).length());
+            return result;
         }
         catch (NoSuchFileException e)
         {
@@ -88,4 +279,63 @@ public abstract class CensusAdapter
             throw new CensusAnalyserException(e.getMessage(), e.type.name());
         }
     }
+
+    /**
+     * METHOD TO STREAM EVERY ROW OF ONE CSV FILE WITHOUT COLLECTING THE ROWS
+     * @param separator provides the seperator for records in csv file
+     * @param censusCSVClass provides the annotated csv model class describing the columns
+     * @param csvFilePath provides the path of file, plain or compressed
+     * @param rowConsumer receives one new CensusDAO per row in file order, may throw UncheckedIOException
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    static void forEachCensusRow(char separator, Class<?> censusCSVClass, String csvFilePath,
+                                 Consumer<CensusDAO> rowConsumer) throws CensusAnalyserException
+    {
+        try
+        {
+            new MappedCSVReader(separator, censusCSVClass).read(csvFilePath, rowConsumer);
+        }
+        catch (NoSuchFileException e)
+        {
+            throw new CensusAnalyserException("Entered wrong file name/path or wrong file extension",
+                    CensusAnalyserException.ExceptionType.CSV_FILE_PROBLEM);
+        }
+        catch (IOException e)
+        {
+            throw new CensusAnalyserException(e.getMessage(),
+                    CensusAnalyserException.ExceptionType.CSV_FILE_PROBLEM);
+        }
+        catch (UncheckedIOException e)
+        {
+            throw new CensusAnalyserException(e.getCause().getMessage(),
+                    CensusAnalyserException.ExceptionType.CSV_FILE_PROBLEM);
+        }
+        catch (RuntimeException e)
+        {
+            throw new CensusAnalyserException("Entered incorrect Delimiter or incorrect Header",
+                    CensusAnalyserException.ExceptionType.INCORRECT_DELIMITER_OR_HEADER);
+        }
+    }
+
+    private static <E> void forEachOpenCSVRow(char separator, Class<E> censusCSVClass, String csvFilePath,
+                                              Predicate<CensusDAO> rowFilter, Consumer<CensusDAO> rowConsumer)
+            throws IOException, CSVBuilderException
+    {
+        try (Reader reader = CensusInputStreams.newBufferedReader(csvFilePath))
+        {
+            Iterator<E> censusIterator = CSVBuilderFactory.createCSVBuilder(0)
+                    .getCSVFileIterator(reader, censusCSVClass, separator);
+            Iterable<E> csvIterable = () -> censusIterator;
+            CensusCSVSchema censusCSVSchema = CensusCSVSchema.of(censusCSVClass);
+            StreamSupport.stream(csvIterable.spliterator(), false)
+                    .map(censusCSVSchema::toCensusDAO)
+                    .filter(censusDAO -> rowFilter == null || rowFilter.test(censusDAO))
+                    .forEach(rowConsumer);
+        }
+    }
+
+    private interface CensusFileParser<T>
+    {
+        T parse() throws IOException, CSVBuilderException, CensusAnalyserException;
+    }
 }
\ No newline at end of file
@@ -3,11 +3,81 @@ package com.bridgelabz.indianstatecensusanalyser.utility;
 import com.bridgelabz.indianstatecensusanalyser.exception.CensusAnalyserException;
 import com.bridgelabz.indianstatecensusanalyser.model.CensusDAO;
 import com.bridgelabz.indianstatecensusanalyser.services.CensusAnalyser;
+import com.bridgelabz.indianstatecensusanalyser.utility.CensusCSVSchema.CensusColumn;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.ServiceLoader;
 
+/**
+ * Resolves the CensusAdapter of every country once, through ServiceLoader, and hands out the cached
+ * adapters keyed by the country id each adapter declares. Column mappings declared by the adapters are
+ * indexed by csv model class for CensusCSVSchema.
+ */
 public class CensusAdapterFactory
 {
+    /**
+     * Adapters are loaded when first asked for rather than while this class initializes, so the
+     * initializers of this class and CensusCSVSchema never wait on each other.
+     */
+    private static final class Adapters
+    {
+        static final Map<String, CensusAdapter> CENSUS_ADAPTERS = new HashMap<>();
+        static final Map<Class<?>, Map<String, CensusColumn>> FIELD_COLUMNS = new HashMap<>();
+
+        static
+        {
+            for (CensusAdapter censusAdapter : ServiceLoader.load(CensusAdapter.class,
+                    CensusAdapter.class.getClassLoader()))
+            {
+                CENSUS_ADAPTERS.putIfAbsent(censusAdapter.getCountryId(), censusAdapter);
+                for (Class<?> censusCSVClass : new Class<?>[]{censusAdapter.getCensusCSVClass(),
+                        censusAdapter.getStateCodeCSVClass()})
+                {
+                    if (censusCSVClass != null && !censusAdapter.getFieldColumns().isEmpty())
+                        FIELD_COLUMNS.computeIfAbsent(censusCSVClass, key -> new HashMap<>())
+                                .putAll(censusAdapter.getFieldColumns());
+                }
+            }
+        }
+    }
+
+    /**
+     * METHOD TO GET THE CACHED ADAPTER OF A COUNTRY
+     * @param country provides country of the data
+     * @return adapter registered for the country
+     * @throws IllegalStateException when no adapter is registered for the country
+     */
+    public static CensusAdapter getCensusAdapter(CensusAnalyser.Country country)
+    {
+        return getCensusAdapter(country.name());
+    }
+
+    /**
+     * METHOD TO GET THE CACHED ADAPTER REGISTERED UNDER A COUNTRY ID
+     * @param countryId provides the id declared by the adapter
+     * @return adapter registered for the country id
+     * @throws IllegalStateException when no adapter is registered for the country id
+     */
+    public static CensusAdapter getCensusAdapter(String countryId)
+    {
+        CensusAdapter censusAdapter = Adapters.CENSUS_ADAPTERS.get(countryId);
+        if (censusAdapter == null)
+            throw new IllegalStateException("No census adapter registered for " + countryId);
+        return censusAdapter;
+    }
+
+    /**
+     * METHOD TO GET THE FIELD MAPPINGS ADAPTERS DECLARE FOR A CSV MODEL CLASS
+     * @param censusCSVClass provides the csv model class
+     * @return field name to column mappings, empty when no adapter declares any
+     */
+    static Map<String, CensusColumn> getFieldColumns(Class<?> censusCSVClass)
+    {
+        return Adapters.FIELD_COLUMNS.getOrDefault(censusCSVClass, Collections.emptyMap());
+    }
+
     /**
      * METHOD TO INVOKE THE CENSUS ADAPTER AS PER COUNTRY
      * @param country provides country to load data
@@ -17,8 +87,60 @@ public class CensusAdapterFactory
     public static Map<String, CensusDAO> getCensusDataObject(CensusAnalyser.Country country, char separator,
                                                              String... csvFilePath) throws CensusAnalyserException
     {
-        if (country.equals(CensusAnalyser.Country.INDIA))
-            return new IndiaCensusAdapter().loadCensusData(separator, csvFilePath);
-        return new USCensusAdapter().loadCensusData(separator, csvFilePath);
+        return getCensusDataObject(country, CensusAnalyser.LoaderMode.OPEN_CSV, separator, csvFilePath);
+    }
+
+    /**
+     * METHOD TO INVOKE THE CENSUS ADAPTER AS PER COUNTRY WITH THE GIVEN LOADER
+     * @param country provides country to load data
+     * @param loaderMode provides the csv loader to use
+     * @return object of a required adapter class
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public static Map<String, CensusDAO> getCensusDataObject(CensusAnalyser.Country country,
+                                                             CensusAnalyser.LoaderMode loaderMode, char separator,
+                                                             String... csvFilePath) throws CensusAnalyserException
+    {
+        return getCensusDataObject(country.name(), loaderMode, separator, csvFilePath);
+    }
+
+    /**
+     * METHOD TO INVOKE THE CENSUS ADAPTER REGISTERED UNDER A COUNTRY ID WITH THE GIVEN LOADER
+     * @param countryId provides the id declared by the adapter
+     * @param loaderMode provides the csv loader to use
+     * @return object of a required adapter class
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public static Map<String, CensusDAO> getCensusDataObject(String countryId, CensusAnalyser.LoaderMode loaderMode,
+                                                             char separator, String... csvFilePath)
+            throws CensusAnalyserException
+    {
+        return getCensusAdapter(countryId).loadCensusData(loaderMode, separator, csvFilePath);
+    }
+
+    /**
+     * METHOD TO INVOKE THE CENSUS ADAPTER AS PER COUNTRY AND JOIN SIDE FILES ONTO THE LOADED DATA
+     * @param country provides country to load data
+     * @param censusJoin provides the loader, separator and side files
+     * @return object of a required adapter class
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public static Map<String, CensusDAO> getCensusDataObject(CensusAnalyser.Country country, CensusJoin censusJoin,
+                                                             String... csvFilePath) throws CensusAnalyserException
+    {
+        return getCensusDataObject(country.name(), censusJoin, csvFilePath);
+    }
+
+    /**
+     * METHOD TO INVOKE THE CENSUS ADAPTER REGISTERED UNDER A COUNTRY ID AND JOIN SIDE FILES ONTO THE LOADED DATA
+     * @param countryId provides the id declared by the adapter
+     * @param censusJoin provides the loader, separator and side files
+     * @return object of a required adapter class
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public static Map<String, CensusDAO> getCensusDataObject(String countryId, CensusJoin censusJoin,
+                                                             String... csvFilePath) throws CensusAnalyserException
+    {
+        return getCensusAdapter(countryId).loadCensusData(censusJoin, csvFilePath);
     }
 }
\ No newline at end of file
@@ -0,0 +1,267 @@
+package com.bridgelabz.indianstatecensusanalyser.utility;
+
+import com.bridgelabz.indianstatecensusanalyser.exception.CensusAnalyserException;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusDAO;
+import com.opencsv.bean.CsvBindByName;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class CensusCSVSchema
+{
+    public enum CensusColumn
+    {
+        STATE, STATE_CODE, POPULATION, TOTAL_AREA, POPULATION_DENSITY
+    }
+
+    private static final Map<String, CensusColumn> FIELD_COLUMNS = new HashMap<>();
+
+    static
+    {
+        FIELD_COLUMNS.put("state", CensusColumn.STATE);
+        FIELD_COLUMNS.put("StateName", CensusColumn.STATE);
+        FIELD_COLUMNS.put("stateId", CensusColumn.STATE_CODE);
+        FIELD_COLUMNS.put("StateCode", CensusColumn.STATE_CODE);
+        FIELD_COLUMNS.put("population", CensusColumn.POPULATION);
+        FIELD_COLUMNS.put("areaInSqKm", CensusColumn.TOTAL_AREA);
+        FIELD_COLUMNS.put("totalArea", CensusColumn.TOTAL_AREA);
+        FIELD_COLUMNS.put("densityPerSqKm", CensusColumn.POPULATION_DENSITY);
+        FIELD_COLUMNS.put("populationDensity", CensusColumn.POPULATION_DENSITY);
+    }
+
+    private static final Map<Class<?>, CensusCSVSchema> SCHEMAS = new ConcurrentHashMap<>();
+    private static final MethodType ASSIGN_TYPE = MethodType.methodType(void.class, CensusDAO.class, Object.class);
+    private static final ClassValue<MethodHandle> ROW_MAPPERS = new ClassValue<MethodHandle>()
+    {
+        @Override
+        protected MethodHandle computeValue(Class<?> censusCSVClass)
+        {
+            return of(censusCSVClass).compileRowMapper();
+        }
+    };
+
+    private final Class<?> censusCSVClass;
+
+    private final List<Field> fields = new ArrayList<>();
+    private final List<String> headers = new ArrayList<>();
+    private final List<CensusColumn> columns = new ArrayList<>();
+    private final List<Boolean> required = new ArrayList<>();
+
+    /**
+     * METHOD TO BUILD SCHEMA FROM THE CsvBindByName ANNOTATIONS OF A CSV MODEL CLASS
+     * Field names are mapped by the default mapping and the mapping the census adapters declare
+     * @param censusCSVClass provides the annotated csv model class
+     */
+    public CensusCSVSchema(Class<?> censusCSVClass)
+    {
+        this.censusCSVClass = censusCSVClass;
+        Map<String, CensusColumn> fieldColumns = new HashMap<>(FIELD_COLUMNS);
+        fieldColumns.putAll(CensusAdapterFactory.getFieldColumns(censusCSVClass));
+        for (Field field : censusCSVClass.getDeclaredFields())
+        {
+            CsvBindByName binding = field.getAnnotation(CsvBindByName.class);
+            CensusColumn column = fieldColumns.get(field.getName());
+            if (binding == null || column == null)
+                continue;
+            fields.add(field);
+            headers.add(binding.column().isEmpty() ? field.getName() : binding.column());
+            columns.add(column);
+            required.add(binding.required());
+        }
+    }
+
+    /**
+     * METHOD TO GET THE SCHEMA OF A CSV MODEL CLASS, BUILT ONCE AND CACHED
+     * @param censusCSVClass provides the annotated csv model class
+     * @return shared schema of the class
+     */
+    public static CensusCSVSchema of(Class<?> censusCSVClass)
+    {
+        return SCHEMAS.computeIfAbsent(censusCSVClass, CensusCSVSchema::new);
+    }
+
+    /**
+     * METHOD TO RESOLVE HEADER POSITIONS OF A CSV FILE AGAINST THE SCHEMA
+     * @param headerFields provides the header names in file order
+     * @return column bound to each header position, null for ignored positions
+     * @throws CensusAnalyserException when a required header is missing
+     */
+    public CensusColumn[] bind(List<String> headerFields) throws CensusAnalyserException
+    {
+        CensusColumn[] bindings = new CensusColumn[headerFields.size()];
+        for (int index = 0; index < headers.size(); index++)
+        {
+            int position = indexOf(headerFields, headers.get(index));
+            if (position < 0 && required.get(index))
+                throw new CensusAnalyserException("Entered incorrect Delimiter or incorrect Header",
+                        CensusAnalyserException.ExceptionType.INCORRECT_DELIMITER_OR_HEADER);
+            if (position >= 0)
+                bindings[position] = columns.get(index);
+        }
+        return bindings;
+    }
+
+    /**
+     * METHOD TO CHECK WHETHER A COLUMN MUST BE PRESENT IN EVERY ROW
+     * @param column provides the census column
+     * @return true if the column is bound as required
+     */
+    public boolean isRequired(CensusColumn column)
+    {
+        int index = columns.indexOf(column);
+        return index >= 0 && required.get(index);
+    }
+
+    /**
+     * METHOD TO LIST THE CENSUS COLUMNS THE MODEL CLASS BINDS
+     * @return bound columns in declaration order
+     */
+    public List<CensusColumn> getColumns()
+    {
+        return Collections.unmodifiableList(columns);
+    }
+
+    /**
+     * METHOD TO COPY THE BOUND FIELDS OF AN OPENCSV BEAN INTO A NEW CensusDAO
+     * The copying method handle is compiled once per csv model class and shared by every schema of it
+     * @param censusCSV provides a bean of the schema model class
+     * @return CensusDAO holding the bound values
+     */
+    public CensusDAO toCensusDAO(Object censusCSV)
+    {
+        CensusDAO censusDAO = new CensusDAO();
+        try
+        {
+            ROW_MAPPERS.get(censusCSVClass).invokeExact(censusDAO, censusCSV);
+        }
+        catch (RuntimeException | Error e)
+        {
+            throw e;
+        }
+        catch (Throwable throwable)
+        {
+            throw new IllegalStateException(throwable);
+        }
+        return censusDAO;
+    }
+
+    /**
+     * METHOD TO COMPILE THE BOUND FIELDS INTO ONE METHOD HANDLE COPYING A BEAN INTO A CensusDAO
+     * Each field getter is chained straight into the setter of its column, so the per row copy has
+     * no reflective access and no dispatch on the column
+     * @return handle of type (CensusDAO, Object) void
+     */
+    private MethodHandle compileRowMapper()
+    {
+        try
+        {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle rowMapper = lookup.findStatic(CensusCSVSchema.class, "skip", ASSIGN_TYPE);
+            for (int index = fields.size() - 1; index >= 0; index--)
+            {
+                MethodHandle getter = lookup.unreflectGetter(fields.get(index))
+                        .asType(MethodType.methodType(Object.class, Object.class));
+                MethodHandle setter = lookup.findStatic(CensusCSVSchema.class, setterName(columns.get(index)),
+                        ASSIGN_TYPE);
+                rowMapper = MethodHandles.foldArguments(rowMapper, MethodHandles.filterArguments(setter, 1, getter));
+            }
+            return rowMapper;
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String setterName(CensusColumn column)
+    {
+        switch (column)
+        {
+            case STATE:
+                return "setState";
+            case STATE_CODE:
+                return "setStateCode";
+            case POPULATION:
+                return "setPopulation";
+            case TOTAL_AREA:
+                return "setTotalArea";
+            default:
+                return "setPopulationDensity";
+        }
+    }
+
+    private static void skip(CensusDAO censusDAO, Object value)
+    {
+    }
+
+    private static void setState(CensusDAO censusDAO, Object value)
+    {
+        censusDAO.state = (String) value;
+    }
+
+    private static void setStateCode(CensusDAO censusDAO, Object value)
+    {
+        censusDAO.stateCode = (String) value;
+    }
+
+    private static void setPopulation(CensusDAO censusDAO, Object value)
+    {
+        censusDAO.population = value == null ? null : ((Number) value).intValue();
+    }
+
+    private static void setTotalArea(CensusDAO censusDAO, Object value)
+    {
+        censusDAO.totalArea = value == null ? 0 : ((Number) value).doubleValue();
+    }
+
+    private static void setPopulationDensity(CensusDAO censusDAO, Object value)
+    {
+        censusDAO.populationDensity = value == null ? 0 : ((Number) value).doubleValue();
+    }
+
+    /**
+     * METHOD TO COPY ONE COLUMN FROM A RECORD INTO ANOTHER
+     * @param column provides the column to copy
+     * @param source provides the record to read
+     * @param target provides the record to update
+     */
+    public static void copy(CensusColumn column, CensusDAO source, CensusDAO target)
+    {
+        switch (column)
+        {
+            case STATE:
+                target.state = source.state;
+                break;
+            case STATE_CODE:
+                target.stateCode = source.stateCode;
+                break;
+            case POPULATION:
+                target.population = source.population;
+                break;
+            case TOTAL_AREA:
+                target.totalArea = source.totalArea;
+                break;
+            case POPULATION_DENSITY:
+                target.populationDensity = source.populationDensity;
+                break;
+        }
+    }
+
+    private static int indexOf(List<String> headerFields, String header)
+    {
+        for (int position = 0; position < headerFields.size(); position++)
+        {
+            if (headerFields.get(position).trim().equalsIgnoreCase(header))
+                return position;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,422 @@
+package com.bridgelabz.indianstatecensusanalyser.utility;
+
+import com.bridgelabz.indianstatecensusanalyser.exception.CensusAnalyserException;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusCursor;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusDAO;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusField;
+import com.bridgelabz.indianstatecensusanalyser.services.CensusAnalyser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts census files larger than the heap. Rows are streamed from the file into a run until the run
+ * reaches its row count or the memory budget, then the run is sorted and spilled to a temporary file
+ * as compact binary records. The runs are merged k at a time, at most MAX_MERGE_FAN_IN files being
+ * open at once, and the last merge is handed out as a CensusCursor that reads the spilled files
+ * record by record. The order is that of a CensusTable: numeric fields descending, text fields
+ * ascending with missing values last, ties broken by state. Every row of the file is kept, rows of
+ * the same state that still tie keep file order. The cursor is written out as json by
+ * CensusAnalyser.writeExternallySortedCensusData, json is the only output format supported.
+ */
+public class CensusExternalSorter
+{
+    public static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+    public static final int DEFAULT_RUN_SIZE = 1 << 20;
+    static final int MAX_MERGE_FAN_IN = 64;
+    private static final long RECORD_OVERHEAD_BYTES = 160;
+    private static final int MIN_BUFFER_SIZE = 1 << 12;
+    private static final int MAX_BUFFER_SIZE = 1 << 20;
+    private static final int HAS_STATE = 1;
+    private static final int HAS_STATE_CODE = 2;
+    private static final int HAS_POPULATION = 4;
+
+    private final long memoryBudget;
+    private final int runSize;
+    private final Path tempDirectory;
+
+    public CensusExternalSorter()
+    {
+        this(DEFAULT_MEMORY_BUDGET, DEFAULT_RUN_SIZE, null);
+    }
+
+    /**
+     * @param memoryBudget provides the estimated heap bytes a run and the merge buffers may take
+     * @param runSize provides the most rows sorted in memory at once
+     * @param tempDirectory provides the directory of the spilled runs, null for the system temporary directory
+     */
+    public CensusExternalSorter(long memoryBudget, int runSize, String tempDirectory)
+    {
+        if (memoryBudget < 1 || runSize < 1)
+            throw new IllegalArgumentException("Memory budget and run size must be positive");
+        this.memoryBudget = memoryBudget;
+        this.runSize = runSize;
+        this.tempDirectory = tempDirectory == null ? null : Paths.get(tempDirectory);
+    }
+
+    public CensusCursor sort(CensusAnalyser.Country country, char separator, CensusField field, String csvFilePath)
+            throws CensusAnalyserException
+    {
+        return sort(country.name(), separator, field, csvFilePath);
+    }
+
+    /**
+     * METHOD TO SORT A CENSUS FILE BY A FIELD
+     * @param countryId provides the id of the country whose csv model describes the file
+     * @param separator provides the seperator for records in csv file
+     * @param field provides the field to sort on
+     * @param csvFilePath provides the path of census file, plain or compressed
+     * @return cursor over the sorted rows, to be closed to delete the spilled runs
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public CensusCursor sort(String countryId, char separator, CensusField field, String csvFilePath)
+            throws CensusAnalyserException
+    {
+        Comparator<CensusDAO> comparator = comparator(field);
+        List<Path> runFiles = new ArrayList<>();
+        List<CensusDAO> run = new ArrayList<>();
+        long[] runBytes = new long[1];
+        long[] rowCount = new long[1];
+        CensusMetrics.Timer timer = CensusMetrics.start(CensusMetrics.Stage.SORT, csvFilePath);
+        try
+        {
+            CensusAdapter.forEachCensusRow(separator,
+                    CensusAdapterFactory.getCensusAdapter(countryId).getCensusCSVClass(), csvFilePath, censusDAO -> {
+                        run.add(censusDAO);
+                        rowCount[0]++;
+                        runBytes[0] += estimatedSize(censusDAO);
+                        if (run.size() >= runSize || runBytes[0] >= memoryBudget)
+                        {
+                            runFiles.add(spill(run, comparator));
+                            run.clear();
+                            runBytes[0] = 0;
+                        }
+                    });
+            if (runFiles.isEmpty())
+            {
+                run.sort(comparator);
+                timer.stop(rowCount[0], 0);
+                return listCursor(run.iterator());
+            }
+            if (!run.isEmpty())
+                runFiles.add(spill(run, comparator));
+            run.clear();
+            while (runFiles.size() > MAX_MERGE_FAN_IN)
+                mergePass(runFiles, comparator);
+            MergeCursor mergeCursor = new MergeCursor(runFiles, comparator, bufferSize(runFiles.size()));
+            timer.stop(rowCount[0], 0);
+            return mergeCursor;
+        }
+        catch (IOException | UncheckedIOException | CensusAnalyserException e)
+        {
+            for (Path runFile : runFiles)
+                deleteQuietly(runFile);
+            if (e instanceof CensusAnalyserException)
+                throw (CensusAnalyserException) e;
+            throw new CensusAnalyserException(e.getMessage(), CensusAnalyserException.ExceptionType.CSV_FILE_PROBLEM);
+        }
+    }
+
+    /**
+     * METHOD TO SORT A RUN AND WRITE IT TO A NEW TEMPORARY FILE
+     * @return path of the run file
+     * @throws UncheckedIOException when the run cannot be written, as it is called from a row consumer
+     */
+    private Path spill(List<CensusDAO> run, Comparator<CensusDAO> comparator)
+    {
+        run.sort(comparator);
+        Path runFile = null;
+        try
+        {
+            runFile = newRunFile();
+            try (DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(runFile), MAX_BUFFER_SIZE)))
+            {
+                for (CensusDAO censusDAO : run)
+                    writeRecord(output, censusDAO);
+            }
+            return runFile;
+        }
+        catch (IOException e)
+        {
+            if (runFile != null)
+                deleteQuietly(runFile);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * METHOD TO MERGE THE RUN FILES IN GROUPS OF MAX_MERGE_FAN_IN INTO FEWER, LONGER RUNS
+     * Groups are consecutive runs, so ties still keep file order
+     * @param runFiles provides the runs in file order, replaced by the merged runs
+     */
+    private void mergePass(List<Path> runFiles, Comparator<CensusDAO> comparator) throws IOException
+    {
+        List<Path> mergedFiles = new ArrayList<>();
+        try
+        {
+            for (int from = 0; from < runFiles.size(); from += MAX_MERGE_FAN_IN)
+            {
+                List<Path> group = new ArrayList<>(runFiles.subList(from,
+                        Math.min(from + MAX_MERGE_FAN_IN, runFiles.size())));
+                Path mergedFile = newRunFile();
+                mergedFiles.add(mergedFile);
+                try (MergeCursor mergeCursor = new MergeCursor(group, comparator, bufferSize(group.size() + 1));
+                     DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                             Files.newOutputStream(mergedFile), bufferSize(group.size() + 1))))
+                {
+                    while (mergeCursor.hasNext())
+                        writeRecord(output, mergeCursor.next());
+                }
+            }
+        }
+        catch (IOException | UncheckedIOException e)
+        {
+            for (Path mergedFile : mergedFiles)
+                deleteQuietly(mergedFile);
+            throw e;
+        }
+        runFiles.clear();
+        runFiles.addAll(mergedFiles);
+    }
+
+    private Path newRunFile() throws IOException
+    {
+        return tempDirectory == null ? Files.createTempFile("census-run", ".bin")
+                : Files.createTempFile(tempDirectory, "census-run", ".bin");
+    }
+
+    /**
+     * METHOD TO SHARE THE MEMORY BUDGET BETWEEN THE BUFFERS OF THE OPEN RUN FILES
+     */
+    private int bufferSize(int openFiles)
+    {
+        return (int) Math.max(MIN_BUFFER_SIZE, Math.min(MAX_BUFFER_SIZE, memoryBudget / openFiles));
+    }
+
+    private static long estimatedSize(CensusDAO censusDAO)
+    {
+        return RECORD_OVERHEAD_BYTES + 2L * (length(censusDAO.state) + length(censusDAO.stateCode));
+    }
+
+    private static int length(String value)
+    {
+        return value == null ? 0 : value.length();
+    }
+
+    /**
+     * METHOD TO WRITE ONE RECORD AS A FLAGS BYTE, THE PRESENT TEXT AND POPULATION VALUES, THEN BOTH DOUBLES
+     */
+    private static void writeRecord(DataOutputStream output, CensusDAO censusDAO) throws IOException
+    {
+        output.writeByte((censusDAO.state == null ? 0 : HAS_STATE)
+                | (censusDAO.stateCode == null ? 0 : HAS_STATE_CODE)
+                | (censusDAO.population == null ? 0 : HAS_POPULATION));
+        if (censusDAO.state != null)
+            output.writeUTF(censusDAO.state);
+        if (censusDAO.stateCode != null)
+            output.writeUTF(censusDAO.stateCode);
+        if (censusDAO.population != null)
+            output.writeInt(censusDAO.population);
+        output.writeDouble(censusDAO.totalArea);
+        output.writeDouble(censusDAO.populationDensity);
+    }
+
+    /**
+     * METHOD TO READ THE NEXT RECORD OF A RUN FILE
+     * @return record, null at the end of the file
+     */
+    private static CensusDAO readRecord(DataInputStream input) throws IOException
+    {
+        int flags = input.read();
+        if (flags < 0)
+            return null;
+        try
+        {
+            CensusDAO censusDAO = new CensusDAO();
+            if ((flags & HAS_STATE) != 0)
+                censusDAO.state = input.readUTF();
+            if ((flags & HAS_STATE_CODE) != 0)
+                censusDAO.stateCode = input.readUTF();
+            if ((flags & HAS_POPULATION) != 0)
+                censusDAO.population = input.readInt();
+            censusDAO.totalArea = input.readDouble();
+            censusDAO.populationDensity = input.readDouble();
+            return censusDAO;
+        }
+        catch (EOFException e)
+        {
+            throw new IOException("Spilled census run is truncated", e);
+        }
+    }
+
+    /**
+     * METHOD TO ORDER RECORDS LIKE THE SORT INDEX OF A CensusTable, A MISSING POPULATION COUNTING AS 0
+     * Ties are broken by state, the stable run sort and the merge keep file order after that
+     */
+    private static Comparator<CensusDAO> comparator(CensusField field)
+    {
+        Comparator<CensusDAO> byState = Comparator.comparing(censusDAO -> censusDAO.state,
+                Comparator.nullsLast(Comparator.<String>naturalOrder()));
+        switch (field)
+        {
+            case STATE:
+                return byState;
+            case STATE_CODE:
+                return Comparator.comparing((CensusDAO censusDAO) -> censusDAO.stateCode,
+                        Comparator.nullsLast(Comparator.<String>naturalOrder())).thenComparing(byState);
+            case POPULATION:
+                return ((Comparator<CensusDAO>) (first, second) -> Long.compare(population(second),
+                        population(first))).thenComparing(byState);
+            case POPULATION_DENSITY:
+                return ((Comparator<CensusDAO>) (first, second) -> Double.compare(second.populationDensity,
+                        first.populationDensity)).thenComparing(byState);
+            default:
+                return ((Comparator<CensusDAO>) (first, second) -> Double.compare(second.totalArea,
+                        first.totalArea)).thenComparing(byState);
+        }
+    }
+
+    private static long population(CensusDAO censusDAO)
+    {
+        return censusDAO.population == null ? 0 : censusDAO.population;
+    }
+
+    private static void deleteQuietly(Path file)
+    {
+        try
+        {
+            Files.deleteIfExists(file);
+        }
+        catch (IOException e)
+        {
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    private static CensusCursor listCursor(Iterator<CensusDAO> iterator)
+    {
+        return new CensusCursor()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public CensusDAO next()
+            {
+                return iterator.next();
+            }
+        };
+    }
+
+    /**
+     * K-way merge of run files. Each run contributes its current record to a priority queue, ties going
+     * to the earlier run. Reading a run file fails with UncheckedIOException, closing deletes the files.
+     */
+    private static class MergeCursor implements CensusCursor
+    {
+        private final List<Path> runFiles;
+        private final List<DataInputStream> inputs = new ArrayList<>();
+        private final PriorityQueue<RunHead> runHeads;
+
+        private MergeCursor(List<Path> runFiles, Comparator<CensusDAO> comparator, int bufferSize) throws IOException
+        {
+            this.runFiles = runFiles;
+            this.runHeads = new PriorityQueue<>(Math.max(runFiles.size(), 1), (first, second) -> {
+                int order = comparator.compare(first.censusDAO, second.censusDAO);
+                return order != 0 ? order : Integer.compare(first.run, second.run);
+            });
+            try
+            {
+                for (int run = 0; run < runFiles.size(); run++)
+                {
+                    DataInputStream input = new DataInputStream(
+                            new BufferedInputStream(Files.newInputStream(runFiles.get(run)), bufferSize));
+                    inputs.add(input);
+                    CensusDAO censusDAO = readRecord(input);
+                    if (censusDAO != null)
+                        runHeads.add(new RunHead(run, censusDAO));
+                }
+            }
+            catch (IOException e)
+            {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return !runHeads.isEmpty();
+        }
+
+        @Override
+        public CensusDAO next()
+        {
+            RunHead runHead = runHeads.poll();
+            if (runHead == null)
+                throw new NoSuchElementException();
+            CensusDAO censusDAO = runHead.censusDAO;
+            try
+            {
+                runHead.censusDAO = readRecord(inputs.get(runHead.run));
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+            if (runHead.censusDAO != null)
+                runHeads.add(runHead);
+            return censusDAO;
+        }
+
+        @Override
+        public void close()
+        {
+            runHeads.clear();
+            for (DataInputStream input : inputs)
+            {
+                try
+                {
+                    input.close();
+                }
+                catch (IOException e)
+                {
+                    // the run file is deleted below either way
+                }
+            }
+            for (Path runFile : runFiles)
+                deleteQuietly(runFile);
+        }
+    }
+
+    private static class RunHead
+    {
+        private final int run;
+        private CensusDAO censusDAO;
+
+        private RunHead(int run, CensusDAO censusDAO)
+        {
+            this.run = run;
+            this.censusDAO = censusDAO;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.bridgelabz.indianstatecensusanalyser.utility;
+
+import com.bridgelabz.indianstatecensusanalyser.exception.CensusAnalyserException;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusDAO;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Remembers the size, modification time and CRC32 of every file as it was last loaded, so a reload
+ * can tell that nothing changed without parsing, and keeps the parsed records of every file read
+ * through it, so a reload that finds one file changed parses only that file. An unchanged size and
+ * modification time skip hashing altogether, a changed one is confirmed by hashing once per change.
+ * Cached maps are shared, callers must copy records before modifying them.
+ */
+public class CensusFileCache
+{
+    private static final int HASH_WINDOW_SIZE = 1 << 26;
+
+    private final Map<String, FileFingerprint> loadedFiles = new ConcurrentHashMap<>();
+    private final Map<String, FileFingerprint> latestFingerprints = new ConcurrentHashMap<>();
+    private final Map<String, ParsedFile> parsedFiles = new ConcurrentHashMap<>();
+
+    public interface FileReader
+    {
+        Map<String, CensusDAO> read() throws CensusAnalyserException;
+    }
+
+    /**
+     * METHOD TO FINGERPRINT FILES ABOUT TO BE LOADED
+     * Fingerprints are taken before parsing, so a file changed while it is parsed is loaded again next time
+     * @param csvFilePath provides the paths of files
+     * @return fingerprints of the files, to be recorded with loaded once the files are loaded
+     */
+    public Fingerprints fingerprint(String... csvFilePath)
+    {
+        FileFingerprint[] fingerprints = new FileFingerprint[csvFilePath.length];
+        for (int index = 0; index < csvFilePath.length; index++)
+        {
+            try
+            {
+                fingerprints[index] = latestFingerprint(csvFilePath[index]);
+            }
+            catch (IOException e)
+            {
+                fingerprints[index] = null;
+            }
+        }
+        return new Fingerprints(csvFilePath.clone(), fingerprints);
+    }
+
+    /**
+     * METHOD TO CHECK WHETHER EVERY FILE STILL HAS THE CONTENT IT HAD WHEN IT WAS LAST LOADED
+     * @param fingerprints provides the fingerprints of the files
+     * @return true when no file needs to be parsed again
+     */
+    public boolean isLoaded(Fingerprints fingerprints)
+    {
+        for (int index = 0; index < fingerprints.csvFilePaths.length; index++)
+        {
+            FileFingerprint loadedFile = loadedFiles.get(fingerprints.csvFilePaths[index]);
+            if (fingerprints.fingerprints[index] == null || loadedFile == null
+                    || !fingerprints.fingerprints[index].hasSameContent(loadedFile))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * METHOD TO RECORD FILES AS LOADED
+     * @param fingerprints provides the fingerprints taken before the files were loaded
+     */
+    public void loaded(Fingerprints fingerprints)
+    {
+        for (int index = 0; index < fingerprints.csvFilePaths.length; index++)
+        {
+            if (fingerprints.fingerprints[index] == null)
+                loadedFiles.remove(fingerprints.csvFilePaths[index]);
+            else
+                loadedFiles.put(fingerprints.csvFilePaths[index], fingerprints.fingerprints[index]);
+        }
+    }
+
+    /**
+     * METHOD TO GET THE RECORDS OF A FILE, PARSING IT ONLY WHEN ITS CONTENT CHANGED SINCE IT WAS LAST PARSED
+     * @param parseKey provides how the file is parsed, e.g. its model class, key and loader
+     * @param csvFilePath provides the path of file
+     * @param fileReader provides the parser of the file
+     * @return unmodifiable map of records, shared with later reads of the unchanged file
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public Map<String, CensusDAO> read(String parseKey, String csvFilePath, FileReader fileReader)
+            throws CensusAnalyserException
+    {
+        String cacheKey = csvFilePath + '|' + parseKey;
+        FileFingerprint fingerprint;
+        try
+        {
+            fingerprint = latestFingerprint(csvFilePath);
+        }
+        catch (IOException e)
+        {
+            parsedFiles.remove(cacheKey);
+            return fileReader.read();
+        }
+        ParsedFile parsedFile = parsedFiles.get(cacheKey);
+        if (parsedFile != null && fingerprint.hasSameContent(parsedFile.fingerprint))
+            return parsedFile.censusMap;
+        Map<String, CensusDAO> censusMap = Collections.unmodifiableMap(fileReader.read());
+        parsedFiles.put(cacheKey, new ParsedFile(csvFilePath, fingerprint, censusMap));
+        return censusMap;
+    }
+
+    /**
+     * METHOD TO DROP THE PARSED RECORDS OF EVERY FILE BUT THE GIVEN ONES, E.G. AFTER A RELOAD SWITCHED FILES
+     * @param csvFilePath provides the paths of files to keep
+     */
+    public void retain(String... csvFilePath)
+    {
+        List<String> retainedPaths = Arrays.asList(csvFilePath);
+        parsedFiles.values().removeIf(parsedFile -> !retainedPaths.contains(parsedFile.csvFilePath));
+        latestFingerprints.keySet().retainAll(retainedPaths);
+    }
+
+    public void clear()
+    {
+        loadedFiles.clear();
+        latestFingerprints.clear();
+        parsedFiles.clear();
+    }
+
+    /**
+     * METHOD TO FINGERPRINT A FILE, HASHING IT ONLY WHEN IT CHANGED SINCE IT WAS LAST FINGERPRINTED
+     */
+    private FileFingerprint latestFingerprint(String csvFilePath) throws IOException
+    {
+        FileFingerprint fingerprint = FileFingerprint.of(Paths.get(csvFilePath), latestFingerprints.get(csvFilePath));
+        latestFingerprints.put(csvFilePath, fingerprint);
+        return fingerprint;
+    }
+
+    public static class Fingerprints
+    {
+        private final String[] csvFilePaths;
+        private final FileFingerprint[] fingerprints;
+
+        private Fingerprints(String[] csvFilePaths, FileFingerprint[] fingerprints)
+        {
+            this.csvFilePaths = csvFilePaths;
+            this.fingerprints = fingerprints;
+        }
+    }
+
+    private static class ParsedFile
+    {
+        private final String csvFilePath;
+        private final FileFingerprint fingerprint;
+        private final Map<String, CensusDAO> censusMap;
+
+        private ParsedFile(String csvFilePath, FileFingerprint fingerprint, Map<String, CensusDAO> censusMap)
+        {
+            this.csvFilePath = csvFilePath;
+            this.fingerprint = fingerprint;
+            this.censusMap = censusMap;
+        }
+    }
+
+    private static class FileFingerprint
+    {
+        private final long size;
+        private final long lastModified;
+        private final long hash;
+
+        private FileFingerprint(long size, long lastModified, long hash)
+        {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+
+        /**
+         * METHOD TO FINGERPRINT A FILE, REUSING THE PREVIOUS HASH WHEN SIZE AND MODIFICATION TIME ARE UNCHANGED
+         */
+        private static FileFingerprint of(Path path, FileFingerprint previous) throws IOException
+        {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            long size = attributes.size();
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            if (previous != null && previous.size == size && previous.lastModified == lastModified)
+                return previous;
+            return new FileFingerprint(size, lastModified, hash(path));
+        }
+
+        private static long hash(Path path) throws IOException
+        {
+            CRC32 crc32 = new CRC32();
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+            {
+                long size = channel.size();
+                for (long position = 0; position < size; position += HASH_WINDOW_SIZE)
+                {
+                    ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                            Math.min(HASH_WINDOW_SIZE, size - position));
+                    crc32.update(window);
+                }
+            }
+            return crc32.getValue();
+        }
+
+        private boolean hasSameContent(FileFingerprint other)
+        {
+            return size == other.size && hash == other.hash;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.bridgelabz.indianstatecensusanalyser.utility;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Opens census files that may be compressed. Gzip and zstd are recognised by file extension or,
+ * failing that, by their magic bytes, and are decompressed while reading. Zstd needs the zstd-jni
+ * codec on the classpath, it is looked up at runtime so the build does not depend on it.
+ * With more than one processor decompression runs a few chunks ahead of the parser on a thread of a
+ * shared pool, at most one thread per processor. When every pool thread is busy the file is
+ * decompressed on the reading thread instead, so concurrent loads never create threads without bound.
+ */
+public class CensusInputStreams
+{
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int CHUNK_SIZE = 1 << 20;
+    private static final int PIPELINE_DEPTH = 4;
+    private static final long IDLE_THREAD_SECONDS = 30;
+    private static final String ZSTD_INPUT_STREAM = "com.github.luben.zstd.ZstdInputStream";
+
+    public enum Compression
+    {
+        NONE, GZIP, ZSTD
+    }
+
+    /**
+     * METHOD TO DETECT THE COMPRESSION OF A FILE
+     * @param csvFilePath provides the path of file
+     * @return compression named by the extension, otherwise the one matching the first bytes of the file
+     * @throws IOException when the file cannot be read
+     */
+    public static Compression compressionOf(String csvFilePath) throws IOException
+    {
+        String fileName = csvFilePath.toLowerCase();
+        if (fileName.endsWith(".gz") || fileName.endsWith(".gzip"))
+            return Compression.GZIP;
+        if (fileName.endsWith(".zst") || fileName.endsWith(".zstd"))
+            return Compression.ZSTD;
+        byte[] magic = new byte[4];
+        int length;
+        try (InputStream inputStream = Files.newInputStream(Paths.get(csvFilePath)))
+        {
+            length = readFully(inputStream, magic);
+        }
+        if (length >= 2 && magic[0] == (byte) 0x1F && magic[1] == (byte) 0x8B)
+            return Compression.GZIP;
+        if (length >= 4 && magic[0] == (byte) 0x28 && magic[1] == (byte) 0xB5 && magic[2] == (byte) 0x2F
+                && magic[3] == (byte) 0xFD)
+            return Compression.ZSTD;
+        return Compression.NONE;
+    }
+
+    /**
+     * METHOD TO OPEN A COMPRESSED FILE AS A STREAM OF DECOMPRESSED BYTES
+     * @param csvFilePath provides the path of file
+     * @param compression provides the compression of the file
+     * @return decompressing stream
+     * @throws IOException when the file cannot be opened or no codec is available
+     */
+    public static InputStream open(String csvFilePath, Compression compression) throws IOException
+    {
+        Path path = Paths.get(csvFilePath);
+        InputStream inputStream;
+        switch (compression)
+        {
+            case GZIP:
+                inputStream = new GZIPInputStream(Files.newInputStream(path), BUFFER_SIZE);
+                break;
+            case ZSTD:
+                inputStream = zstdInputStream(Files.newInputStream(path));
+                break;
+            default:
+                return Files.newInputStream(path);
+        }
+        if (Runtime.getRuntime().availableProcessors() > 1)
+            return PipelinedInputStream.start(inputStream);
+        return inputStream;
+    }
+
+    /**
+     * METHOD TO OPEN A FILE AS A UTF-8 READER, DECOMPRESSING IT IF NEEDED
+     * @param csvFilePath provides the path of file
+     * @return buffered reader, rejecting malformed input like Files.newBufferedReader
+     * @throws IOException when the file cannot be opened
+     */
+    public static BufferedReader newBufferedReader(String csvFilePath) throws IOException
+    {
+        Compression compression = compressionOf(csvFilePath);
+        if (compression == Compression.NONE)
+            return Files.newBufferedReader(Paths.get(csvFilePath));
+        Reader reader = new InputStreamReader(open(csvFilePath, compression), StandardCharsets.UTF_8.newDecoder());
+        return new BufferedReader(reader, BUFFER_SIZE);
+    }
+
+    /**
+     * METHOD TO READ UNTIL A BUFFER IS FULL OR THE STREAM ENDS
+     * @return number of bytes read, less than the buffer length only at the end of stream
+     */
+    static int readFully(InputStream inputStream, byte[] buffer) throws IOException
+    {
+        int length = 0;
+        int read;
+        while (length < buffer.length && (read = inputStream.read(buffer, length, buffer.length - length)) >= 0)
+            length += read;
+        return length;
+    }
+
+    private static InputStream zstdInputStream(InputStream inputStream) throws IOException
+    {
+        try
+        {
+            return (InputStream) Class.forName(ZSTD_INPUT_STREAM).getConstructor(InputStream.class)
+                    .newInstance(inputStream);
+        }
+        catch (ReflectiveOperationException | LinkageError e)
+        {
+            inputStream.close();
+            throw new IOException("Zstd compressed input needs com.github.luben:zstd-jni on the classpath");
+        }
+    }
+
+    /**
+     * Daemon threads shared by every pipelined stream, created on first use. A task is handed straight
+     * to an idle or new thread and rejected when the pool is full; idle threads end after a while.
+     */
+    private static class DecompressionThreads
+    {
+        private static final ThreadPoolExecutor EXECUTOR = newExecutor();
+
+        private static ThreadPoolExecutor newExecutor()
+        {
+            AtomicInteger threadCount = new AtomicInteger();
+            return new ThreadPoolExecutor(0, Runtime.getRuntime().availableProcessors(), IDLE_THREAD_SECONDS,
+                    TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "census-decompression-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+    }
+
+    /**
+     * Reads the source on a pooled thread into a bounded queue of chunks, so decompression of the
+     * next chunks overlaps with parsing of the current one. The reader owns the source and closes it
+     * itself, so close never releases a decompressor the reader is still inside of. The pooled thread
+     * is interrupted only while it reads for this stream.
+     */
+    private static class PipelinedInputStream extends InputStream
+    {
+        private static final byte[] END_OF_STREAM = new byte[0];
+
+        private final InputStream source;
+        private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(PIPELINE_DEPTH);
+        private final CountDownLatch readerDone = new CountDownLatch(1);
+        private final Object readerLock = new Object();
+        private Thread readerThread;
+        private boolean closed;
+        private volatile Throwable failure;
+        private byte[] chunk = new byte[0];
+        private int position;
+        private boolean ended;
+
+        private PipelinedInputStream(InputStream source)
+        {
+            this.source = source;
+        }
+
+        /**
+         * METHOD TO START READING A SOURCE AHEAD ON A POOLED THREAD
+         * @param source provides the decompressing stream
+         * @return pipelined stream, the source itself when no pooled thread is free
+         */
+        private static InputStream start(InputStream source)
+        {
+            PipelinedInputStream pipelinedInputStream = new PipelinedInputStream(source);
+            try
+            {
+                DecompressionThreads.EXECUTOR.execute(pipelinedInputStream::readChunks);
+                return pipelinedInputStream;
+            }
+            catch (RejectedExecutionException e)
+            {
+                return source;
+            }
+        }
+
+        private void readChunks()
+        {
+            try
+            {
+                synchronized (readerLock)
+                {
+                    if (closed)
+                        return;
+                    readerThread = Thread.currentThread();
+                }
+                while (true)
+                {
+                    byte[] buffer = new byte[CHUNK_SIZE];
+                    int length = readFully(source, buffer);
+                    if (length > 0)
+                        chunks.put(length == buffer.length ? buffer : Arrays.copyOf(buffer, length));
+                    if (length < buffer.length)
+                        break;
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            catch (Throwable e)
+            {
+                failure = e;
+            }
+            finally
+            {
+                closeSource();
+                endStream();
+                synchronized (readerLock)
+                {
+                    readerThread = null;
+                }
+                Thread.interrupted();
+                readerDone.countDown();
+            }
+        }
+
+        private void closeSource()
+        {
+            try
+            {
+                source.close();
+            }
+            catch (Throwable e)
+            {
+                if (failure == null)
+                    failure = e;
+            }
+        }
+
+        /**
+         * METHOD TO ENQUEUE THE END OF STREAM MARKER
+         * When interrupted by close nobody takes chunks any more, so they are dropped to make room for it
+         */
+        private void endStream()
+        {
+            try
+            {
+                chunks.put(END_OF_STREAM);
+            }
+            catch (InterruptedException e)
+            {
+                chunks.clear();
+                chunks.offer(END_OF_STREAM);
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            if (!nextChunk())
+                return -1;
+            return chunk[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException
+        {
+            if (length == 0)
+                return 0;
+            if (!nextChunk())
+                return -1;
+            int count = Math.min(length, chunk.length - position);
+            System.arraycopy(chunk, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+
+        private boolean nextChunk() throws IOException
+        {
+            while (position >= chunk.length)
+            {
+                if (ended)
+                    return false;
+                try
+                {
+                    chunk = chunks.take();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for decompressed data");
+                }
+                position = 0;
+                if (chunk == END_OF_STREAM)
+                {
+                    ended = true;
+                    Throwable failure = this.failure;
+                    if (failure instanceof IOException)
+                        throw (IOException) failure;
+                    if (failure != null)
+                        throw new IOException(String.valueOf(failure.getMessage()), failure);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * METHOD TO STOP THE READER AND WAIT UNTIL IT HAS CLOSED THE SOURCE
+         */
+        @Override
+        public void close()
+        {
+            synchronized (readerLock)
+            {
+                closed = true;
+                if (readerThread != null)
+                    readerThread.interrupt();
+            }
+            boolean interrupted = false;
+            while (readerDone.getCount() > 0)
+            {
+                try
+                {
+                    readerDone.await();
+                }
+                catch (InterruptedException e)
+                {
+                    interrupted = true;
+                }
+            }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+}
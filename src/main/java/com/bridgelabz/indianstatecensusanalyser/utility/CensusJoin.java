@@ -0,0 +1,408 @@
+package com.bridgelabz.indianstatecensusanalyser.utility;
+
+import com.bridgelabz.indianstatecensusanalyser.exception.CensusAnalyserException;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusDAO;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusField;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusKeyIndex;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusPredicate;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusTable;
+import com.bridgelabz.indianstatecensusanalyser.services.CensusAnalyser;
+import com.bridgelabz.indianstatecensusanalyser.utility.CensusCSVSchema.CensusColumn;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Enriches census records from side files keyed by state name or state code. The census file and
+ * every side file are read concurrently, then each side record is joined with a single hash lookup
+ * and its bound columns, other than the join key, are copied onto the matching census record.
+ * Side files are applied in the order they were added. Statistics of the last load are kept per side file.
+ * Read through a CensusFileCache, only files changed since the previous load are parsed and the join
+ * is rebuilt from the cached records of the others.
+ */
+public class CensusJoin
+{
+    private static final int MAX_REPORTED_KEYS = 10;
+
+    public enum JoinKey
+    {
+        STATE(censusDAO -> censusDAO.state, CensusColumn.STATE),
+        STATE_CODE(censusDAO -> censusDAO.stateCode, CensusColumn.STATE_CODE);
+
+        private final Function<CensusDAO, String> keyFunction;
+        private final CensusColumn column;
+
+        JoinKey(Function<CensusDAO, String> keyFunction, CensusColumn column)
+        {
+            this.keyFunction = keyFunction;
+            this.column = column;
+        }
+    }
+
+    private final CensusAnalyser.LoaderMode loaderMode;
+    private final char separator;
+    private final Executor executor;
+    private final List<SideFile> sideFiles = new ArrayList<>();
+    private CensusFileCache censusFileCache;
+    private CensusPredicate censusPredicate;
+    private List<JoinStatistics> joinStatistics = Collections.emptyList();
+
+    public CensusJoin(CensusAnalyser.LoaderMode loaderMode, char separator)
+    {
+        this(loaderMode, separator, ForkJoinPool.commonPool());
+    }
+
+    public CensusJoin(CensusAnalyser.LoaderMode loaderMode, char separator, Executor executor)
+    {
+        this.loaderMode = loaderMode;
+        this.separator = separator;
+        this.executor = executor;
+    }
+
+    /**
+     * METHOD TO ADD A SIDE FILE TO JOIN ONTO THE CENSUS RECORDS
+     * @param csvFilePath provides the path of side file
+     * @param censusCSVClass provides the annotated csv model class of the side file
+     * @param joinKey provides the census field both files are matched on
+     * @return this join
+     */
+    public CensusJoin sideFile(String csvFilePath, Class<?> censusCSVClass, JoinKey joinKey)
+    {
+        sideFiles.add(new SideFile(csvFilePath, censusCSVClass, joinKey));
+        return this;
+    }
+
+    /**
+     * METHOD TO READ FILES THROUGH A CACHE SO ONLY FILES CHANGED SINCE THE LAST LOAD ARE PARSED
+     * Loaded census records are copies, so joining onto them or modifying them leaves the cache intact.
+     * Streamed census files are parsed every time, only their side files are read through the cache
+     * @param censusFileCache provides the cache shared by successive loads
+     * @return this join
+     */
+    public CensusJoin fileCache(CensusFileCache censusFileCache)
+    {
+        this.censusFileCache = censusFileCache;
+        return this;
+    }
+
+    /**
+     * METHOD TO KEEP ONLY THE JOINED RECORDS MATCHING A PREDICATE
+     * Conditions on columns of the census file are tested while it is parsed, so rejected rows never
+     * reach the map; conditions on columns filled by side files are tested after the join. Side
+     * records of rejected rows are counted as unmatched
+     * @param censusPredicate provides the conditions every loaded record must meet
+     * @return this join
+     */
+    public CensusJoin filter(CensusPredicate censusPredicate)
+    {
+        this.censusPredicate = censusPredicate;
+        return this;
+    }
+
+    /**
+     * METHOD TO LOAD A CENSUS FILE AND JOIN ALL SIDE FILES ONTO IT
+     * Side files keyed by state are looked up in the loaded map itself. The state code index is built
+     * once, for the first side file keyed by state code, and only rebuilt after a side file fills state codes
+     * @param censusCSVClass provides the annotated csv model class of the census file
+     * @param csvFilePath provides the path of census file
+     * @return map of joined data keyed by state
+     * @throws CensusAnalyserException while handling the occurred exception, census file errors first
+     */
+    public Map<String, CensusDAO> load(Class<?> censusCSVClass, String csvFilePath) throws CensusAnalyserException
+    {
+        CensusPredicate censusFilter = censusPredicate == null ? null
+                : censusPredicate.on(boundFields(censusCSVClass));
+        boolean filterAfterJoin = censusFilter != censusPredicate;
+        if (censusFilter != null && censusFilter.isEmpty())
+            censusFilter = null;
+        if (sideFiles.isEmpty())
+        {
+            joinStatistics = Collections.emptyList();
+            Map<String, CensusDAO> censusMap = readCensusFile(censusCSVClass, csvFilePath, JoinKey.STATE,
+                    censusFilter);
+            if (censusFileCache != null)
+                censusMap = copyOf(censusMap);
+            return filterAfterJoin ? filter(censusMap, censusPredicate) : censusMap;
+        }
+        CompletableFuture<Map<String, CensusDAO>> censusFuture = readAsync(censusCSVClass, csvFilePath,
+                JoinKey.STATE, censusFilter);
+        List<CompletableFuture<Map<String, CensusDAO>>> sideFutures = new ArrayList<>(sideFiles.size());
+        for (SideFile sideFile : sideFiles)
+            sideFutures.add(readAsync(sideFile.censusCSVClass, sideFile.csvFilePath, sideFile.joinKey, null));
+        Map<String, CensusDAO> censusMap = await(censusFuture);
+        if (censusFileCache != null)
+            censusMap = copyOf(censusMap);
+        List<JoinStatistics> statistics = new ArrayList<>(sideFiles.size());
+        CensusDAO[] censusDAOs = null;
+        CensusKeyIndex stateCodeIndex = null;
+        for (int index = 0; index < sideFiles.size(); index++)
+        {
+            SideFile sideFile = sideFiles.get(index);
+            Map<String, CensusDAO> sideMap = await(sideFutures.get(index));
+            CensusMetrics.Timer timer = CensusMetrics.start(CensusMetrics.Stage.JOIN, sideFile.csvFilePath);
+            if (sideFile.joinKey != JoinKey.STATE && stateCodeIndex == null)
+            {
+                censusDAOs = censusMap.values().toArray(new CensusDAO[0]);
+                stateCodeIndex = new CensusKeyIndex(censusDAOs.length);
+                for (int row = 0; row < censusDAOs.length; row++)
+                    stateCodeIndex.put(sideFile.joinKey.keyFunction.apply(censusDAOs[row]), row);
+            }
+            List<CensusColumn> columns = joinedColumns(sideFile);
+            statistics.add(join(censusMap, censusDAOs, stateCodeIndex, sideFile, columns, sideMap));
+            if (columns.contains(JoinKey.STATE_CODE.column))
+                stateCodeIndex = null;
+            timer.stop(sideMap.size(), 0);
+        }
+        joinStatistics = Collections.unmodifiableList(statistics);
+        return filterAfterJoin ? filter(censusMap, censusPredicate) : censusMap;
+    }
+
+    /**
+     * METHOD TO STREAM A CENSUS FILE, JOINING ALL SIDE FILES ONTO EVERY ROW, WITHOUT COLLECTING THE ROWS
+     * Side files are read first, concurrently; census rows are then joined one by one as they are parsed,
+     * so a state repeated in the census file reaches the consumer once per row. Join statistics count
+     * census rows instead of states
+     * @param censusCSVClass provides the annotated csv model class of the census file
+     * @param csvFilePath provides the path of census file
+     * @param censusConsumer receives every joined record passing the filter, in file order
+     * @throws CensusAnalyserException while handling the occurred exception, side file errors first
+     */
+    public void forEach(Class<?> censusCSVClass, String csvFilePath, Consumer<CensusDAO> censusConsumer)
+            throws CensusAnalyserException
+    {
+        CensusPredicate censusFilter = censusPredicate == null ? null
+                : censusPredicate.on(boundFields(censusCSVClass));
+        boolean filterAfterJoin = censusFilter != censusPredicate;
+        if (censusFilter != null && censusFilter.isEmpty())
+            censusFilter = null;
+        List<CompletableFuture<Map<String, CensusDAO>>> sideFutures = new ArrayList<>(sideFiles.size());
+        for (SideFile sideFile : sideFiles)
+            sideFutures.add(readAsync(sideFile.censusCSVClass, sideFile.csvFilePath, sideFile.joinKey, null));
+        List<Map<String, CensusDAO>> sideMaps = new ArrayList<>(sideFiles.size());
+        List<List<CensusColumn>> sideColumns = new ArrayList<>(sideFiles.size());
+        List<Set<String>> matchedKeys = new ArrayList<>(sideFiles.size());
+        for (int index = 0; index < sideFiles.size(); index++)
+        {
+            sideMaps.add(await(sideFutures.get(index)));
+            sideColumns.add(joinedColumns(sideFiles.get(index)));
+            matchedKeys.add(new HashSet<>());
+        }
+        int[] unmatchedCensusRecords = new int[sideFiles.size()];
+        CensusAdapter.forEachCensusFileRow(loaderMode, separator, censusCSVClass, csvFilePath,
+                censusFilter == null ? null : censusFilter::test, censusDAO -> {
+                    for (int index = 0; index < sideFiles.size(); index++)
+                    {
+                        String key = sideFiles.get(index).joinKey.keyFunction.apply(censusDAO);
+                        CensusDAO sideDAO = key == null ? null : sideMaps.get(index).get(key);
+                        if (sideDAO == null)
+                        {
+                            unmatchedCensusRecords[index]++;
+                            continue;
+                        }
+                        for (CensusColumn column : sideColumns.get(index))
+                            CensusCSVSchema.copy(column, sideDAO, censusDAO);
+                        matchedKeys.get(index).add(key);
+                    }
+                    if (!filterAfterJoin || censusPredicate.test(censusDAO))
+                        censusConsumer.accept(censusDAO);
+                });
+        List<JoinStatistics> statistics = new ArrayList<>(sideFiles.size());
+        for (int index = 0; index < sideFiles.size(); index++)
+        {
+            List<String> unmatchedKeys = new ArrayList<>();
+            for (String key : sideMaps.get(index).keySet())
+            {
+                if (unmatchedKeys.size() >= MAX_REPORTED_KEYS)
+                    break;
+                if (!matchedKeys.get(index).contains(key))
+                    unmatchedKeys.add(key);
+            }
+            int matchedRecords = matchedKeys.get(index).size();
+            statistics.add(new JoinStatistics(sideFiles.get(index).csvFilePath, matchedRecords,
+                    unmatchedCensusRecords[index], sideMaps.get(index).size() - matchedRecords, unmatchedKeys));
+        }
+        joinStatistics = Collections.unmodifiableList(statistics);
+    }
+
+    /**
+     * METHOD TO GET THE JOIN STATISTICS OF THE LAST LOAD
+     * @return one entry per side file in the order they were added
+     */
+    public List<JoinStatistics> getJoinStatistics()
+    {
+        return joinStatistics;
+    }
+
+    /**
+     * METHOD TO COPY THE COLUMNS OF ONE SIDE FILE ONTO THE CENSUS RECORDS WITH THE SAME KEY
+     * The census map is keyed by state, so a state keyed side file probes it directly; other keys go
+     * through the index built over the census records by the caller
+     * @param censusDAOs provides the census records in the row order of the key index
+     * @param keyIndex provides the row of every state code, unused for a state keyed side file
+     * @param columns provides the side file columns to copy
+     */
+    private JoinStatistics join(Map<String, CensusDAO> censusMap, CensusDAO[] censusDAOs, CensusKeyIndex keyIndex,
+                                SideFile sideFile, List<CensusColumn> columns, Map<String, CensusDAO> sideMap)
+    {
+        int matchedRecords = 0;
+        List<String> unmatchedKeys = new ArrayList<>();
+        for (Map.Entry<String, CensusDAO> sideEntry : sideMap.entrySet())
+        {
+            CensusDAO censusDAO;
+            if (sideFile.joinKey == JoinKey.STATE)
+                censusDAO = censusMap.get(sideEntry.getKey());
+            else
+            {
+                int row = keyIndex.get(sideEntry.getKey());
+                censusDAO = row == CensusTable.NO_VALUE ? null : censusDAOs[row];
+            }
+            if (censusDAO == null)
+            {
+                if (unmatchedKeys.size() < MAX_REPORTED_KEYS)
+                    unmatchedKeys.add(sideEntry.getKey());
+                continue;
+            }
+            for (CensusColumn column : columns)
+                CensusCSVSchema.copy(column, sideEntry.getValue(), censusDAO);
+            matchedRecords++;
+        }
+        return new JoinStatistics(sideFile.csvFilePath, matchedRecords, censusMap.size() - matchedRecords,
+                sideMap.size() - matchedRecords, unmatchedKeys);
+    }
+
+    /**
+     * METHOD TO LIST THE COLUMNS A SIDE FILE ADDS TO THE CENSUS RECORDS, ALL BOUND COLUMNS BUT ITS JOIN KEY
+     */
+    private static List<CensusColumn> joinedColumns(SideFile sideFile)
+    {
+        List<CensusColumn> columns = new ArrayList<>(CensusCSVSchema.of(sideFile.censusCSVClass).getColumns());
+        columns.remove(sideFile.joinKey.column);
+        return columns;
+    }
+
+    private CompletableFuture<Map<String, CensusDAO>> readAsync(Class<?> censusCSVClass, String csvFilePath,
+                                                               JoinKey joinKey, CensusPredicate rowFilter)
+    {
+        return CompletableFuture.supplyAsync(() -> {
+            try
+            {
+                return readCensusFile(censusCSVClass, csvFilePath, joinKey, rowFilter);
+            }
+            catch (CensusAnalyserException e)
+            {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * METHOD TO READ ONE FILE INTO A MAP, THROUGH THE FILE CACHE WHEN THERE IS ONE AND NO ROW FILTER
+     */
+    private Map<String, CensusDAO> readCensusFile(Class<?> censusCSVClass, String csvFilePath, JoinKey joinKey,
+                                                  CensusPredicate rowFilter) throws CensusAnalyserException
+    {
+        CensusFileCache.FileReader fileReader = () -> CensusAdapter.readCensusFile(loaderMode, separator,
+                censusCSVClass, csvFilePath, joinKey.keyFunction, rowFilter == null ? null : rowFilter::test);
+        if (censusFileCache == null || rowFilter != null)
+            return fileReader.read();
+        String parseKey = String.join("|", censusCSVClass.getName(), joinKey.name(), loaderMode.name(),
+                String.valueOf(separator));
+        return censusFileCache.read(parseKey, csvFilePath, fileReader);
+    }
+
+    /**
+     * METHOD TO LIST THE CENSUS FIELDS A CSV MODEL CLASS FILLS
+     */
+    private static List<CensusField> boundFields(Class<?> censusCSVClass)
+    {
+        List<CensusField> fields = new ArrayList<>();
+        for (CensusColumn column : CensusCSVSchema.of(censusCSVClass).getColumns())
+            fields.add(CensusField.valueOf(column.name()));
+        return fields;
+    }
+
+    private static Map<String, CensusDAO> filter(Map<String, CensusDAO> censusMap, CensusPredicate censusPredicate)
+    {
+        Map<String, CensusDAO> filteredMap = new LinkedHashMap<>();
+        for (Map.Entry<String, CensusDAO> censusEntry : censusMap.entrySet())
+        {
+            if (censusPredicate.test(censusEntry.getValue()))
+                filteredMap.put(censusEntry.getKey(), censusEntry.getValue());
+        }
+        return filteredMap;
+    }
+
+    private static Map<String, CensusDAO> copyOf(Map<String, CensusDAO> censusMap)
+    {
+        Map<String, CensusDAO> copiedMap = new LinkedHashMap<>(censusMap.size() * 2);
+        for (Map.Entry<String, CensusDAO> censusEntry : censusMap.entrySet())
+        {
+            CensusDAO censusDAO = new CensusDAO();
+            for (CensusColumn column : CensusColumn.values())
+                CensusCSVSchema.copy(column, censusEntry.getValue(), censusDAO);
+            copiedMap.put(censusEntry.getKey(), censusDAO);
+        }
+        return copiedMap;
+    }
+
+    private static Map<String, CensusDAO> await(CompletableFuture<Map<String, CensusDAO>> future)
+            throws CensusAnalyserException
+    {
+        try
+        {
+            return future.join();
+        }
+        catch (CompletionException e)
+        {
+            if (e.getCause() instanceof CensusAnalyserException)
+                throw (CensusAnalyserException) e.getCause();
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    private static class SideFile
+    {
+        private final String csvFilePath;
+        private final Class<?> censusCSVClass;
+        private final JoinKey joinKey;
+
+        private SideFile(String csvFilePath, Class<?> censusCSVClass, JoinKey joinKey)
+        {
+            this.csvFilePath = csvFilePath;
+            this.censusCSVClass = censusCSVClass;
+            this.joinKey = joinKey;
+        }
+    }
+
+    public static class JoinStatistics
+    {
+        public final String csvFilePath;
+        public final int matchedRecords;
+        public final int unmatchedCensusRecords;
+        public final int unmatchedSideRecords;
+        public final List<String> unmatchedSideKeys;
+
+        public JoinStatistics(String csvFilePath, int matchedRecords, int unmatchedCensusRecords,
+                              int unmatchedSideRecords, List<String> unmatchedSideKeys)
+        {
+            this.csvFilePath = csvFilePath;
+            this.matchedRecords = matchedRecords;
+            this.unmatchedCensusRecords = unmatchedCensusRecords;
+            this.unmatchedSideRecords = unmatchedSideRecords;
+            this.unmatchedSideKeys = Collections.unmodifiableList(unmatchedSideKeys);
+        }
+    }
+}
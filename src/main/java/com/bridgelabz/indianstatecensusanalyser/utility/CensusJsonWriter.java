@@ -0,0 +1,66 @@
+package com.bridgelabz.indianstatecensusanalyser.utility;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes census records one at a time as a JSON array, producing the same text as
+ * Gson.toJson on the whole list without holding the list or the text in memory.
+ */
+public class CensusJsonWriter implements Closeable, Flushable
+{
+    private final Gson gson = new Gson();
+    private final JsonWriter jsonWriter;
+
+    public CensusJsonWriter(Writer writer)
+    {
+        this.jsonWriter = new JsonWriter(writer);
+    }
+
+    public CensusJsonWriter beginArray() throws IOException
+    {
+        jsonWriter.beginArray();
+        return this;
+    }
+
+    /**
+     * METHOD TO WRITE ONE RECORD AS THE NEXT ARRAY ELEMENT
+     * @param censusRecord provides the record, serialized by its runtime class
+     * @return this writer
+     * @throws IOException when the underlying writer fails
+     */
+    public CensusJsonWriter write(Object censusRecord) throws IOException
+    {
+        gson.toJson(censusRecord, censusRecord.getClass(), jsonWriter);
+        return this;
+    }
+
+    public CensusJsonWriter endArray() throws IOException
+    {
+        jsonWriter.endArray();
+        return this;
+    }
+
+    public CensusJsonWriter writeNull() throws IOException
+    {
+        jsonWriter.nullValue();
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+        jsonWriter.flush();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        jsonWriter.close();
+    }
+}
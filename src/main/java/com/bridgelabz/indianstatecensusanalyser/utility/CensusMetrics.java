@@ -0,0 +1,136 @@
+package com.bridgelabz.indianstatecensusanalyser.utility;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Timing of the load, sort and export stages. Stages report to the registry set with setRegistry,
+ * InMemoryCensusMetrics by default when one is wanted. Without a registry start returns a shared timer
+ * that does nothing, so a disabled stage costs one volatile read and no allocation.
+ * Allocated bytes are an estimate: only the allocations of the thread running the stage are counted.
+ */
+public class CensusMetrics
+{
+    public enum Stage
+    {
+        PARSE, JOIN, SORT, SERIALIZE, WRITE, QUERY
+    }
+
+    public interface Registry
+    {
+        /**
+         * METHOD TO RECORD ONE RUN OF A STAGE
+         * @param stage provides the stage
+         * @param subject provides what the stage worked on, e.g. the file path or field name
+         * @param nanos provides the elapsed time
+         * @param rows provides the number of records handled
+         * @param bytes provides the number of bytes read or written, 0 when unknown
+         * @param allocatedBytes provides the bytes allocated by the running thread, -1 when unsupported
+         */
+        void record(Stage stage, String subject, long nanos, long rows, long bytes, long allocatedBytes);
+    }
+
+    private static final Timer DISABLED_TIMER = new Timer(null, null, null);
+
+    private static volatile Registry registry;
+
+    /**
+     * METHOD TO SEND STAGE TIMINGS TO A REGISTRY
+     * @param metricsRegistry provides the registry, null to disable timing
+     */
+    public static void setRegistry(Registry metricsRegistry)
+    {
+        registry = metricsRegistry;
+    }
+
+    public static Registry getRegistry()
+    {
+        return registry;
+    }
+
+    public static boolean isEnabled()
+    {
+        return registry != null;
+    }
+
+    /**
+     * METHOD TO START TIMING A STAGE
+     * @param stage provides the stage
+     * @param subject provides what the stage works on
+     * @return timer to stop when the stage is done
+     */
+    public static Timer start(Stage stage, String subject)
+    {
+        Registry metricsRegistry = registry;
+        if (metricsRegistry == null)
+            return DISABLED_TIMER;
+        return new Timer(metricsRegistry, stage, subject);
+    }
+
+    private static long allocatedBytes()
+    {
+        if (ThreadAllocation.THREAD_MX_BEAN == null)
+            return -1;
+        return ThreadAllocation.THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Looks the thread bean up on first use, so disabled timing never initialises management beans.
+     */
+    private static class ThreadAllocation
+    {
+        private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = threadMXBean();
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean()
+    {
+        try
+        {
+            java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+            if (threadMXBean instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported())
+                return (com.sun.management.ThreadMXBean) threadMXBean;
+        }
+        catch (LinkageError | RuntimeException e)
+        {
+            return null;
+        }
+        return null;
+    }
+
+    public static class Timer
+    {
+        private final Registry registry;
+        private final Stage stage;
+        private final String subject;
+        private final long startNanos;
+        private final long startAllocatedBytes;
+
+        private Timer(Registry registry, Stage stage, String subject)
+        {
+            this.registry = registry;
+            this.stage = stage;
+            this.subject = subject;
+            this.startAllocatedBytes = registry == null ? 0 : allocatedBytes();
+            this.startNanos = registry == null ? 0 : System.nanoTime();
+        }
+
+        public boolean isEnabled()
+        {
+            return registry != null;
+        }
+
+        /**
+         * METHOD TO STOP TIMING AND RECORD THE STAGE
+         * @param rows provides the number of records handled
+         * @param bytes provides the number of bytes read or written, 0 when unknown
+         */
+        public void stop(long rows, long bytes)
+        {
+            if (registry == null)
+                return;
+            long nanos = System.nanoTime() - startNanos;
+            long allocatedBytes = startAllocatedBytes < 0 ? -1 : allocatedBytes() - startAllocatedBytes;
+            registry.record(stage, subject, nanos, rows, bytes, allocatedBytes);
+        }
+    }
+}
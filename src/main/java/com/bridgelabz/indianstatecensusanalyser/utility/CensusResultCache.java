@@ -0,0 +1,163 @@
+package com.bridgelabz.indianstatecensusanalyser.utility;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of rendered query results. Every entry remembers the dataset it was rendered from,
+ * usually the published CensusTable, and is only served for that same dataset, so publishing new data
+ * can never serve a stale result even before the cache is invalidated. The least recently used entry
+ * is evicted once the cache is full, and entries older than the time to live are dropped on access.
+ */
+public class CensusResultCache
+{
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Map<String, CachedResult> cachedResults;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public CensusResultCache()
+    {
+        this(DEFAULT_MAX_ENTRIES, 0);
+    }
+
+    /**
+     * @param maxEntries provides the number of results kept, 0 to disable caching
+     * @param ttlMillis provides the time to live of a result, 0 to keep results until evicted
+     */
+    public CensusResultCache(int maxEntries, long ttlMillis)
+    {
+        this.maxEntries = Math.max(maxEntries, 0);
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(ttlMillis, 0));
+        this.cachedResults = new LinkedHashMap<String, CachedResult>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest)
+            {
+                if (size() <= CensusResultCache.this.maxEntries)
+                    return false;
+                evictionCount.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * METHOD TO GET A RESULT, RENDERING AND CACHING IT ON A MISS
+     * The renderer runs outside the lock, concurrent misses of one key may render it more than once
+     * @param key provides the query, e.g. country, field, order and page
+     * @param dataset provides the data the result is rendered from
+     * @param renderer provides the result on a miss
+     * @return cached or freshly rendered result
+     */
+    public String get(String key, Object dataset, Supplier<String> renderer)
+    {
+        String result = this.get(key, dataset);
+        if (result == null)
+        {
+            result = renderer.get();
+            this.put(key, dataset, result);
+        }
+        return result;
+    }
+
+    /**
+     * METHOD TO GET A RESULT RENDERED FROM A DATASET
+     * @param key provides the query
+     * @param dataset provides the data the result must have been rendered from
+     * @return cached result, null on a miss
+     */
+    public String get(String key, Object dataset)
+    {
+        synchronized (cachedResults)
+        {
+            CachedResult cachedResult = cachedResults.get(key);
+            if (cachedResult != null && cachedResult.dataset == dataset && !isExpired(cachedResult))
+            {
+                hitCount.incrementAndGet();
+                return cachedResult.result;
+            }
+            if (cachedResult != null)
+            {
+                cachedResults.remove(key);
+                evictionCount.incrementAndGet();
+            }
+            missCount.incrementAndGet();
+            return null;
+        }
+    }
+
+    public void put(String key, Object dataset, String result)
+    {
+        if (maxEntries == 0 || result == null)
+            return;
+        synchronized (cachedResults)
+        {
+            cachedResults.put(key, new CachedResult(dataset, result, System.nanoTime()));
+        }
+    }
+
+    /**
+     * METHOD TO DROP EVERY RESULT, CALLED WHEN NEW DATA IS PUBLISHED
+     */
+    public void invalidate()
+    {
+        synchronized (cachedResults)
+        {
+            cachedResults.clear();
+        }
+    }
+
+    public int size()
+    {
+        synchronized (cachedResults)
+        {
+            return cachedResults.size();
+        }
+    }
+
+    public long getHitCount()
+    {
+        return hitCount.get();
+    }
+
+    public long getMissCount()
+    {
+        return missCount.get();
+    }
+
+    /**
+     * METHOD TO COUNT RESULTS DROPPED BECAUSE THE CACHE WAS FULL, THEY EXPIRED OR THEIR DATASET CHANGED
+     * @return number of evictions, invalidations are not counted
+     */
+    public long getEvictionCount()
+    {
+        return evictionCount.get();
+    }
+
+    private boolean isExpired(CachedResult cachedResult)
+    {
+        return ttlNanos > 0 && System.nanoTime() - cachedResult.renderedAt > ttlNanos;
+    }
+
+    private static class CachedResult
+    {
+        private final Object dataset;
+        private final String result;
+        private final long renderedAt;
+
+        private CachedResult(Object dataset, String result, long renderedAt)
+        {
+            this.dataset = dataset;
+            this.result = result;
+            this.renderedAt = renderedAt;
+        }
+    }
+}
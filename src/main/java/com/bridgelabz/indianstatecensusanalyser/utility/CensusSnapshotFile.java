@@ -0,0 +1,314 @@
+package com.bridgelabz.indianstatecensusanalyser.utility;
+
+import com.bridgelabz.indianstatecensusanalyser.exception.CensusAnalyserException;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusField;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusTable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary snapshot of a CensusTable, big endian:
+ * header (magic, version, row count, dictionary size, sort index count, country byte count,
+ * dictionary byte count), UTF-8 country, dictionary entry lengths, UTF-8 dictionary bytes, state id,
+ * state code id, population, total area and population density columns, then one sort index per CensusField.
+ * A snapshot is written to a temporary file next to it and moved into place, so a crash never leaves
+ * a truncated snapshot and tables mapped from the previous file keep reading the previous content.
+ */
+public class CensusSnapshotFile
+{
+    private static final int MAGIC = 0x434E5353;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 6 * Integer.BYTES + Long.BYTES;
+
+    /**
+     * METHOD TO SAVE A TABLE WITH ITS SORT INDEXES AS A SNAPSHOT FILE
+     * @param censusTable provides the loaded table
+     * @param country provides the country of the table, checked when the snapshot is loaded
+     * @param snapshotFilePath provides the path of snapshot file, replaced if present
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public static void save(CensusTable censusTable, String country, String snapshotFilePath)
+            throws CensusAnalyserException
+    {
+        if (censusTable == null)
+            throw new CensusAnalyserException("No census data loaded to save as snapshot",
+                    CensusAnalyserException.ExceptionType.SNAPSHOT_FILE_PROBLEM);
+        byte[] countryBytes = country.getBytes(StandardCharsets.UTF_8);
+        byte[][] dictionaryBytes = new byte[censusTable.dictionarySize()][];
+        long dictionaryByteCount = 0;
+        for (int id = 0; id < dictionaryBytes.length; id++)
+        {
+            dictionaryBytes[id] = censusTable.dictionaryValue(id).getBytes(StandardCharsets.UTF_8);
+            dictionaryByteCount += dictionaryBytes[id].length;
+        }
+        Path snapshotPath = Paths.get(snapshotFilePath).toAbsolutePath();
+        Path temporaryPath = null;
+        try
+        {
+            temporaryPath = Files.createTempFile(snapshotPath.getParent(), snapshotPath.getFileName().toString(),
+                    ".tmp");
+            write(censusTable, countryBytes, dictionaryBytes, dictionaryByteCount, temporaryPath);
+            try
+            {
+                Files.move(temporaryPath, snapshotPath, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+                Files.move(temporaryPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        catch (NoSuchFileException e)
+        {
+            throw new CensusAnalyserException("Entered wrong snapshot file name/path",
+                    CensusAnalyserException.ExceptionType.SNAPSHOT_FILE_PROBLEM);
+        }
+        catch (IOException e)
+        {
+            throw new CensusAnalyserException(e.getMessage(),
+                    CensusAnalyserException.ExceptionType.SNAPSHOT_FILE_PROBLEM);
+        }
+        finally
+        {
+            deleteQuietly(temporaryPath);
+        }
+    }
+
+    private static void write(CensusTable censusTable, byte[] countryBytes, byte[][] dictionaryBytes,
+                              long dictionaryByteCount, Path path) throws IOException
+    {
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path), 1 << 16)))
+        {
+            int size = censusTable.size();
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(size);
+            output.writeInt(dictionaryBytes.length);
+            output.writeInt(CensusField.values().length);
+            output.writeInt(countryBytes.length);
+            output.writeLong(dictionaryByteCount);
+            output.write(countryBytes);
+            for (byte[] value : dictionaryBytes)
+                output.writeInt(value.length);
+            for (byte[] value : dictionaryBytes)
+                output.write(value);
+            for (int row = 0; row < size; row++)
+                output.writeInt(censusTable.stateId(row));
+            for (int row = 0; row < size; row++)
+                output.writeInt(censusTable.stateCodeId(row));
+            for (int row = 0; row < size; row++)
+                output.writeLong(censusTable.population(row));
+            for (int row = 0; row < size; row++)
+                output.writeDouble(censusTable.totalArea(row));
+            for (int row = 0; row < size; row++)
+                output.writeDouble(censusTable.populationDensity(row));
+            for (CensusField field : CensusField.values())
+            {
+                for (int rank = 0; rank < size; rank++)
+                    output.writeInt(censusTable.sortedRow(field, rank));
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path path)
+    {
+        try
+        {
+            if (path != null)
+                Files.deleteIfExists(path);
+        }
+        catch (IOException e)
+        {
+            path.toFile().deleteOnExit();
+        }
+    }
+
+    /**
+     * METHOD TO OPEN A SNAPSHOT FILE BY MEMORY MAPPING EACH SECTION
+     * Columns and sort indexes are bulk copied from the mapping, nothing is parsed or re-sorted
+     * @param snapshotFilePath provides the path of snapshot file
+     * @param country provides the country the snapshot must hold
+     * @return restored table
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public static CensusTable open(String snapshotFilePath, String country) throws CensusAnalyserException
+    {
+        try (FileChannel channel = FileChannel.open(Paths.get(snapshotFilePath), StandardOpenOption.READ))
+        {
+            ByteBuffer header = readHeader(channel, country);
+            int size = header.getInt(2 * Integer.BYTES);
+            int dictionarySize = header.getInt(3 * Integer.BYTES);
+            int sortIndexCount = header.getInt(4 * Integer.BYTES);
+            long dictionaryByteCount = header.getLong(6 * Integer.BYTES);
+            long position = HEADER_SIZE + header.getInt(5 * Integer.BYTES);
+            int[] lengths = new int[dictionarySize];
+            map(channel, position, (long) dictionarySize * Integer.BYTES).asIntBuffer().get(lengths);
+            position += (long) dictionarySize * Integer.BYTES;
+            ByteBuffer dictionaryBuffer = map(channel, position, dictionaryByteCount);
+            position += dictionaryByteCount;
+            String[] dictionary = new String[dictionarySize];
+            for (int id = 0; id < dictionarySize; id++)
+            {
+                byte[] value = new byte[lengths[id]];
+                dictionaryBuffer.get(value);
+                dictionary[id] = new String(value, StandardCharsets.UTF_8);
+            }
+            int[] stateIds = new int[size];
+            map(channel, position, (long) size * Integer.BYTES).asIntBuffer().get(stateIds);
+            position += (long) size * Integer.BYTES;
+            int[] stateCodeIds = new int[size];
+            map(channel, position, (long) size * Integer.BYTES).asIntBuffer().get(stateCodeIds);
+            position += (long) size * Integer.BYTES;
+            long[] population = new long[size];
+            map(channel, position, (long) size * Long.BYTES).asLongBuffer().get(population);
+            position += (long) size * Long.BYTES;
+            double[] totalArea = new double[size];
+            map(channel, position, (long) size * Double.BYTES).asDoubleBuffer().get(totalArea);
+            position += (long) size * Double.BYTES;
+            double[] populationDensity = new double[size];
+            map(channel, position, (long) size * Double.BYTES).asDoubleBuffer().get(populationDensity);
+            position += (long) size * Double.BYTES;
+            int[][] sortIndexes = new int[sortIndexCount][size];
+            for (int[] sortIndex : sortIndexes)
+            {
+                map(channel, position, (long) size * Integer.BYTES).asIntBuffer().get(sortIndex);
+                position += (long) size * Integer.BYTES;
+            }
+            return CensusTable.restore(dictionary, stateIds, stateCodeIds, population, totalArea,
+                    populationDensity, sortIndexes);
+        }
+        catch (NoSuchFileException e)
+        {
+            throw new CensusAnalyserException("Entered wrong snapshot file name/path",
+                    CensusAnalyserException.ExceptionType.SNAPSHOT_FILE_PROBLEM);
+        }
+        catch (IOException e)
+        {
+            throw new CensusAnalyserException(e.getMessage(),
+                    CensusAnalyserException.ExceptionType.SNAPSHOT_FILE_PROBLEM);
+        }
+    }
+
+    /**
+     * METHOD TO OPEN A SNAPSHOT FILE AS AN OFF HEAP TABLE READ IN PLACE FROM THE MAPPING
+     * Only the dictionary offsets are computed, into a direct buffer, columns and sort indexes are never
+     * copied, so the operating system pages them in and out and the heap stays the same size
+     * @param snapshotFilePath provides the path of snapshot file, which may be replaced by save but must not be
+     *                         written in place while the table is used
+     * @param country provides the country the snapshot must hold
+     * @return table over the memory mapped sections
+     * @throws CensusAnalyserException while handling the occurred exception
+     */
+    public static CensusTable map(String snapshotFilePath, String country) throws CensusAnalyserException
+    {
+        try (FileChannel channel = FileChannel.open(Paths.get(snapshotFilePath), StandardOpenOption.READ))
+        {
+            ByteBuffer header = readHeader(channel, country);
+            int size = header.getInt(2 * Integer.BYTES);
+            int dictionarySize = header.getInt(3 * Integer.BYTES);
+            long dictionaryByteCount = header.getLong(6 * Integer.BYTES);
+            if (dictionaryByteCount > Integer.MAX_VALUE)
+                throw new CensusAnalyserException("Snapshot dictionary is too large to map",
+                        CensusAnalyserException.ExceptionType.SNAPSHOT_FILE_PROBLEM);
+            long position = HEADER_SIZE + header.getInt(5 * Integer.BYTES);
+            IntBuffer lengths = map(channel, position, (long) dictionarySize * Integer.BYTES).asIntBuffer();
+            position += (long) dictionarySize * Integer.BYTES;
+            IntBuffer dictionaryOffsets = ByteBuffer.allocateDirect((dictionarySize + 1) * Integer.BYTES)
+                    .order(ByteOrder.nativeOrder()).asIntBuffer();
+            for (int id = 0; id < dictionarySize; id++)
+                dictionaryOffsets.put(id + 1, dictionaryOffsets.get(id) + lengths.get(id));
+            ByteBuffer dictionaryBytes = map(channel, position, dictionaryByteCount);
+            position += dictionaryByteCount;
+            IntBuffer stateIds = map(channel, position, (long) size * Integer.BYTES).asIntBuffer();
+            position += (long) size * Integer.BYTES;
+            IntBuffer stateCodeIds = map(channel, position, (long) size * Integer.BYTES).asIntBuffer();
+            position += (long) size * Integer.BYTES;
+            LongBuffer population = map(channel, position, (long) size * Long.BYTES).asLongBuffer();
+            position += (long) size * Long.BYTES;
+            DoubleBuffer totalArea = map(channel, position, (long) size * Double.BYTES).asDoubleBuffer();
+            position += (long) size * Double.BYTES;
+            DoubleBuffer populationDensity = map(channel, position, (long) size * Double.BYTES).asDoubleBuffer();
+            position += (long) size * Double.BYTES;
+            IntBuffer[] sortIndexes = new IntBuffer[CensusField.values().length];
+            for (int index = 0; index < sortIndexes.length; index++)
+            {
+                sortIndexes[index] = map(channel, position, (long) size * Integer.BYTES).asIntBuffer();
+                position += (long) size * Integer.BYTES;
+            }
+            return CensusTable.restore(dictionaryBytes, dictionaryOffsets, stateIds, stateCodeIds, population,
+                    totalArea, populationDensity, sortIndexes);
+        }
+        catch (NoSuchFileException e)
+        {
+            throw new CensusAnalyserException("Entered wrong snapshot file name/path",
+                    CensusAnalyserException.ExceptionType.SNAPSHOT_FILE_PROBLEM);
+        }
+        catch (IOException e)
+        {
+            throw new CensusAnalyserException(e.getMessage(),
+                    CensusAnalyserException.ExceptionType.SNAPSHOT_FILE_PROBLEM);
+        }
+    }
+
+    /**
+     * METHOD TO READ AND CHECK THE HEADER AGAINST THE FILE SIZE AND THE EXPECTED COUNTRY
+     * @return header buffer positioned at its start
+     */
+    private static ByteBuffer readHeader(FileChannel channel, String country)
+            throws IOException, CensusAnalyserException
+    {
+        if (channel.size() < HEADER_SIZE)
+            throw corruptSnapshot();
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        if (header.getInt() != MAGIC || header.getInt() != VERSION)
+            throw new CensusAnalyserException("Not a census snapshot or unsupported snapshot version",
+                    CensusAnalyserException.ExceptionType.SNAPSHOT_FILE_PROBLEM);
+        int size = header.getInt();
+        int dictionarySize = header.getInt();
+        int sortIndexCount = header.getInt();
+        int countryByteCount = header.getInt();
+        long dictionaryByteCount = header.getLong();
+        long expectedFileSize = HEADER_SIZE + countryByteCount + (long) dictionarySize * Integer.BYTES
+                + dictionaryByteCount
+                + (long) size * (2 * Integer.BYTES + 3 * Long.BYTES + sortIndexCount * Integer.BYTES);
+        if (size < 0 || dictionarySize < 0 || countryByteCount < 0 || dictionaryByteCount < 0
+                || sortIndexCount != CensusField.values().length || channel.size() != expectedFileSize)
+            throw corruptSnapshot();
+        byte[] countryBytes = new byte[countryByteCount];
+        map(channel, HEADER_SIZE, countryByteCount).get(countryBytes);
+        String snapshotCountry = new String(countryBytes, StandardCharsets.UTF_8);
+        if (!snapshotCountry.equals(country))
+            throw new CensusAnalyserException("Snapshot holds census data of " + snapshotCountry + ", not " + country,
+                    CensusAnalyserException.ExceptionType.SNAPSHOT_FILE_PROBLEM);
+        header.rewind();
+        return header;
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long length) throws IOException
+    {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+    }
+
+    private static CensusAnalyserException corruptSnapshot()
+    {
+        return new CensusAnalyserException("Snapshot file is truncated or corrupt",
+                CensusAnalyserException.ExceptionType.SNAPSHOT_FILE_PROBLEM);
+    }
+}
@@ -0,0 +1,132 @@
+package com.bridgelabz.indianstatecensusanalyser.utility;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Default in-process CensusMetrics registry. Per stage it keeps counts, totals, a histogram of times
+ * in power of two nanosecond buckets, and the slowest subject seen, so slow files stand out.
+ */
+public class InMemoryCensusMetrics implements CensusMetrics.Registry
+{
+    private static final int BUCKETS = 64;
+
+    private volatile Map<CensusMetrics.Stage, StageMetrics> stageMetrics = emptyStageMetrics();
+
+    @Override
+    public void record(CensusMetrics.Stage stage, String subject, long nanos, long rows, long bytes,
+                       long allocatedBytes)
+    {
+        StageMetrics metrics = stageMetrics.get(stage);
+        metrics.count.increment();
+        metrics.totalNanos.add(nanos);
+        metrics.rows.add(rows);
+        metrics.bytes.add(bytes);
+        if (allocatedBytes > 0)
+            metrics.allocatedBytes.add(allocatedBytes);
+        metrics.histogram.incrementAndGet(BUCKETS - 1 - Long.numberOfLeadingZeros(Math.max(nanos, 1)));
+        synchronized (metrics)
+        {
+            if (nanos > metrics.maxNanos)
+            {
+                metrics.maxNanos = nanos;
+                metrics.slowestSubject = subject;
+            }
+        }
+    }
+
+    /**
+     * METHOD TO READ THE METRICS OF A STAGE
+     * @param stage provides the stage
+     * @return snapshot of the stage metrics
+     */
+    public StageStatistics getStageStatistics(CensusMetrics.Stage stage)
+    {
+        StageMetrics metrics = stageMetrics.get(stage);
+        long[] histogram = new long[BUCKETS];
+        for (int bucket = 0; bucket < BUCKETS; bucket++)
+            histogram[bucket] = metrics.histogram.get(bucket);
+        synchronized (metrics)
+        {
+            return new StageStatistics(metrics.count.sum(), metrics.totalNanos.sum(), metrics.maxNanos,
+                    metrics.rows.sum(), metrics.bytes.sum(), metrics.allocatedBytes.sum(), metrics.slowestSubject,
+                    histogram);
+        }
+    }
+
+    public void reset()
+    {
+        stageMetrics = emptyStageMetrics();
+    }
+
+    private static Map<CensusMetrics.Stage, StageMetrics> emptyStageMetrics()
+    {
+        Map<CensusMetrics.Stage, StageMetrics> stageMetrics = new EnumMap<>(CensusMetrics.Stage.class);
+        for (CensusMetrics.Stage stage : CensusMetrics.Stage.values())
+            stageMetrics.put(stage, new StageMetrics());
+        return stageMetrics;
+    }
+
+    private static class StageMetrics
+    {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+        private long maxNanos;
+        private String slowestSubject;
+    }
+
+    public static class StageStatistics
+    {
+        public final long count;
+        public final long totalNanos;
+        public final long maxNanos;
+        public final long rows;
+        public final long bytes;
+        public final long allocatedBytes;
+        public final String slowestSubject;
+        private final long[] histogram;
+
+        private StageStatistics(long count, long totalNanos, long maxNanos, long rows, long bytes,
+                                long allocatedBytes, String slowestSubject, long[] histogram)
+        {
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.rows = rows;
+            this.bytes = bytes;
+            this.allocatedBytes = allocatedBytes;
+            this.slowestSubject = slowestSubject;
+            this.histogram = histogram;
+        }
+
+        public double getRowsPerSecond()
+        {
+            return totalNanos == 0 ? 0 : rows * (double) TimeUnit.SECONDS.toNanos(1) / totalNanos;
+        }
+
+        /**
+         * METHOD TO ESTIMATE A PERCENTILE OF THE STAGE TIME FROM THE HISTOGRAM
+         * @param percentile provides the percentile, above 0 and at most 100
+         * @return upper bound of the bucket holding the percentile, at most the slowest time
+         */
+        public long getPercentileNanos(double percentile)
+        {
+            long target = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int bucket = 0; bucket < histogram.length; bucket++)
+            {
+                seen += histogram[bucket];
+                if (seen >= target)
+                    return bucket >= 62 ? maxNanos : Math.min((2L << bucket) - 1, maxNanos);
+            }
+            return maxNanos;
+        }
+    }
+}
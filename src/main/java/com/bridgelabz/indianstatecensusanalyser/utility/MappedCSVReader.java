@@ -0,0 +1,509 @@
+package com.bridgelabz.indianstatecensusanalyser.utility;
+
+import com.bridgelabz.indianstatecensusanalyser.exception.CensusAnalyserException;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusDAO;
+import com.bridgelabz.indianstatecensusanalyser.utility.CensusCSVSchema.CensusColumn;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Memory-mapped CSV tokenizer that fills CensusDAO fields straight from the file bytes.
+ * Compressed files cannot be mapped, they are decompressed as a stream into reused heap windows.
+ * Quoted fields may contain the separator but not line breaks.
+ */
+public class MappedCSVReader
+{
+    static final long MAX_WINDOW_SIZE = Integer.MAX_VALUE;
+    private static final int STREAM_WINDOW_SIZE = 1 << 24;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private final byte separator;
+    private final CensusCSVSchema schema;
+
+    public MappedCSVReader(char separator, Class<?> censusCSVClass)
+    {
+        this.separator = (byte) separator;
+        this.schema = CensusCSVSchema.of(censusCSVClass);
+    }
+
+    /**
+     * METHOD TO READ EVERY ROW OF A CSV FILE INTO CENSUS DAO OBJECTS
+     * @param csvFilePath provides the path of file
+     * @param rowConsumer receives one CensusDAO per non blank row in file order
+     * @throws IOException when the file cannot be mapped
+     * @throws CensusAnalyserException when the header or a row does not match the schema
+     */
+    public void read(String csvFilePath, Consumer<CensusDAO> rowConsumer)
+            throws IOException, CensusAnalyserException
+    {
+        this.read(csvFilePath, null, rowConsumer);
+    }
+
+    /**
+     * METHOD TO READ THE ROWS OF A CSV FILE THAT PASS A FILTER INTO CENSUS DAO OBJECTS
+     * @param csvFilePath provides the path of file
+     * @param rowFilter provides the test every parsed row must pass, null to keep every row
+     * @param rowConsumer receives one CensusDAO per non blank row passing the filter in file order
+     * @throws IOException when the file cannot be mapped
+     * @throws CensusAnalyserException when the header or a row does not match the schema
+     */
+    public void read(String csvFilePath, Predicate<CensusDAO> rowFilter, Consumer<CensusDAO> rowConsumer)
+            throws IOException, CensusAnalyserException
+    {
+        forEachWindow(csvFilePath, (window, limit, bindings) ->
+                newRangeParser(window, bindings).parse(0, limit, rowFilter, rowConsumer));
+    }
+
+    /**
+     * METHOD TO MAP A CSV FILE WINDOW BY WINDOW, EACH WINDOW ENDING ON A LINE BREAK
+     * @param csvFilePath provides the path of file
+     * @param windowVisitor receives every window after the header in file order
+     * @throws IOException when the file cannot be mapped
+     * @throws CensusAnalyserException when the header does not match the schema or the visitor fails
+     */
+    void forEachWindow(String csvFilePath, WindowVisitor windowVisitor) throws IOException, CensusAnalyserException
+    {
+        CensusInputStreams.Compression compression = CensusInputStreams.compressionOf(csvFilePath);
+        if (compression != CensusInputStreams.Compression.NONE)
+        {
+            try (InputStream inputStream = CensusInputStreams.open(csvFilePath, compression))
+            {
+                forEachWindow(inputStream, windowVisitor);
+            }
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(csvFilePath), StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, MAX_WINDOW_SIZE));
+            int headerEnd = headerEnd(window);
+            CensusColumn[] bindings = bindHeader(window, headerEnd);
+            long position = headerEnd;
+            while (position < size)
+            {
+                window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(size - position, MAX_WINDOW_SIZE));
+                int limit = position + window.limit() < size ? lastLineEnd(window, window.limit()) : window.limit();
+                if (limit == 0)
+                    throw new CensusAnalyserException("Row exceeds the mappable window size",
+                            CensusAnalyserException.ExceptionType.CSV_FILE_PROBLEM);
+                windowVisitor.visit(window, limit, bindings);
+                position += limit;
+            }
+        }
+    }
+
+    /**
+     * METHOD TO READ A CSV STREAM WINDOW BY WINDOW INTO A REUSED HEAP BUFFER, EACH WINDOW ENDING ON A LINE BREAK
+     * A window is only valid during its visit, the bytes of an unfinished last line are carried over
+     * @param inputStream provides the decompressed bytes of file
+     * @param windowVisitor receives every window after the header in file order
+     * @throws IOException when the stream cannot be read
+     * @throws CensusAnalyserException when the header does not match the schema or the visitor fails
+     */
+    void forEachWindow(InputStream inputStream, WindowVisitor windowVisitor)
+            throws IOException, CensusAnalyserException
+    {
+        byte[] bytes = new byte[STREAM_WINDOW_SIZE];
+        int filled = 0;
+        int start = 0;
+        boolean ended = false;
+        CensusColumn[] bindings = null;
+        while (true)
+        {
+            int read;
+            while (filled < bytes.length && (read = inputStream.read(bytes, filled, bytes.length - filled)) >= 0)
+                filled += read;
+            ended = filled < bytes.length;
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, filled);
+            if (bindings == null)
+            {
+                int headerEnd = headerEnd(buffer);
+                if (headerEnd == filled && !ended)
+                {
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                    continue;
+                }
+                bindings = bindHeader(buffer, headerEnd);
+                start = headerEnd;
+            }
+            int limit = ended ? filled : lastLineEnd(buffer, filled);
+            if (limit > start)
+            {
+                windowVisitor.visit(ByteBuffer.wrap(bytes, start, limit - start).slice(), limit - start, bindings);
+                start = limit;
+            }
+            if (ended)
+                return;
+            if (start == 0)
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            System.arraycopy(bytes, start, bytes, 0, filled - start);
+            filled -= start;
+            start = 0;
+        }
+    }
+
+    /**
+     * METHOD TO FIND THE OFFSET OF THE FIRST DATA ROW
+     * @param buffer provides the bytes at the start of file
+     * @return offset just past the header line
+     * @throws CensusAnalyserException when the file has no header
+     */
+    int headerEnd(ByteBuffer buffer) throws CensusAnalyserException
+    {
+        for (int position = 0; position < buffer.limit(); position++)
+        {
+            if (buffer.get(position) == '\n')
+                return position + 1;
+        }
+        if (buffer.limit() == 0)
+            throw new CensusAnalyserException("Entered incorrect Delimiter or incorrect Header",
+                    CensusAnalyserException.ExceptionType.INCORRECT_DELIMITER_OR_HEADER);
+        return buffer.limit();
+    }
+
+    /**
+     * METHOD TO RESOLVE HEADER POSITIONS ONCE PER FILE
+     * @param buffer provides the bytes at the start of file
+     * @param headerEnd provides the offset just past the header line
+     * @return column bound to each header position
+     * @throws CensusAnalyserException when a required header is missing
+     */
+    CensusColumn[] bindHeader(ByteBuffer buffer, int headerEnd) throws CensusAnalyserException
+    {
+        byte[] headerBytes = new byte[headerEnd];
+        for (int position = 0; position < headerEnd; position++)
+            headerBytes[position] = buffer.get(position);
+        String header = new String(headerBytes, StandardCharsets.UTF_8).replace("\uFEFF", "").trim();
+        List<String> headerFields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (char character : header.toCharArray())
+        {
+            if (character == '"')
+                quoted = !quoted;
+            else if (character == (char) separator && !quoted)
+            {
+                headerFields.add(field.toString());
+                field.setLength(0);
+            }
+            else
+                field.append(character);
+        }
+        headerFields.add(field.toString());
+        return schema.bind(headerFields);
+    }
+
+    /**
+     * METHOD TO FIND THE END OF THE LAST COMPLETE LINE IN A RANGE
+     * @param buffer provides the mapped bytes
+     * @param limit provides the exclusive end of the range
+     * @return offset just past the last line break, or 0 if there is none
+     */
+    static int lastLineEnd(ByteBuffer buffer, int limit)
+    {
+        for (int position = limit - 1; position >= 0; position--)
+        {
+            if (buffer.get(position) == '\n')
+                return position + 1;
+        }
+        return 0;
+    }
+
+    /**
+     * METHOD TO FIND THE START OF THE FIRST LINE AT OR AFTER AN OFFSET
+     * @param buffer provides the mapped bytes
+     * @param position provides the offset to search from
+     * @param limit provides the exclusive end of the range
+     * @return offset just past the next line break, or limit if there is none
+     */
+    static int nextLineStart(ByteBuffer buffer, int position, int limit)
+    {
+        for (; position < limit; position++)
+        {
+            if (buffer.get(position) == '\n')
+                return position + 1;
+        }
+        return limit;
+    }
+
+    RangeParser newRangeParser(ByteBuffer buffer, CensusColumn[] bindings)
+    {
+        return new RangeParser(buffer, bindings);
+    }
+
+    interface WindowVisitor
+    {
+        void visit(ByteBuffer window, int limit, CensusColumn[] bindings) throws CensusAnalyserException;
+    }
+
+    /**
+     * Single threaded parser over one newline aligned byte range of a mapped file.
+     */
+    final class RangeParser
+    {
+        private final ByteBuffer buffer;
+        private final CensusColumn[] bindings;
+        private final int requiredMask;
+        private byte[] scratch = new byte[64];
+        private CensusDAO rejectedDAO;
+
+        private RangeParser(ByteBuffer buffer, CensusColumn[] bindings)
+        {
+            this.buffer = buffer;
+            this.bindings = bindings;
+            int mask = 0;
+            for (CensusColumn column : CensusColumn.values())
+            {
+                if (schema.isRequired(column))
+                    mask |= 1 << column.ordinal();
+            }
+            this.requiredMask = mask;
+        }
+
+        /**
+         * METHOD TO PARSE ALL ROWS IN A BYTE RANGE
+         * @param from provides the first byte of the range, at the start of a row
+         * @param to provides the exclusive end of the range, just past a line break or at end of file
+         * @param rowConsumer receives one CensusDAO per non blank row
+         * @throws CensusAnalyserException when a row does not match the schema
+         */
+        void parse(int from, int to, Consumer<CensusDAO> rowConsumer) throws CensusAnalyserException
+        {
+            this.parse(from, to, null, rowConsumer);
+        }
+
+        /**
+         * METHOD TO PARSE THE ROWS IN A BYTE RANGE THAT PASS A FILTER
+         * A rejected row leaves its CensusDAO to be reused for the next row, so only kept rows allocate one
+         * @param from provides the first byte of the range, at the start of a row
+         * @param to provides the exclusive end of the range, just past a line break or at end of file
+         * @param rowFilter provides the test every parsed row must pass, null to keep every row
+         * @param rowConsumer receives one CensusDAO per non blank row passing the filter
+         * @throws CensusAnalyserException when a row does not match the schema
+         */
+        void parse(int from, int to, Predicate<CensusDAO> rowFilter, Consumer<CensusDAO> rowConsumer)
+                throws CensusAnalyserException
+        {
+            int position = from;
+            while (position < to)
+                position = parseRow(position, to, rowFilter, rowConsumer);
+        }
+
+        private int parseRow(int position, int to, Predicate<CensusDAO> rowFilter, Consumer<CensusDAO> rowConsumer)
+                throws CensusAnalyserException
+        {
+            byte first = buffer.get(position);
+            if (first == '\n')
+                return position + 1;
+            if (first == '\r' && (position + 1 >= to || buffer.get(position + 1) == '\n'))
+                return position + 2;
+            CensusDAO censusDAO = rejectedDAO == null ? new CensusDAO() : reset(rejectedDAO);
+            rejectedDAO = null;
+            int seenMask = 0;
+            int fieldIndex = 0;
+            while (true)
+            {
+                int start = position;
+                int valueStart = start;
+                int valueEnd = start;
+                boolean escaped = false;
+                if (position < to && buffer.get(position) == '"')
+                {
+                    valueStart = ++position;
+                    while (position < to)
+                    {
+                        if (buffer.get(position) == '"')
+                        {
+                            if (position + 1 < to && buffer.get(position + 1) == '"')
+                            {
+                                escaped = true;
+                                position += 2;
+                                continue;
+                            }
+                            break;
+                        }
+                        position++;
+                    }
+                    valueEnd = position;
+                    if (position < to)
+                        position++;
+                }
+                while (position < to)
+                {
+                    byte current = buffer.get(position);
+                    if (current == separator || current == '\n')
+                        break;
+                    position++;
+                }
+                if (valueStart == start)
+                {
+                    valueEnd = position;
+                    if (valueEnd > valueStart && buffer.get(valueEnd - 1) == '\r')
+                        valueEnd--;
+                }
+                CensusColumn column = fieldIndex < bindings.length ? bindings[fieldIndex] : null;
+                if (column != null && valueEnd > valueStart)
+                {
+                    assign(censusDAO, column, valueStart, valueEnd, escaped);
+                    seenMask |= 1 << column.ordinal();
+                }
+                fieldIndex++;
+                if (position >= to || buffer.get(position) == '\n')
+                    break;
+                position++;
+            }
+            if ((seenMask & requiredMask) != requiredMask)
+                throw new CensusAnalyserException("Entered incorrect Delimiter or incorrect Header",
+                        CensusAnalyserException.ExceptionType.INCORRECT_DELIMITER_OR_HEADER);
+            if (rowFilter == null || rowFilter.test(censusDAO))
+                rowConsumer.accept(censusDAO);
+            else
+                rejectedDAO = censusDAO;
+            return position + 1;
+        }
+
+        private CensusDAO reset(CensusDAO censusDAO)
+        {
+            censusDAO.state = null;
+            censusDAO.stateCode = null;
+            censusDAO.population = null;
+            censusDAO.totalArea = 0;
+            censusDAO.populationDensity = 0;
+            return censusDAO;
+        }
+
+        private void assign(CensusDAO censusDAO, CensusColumn column, int start, int end, boolean escaped)
+                throws CensusAnalyserException
+        {
+            switch (column)
+            {
+                case STATE:
+                    censusDAO.state = decode(start, end, escaped);
+                    break;
+                case STATE_CODE:
+                    censusDAO.stateCode = decode(start, end, escaped);
+                    break;
+                case POPULATION:
+                    censusDAO.population = parseInt(start, end);
+                    break;
+                case TOTAL_AREA:
+                    censusDAO.totalArea = parseDouble(start, end);
+                    break;
+                case POPULATION_DENSITY:
+                    censusDAO.populationDensity = parseDouble(start, end);
+                    break;
+            }
+        }
+
+        private String decode(int start, int end, boolean escaped)
+        {
+            int length = end - start;
+            if (scratch.length < length)
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            for (int position = 0; position < length; position++)
+                scratch[position] = buffer.get(start + position);
+            String value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            return escaped ? value.replace("\"\"", "\"") : value;
+        }
+
+        private int parseInt(int start, int end) throws CensusAnalyserException
+        {
+            while (start < end && buffer.get(start) == ' ')
+                start++;
+            while (end > start && buffer.get(end - 1) == ' ')
+                end--;
+            boolean negative = start < end && buffer.get(start) == '-';
+            if (negative || (start < end && buffer.get(start) == '+'))
+                start++;
+            if (start == end || end - start > 10)
+                throw malformedValue();
+            long value = 0;
+            for (int position = start; position < end; position++)
+            {
+                int digit = buffer.get(position) - '0';
+                if (digit < 0 || digit > 9)
+                    throw malformedValue();
+                value = value * 10 + digit;
+            }
+            value = negative ? -value : value;
+            if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+                throw malformedValue();
+            return (int) value;
+        }
+
+        private double parseDouble(int start, int end) throws CensusAnalyserException
+        {
+            while (start < end && buffer.get(start) == ' ')
+                start++;
+            while (end > start && buffer.get(end - 1) == ' ')
+                end--;
+            boolean negative = start < end && buffer.get(start) == '-';
+            int position = negative || (start < end && buffer.get(start) == '+') ? start + 1 : start;
+            long mantissa = 0;
+            int digits = 0;
+            int scale = 0;
+            boolean fraction = false;
+            boolean anyDigit = false;
+            for (; position < end; position++)
+            {
+                byte current = buffer.get(position);
+                if (current >= '0' && current <= '9')
+                {
+                    anyDigit = true;
+                    if (mantissa != 0 || current != '0')
+                        digits++;
+                    if (digits > 18)
+                        return parseDoubleSlowly(start, end);
+                    mantissa = mantissa * 10 + (current - '0');
+                    if (fraction)
+                        scale++;
+                }
+                else if (current == '.' && !fraction)
+                    fraction = true;
+                else
+                    return parseDoubleSlowly(start, end);
+            }
+            if (!anyDigit)
+                throw malformedValue();
+            if (scale >= POWERS_OF_TEN.length || mantissa > MAX_EXACT_MANTISSA)
+                return parseDoubleSlowly(start, end);
+            double value = mantissa / POWERS_OF_TEN[scale];
+            return negative ? -value : value;
+        }
+
+        private double parseDoubleSlowly(int start, int end) throws CensusAnalyserException
+        {
+            try
+            {
+                return Double.parseDouble(decode(start, end, false));
+            }
+            catch (NumberFormatException e)
+            {
+                throw malformedValue();
+            }
+        }
+
+        private CensusAnalyserException malformedValue()
+        {
+            return new CensusAnalyserException("Entered incorrect Delimiter or incorrect Header",
+                    CensusAnalyserException.ExceptionType.INCORRECT_DELIMITER_OR_HEADER);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.bridgelabz.indianstatecensusanalyser.utility;
+
+import com.bridgelabz.indianstatecensusanalyser.exception.CensusAnalyserException;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusDAO;
+import com.bridgelabz.indianstatecensusanalyser.utility.CensusCSVSchema.CensusColumn;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Splits a mapped CSV file into newline aligned byte ranges and parses them on fork-join workers.
+ * Partial maps are merged in file order so a key repeated in the file keeps its last row,
+ * exactly as the sequential loaders do.
+ */
+public class ParallelCSVLoader
+{
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+    private static final int STREAM_CHUNK_SIZE = 1 << 22;
+
+    private final MappedCSVReader mappedCSVReader;
+    private final ForkJoinPool forkJoinPool;
+
+    public ParallelCSVLoader(char separator, Class<?> censusCSVClass)
+    {
+        this(separator, censusCSVClass, ForkJoinPool.commonPool());
+    }
+
+    public ParallelCSVLoader(char separator, Class<?> censusCSVClass, ForkJoinPool forkJoinPool)
+    {
+        this.mappedCSVReader = new MappedCSVReader(separator, censusCSVClass);
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    /**
+     * METHOD TO LOAD A CSV FILE INTO A STATE MAP USING ALL WORKERS OF THE POOL
+     * @param csvFilePath provides the path of file
+     * @return map of loaded data keyed by state
+     * @throws IOException when the file cannot be mapped
+     * @throws CensusAnalyserException when the header or a row does not match the schema
+     */
+    public Map<String, CensusDAO> read(String csvFilePath) throws IOException, CensusAnalyserException
+    {
+        return read(csvFilePath, censusDAO -> censusDAO.state);
+    }
+
+    /**
+     * METHOD TO LOAD A CSV FILE INTO A MAP KEYED BY ANY FIELD USING ALL WORKERS OF THE POOL
+     * @param csvFilePath provides the path of file
+     * @param keyFunction provides the map key of a record
+     * @return map of loaded data, the last row winning for a repeated key
+     * @throws IOException when the file cannot be mapped
+     * @throws CensusAnalyserException when the header or a row does not match the schema
+     */
+    public Map<String, CensusDAO> read(String csvFilePath, Function<CensusDAO, String> keyFunction)
+            throws IOException, CensusAnalyserException
+    {
+        return this.read(csvFilePath, keyFunction, null);
+    }
+
+    /**
+     * METHOD TO LOAD THE ROWS OF A CSV FILE THAT PASS A FILTER USING ALL WORKERS OF THE POOL
+     * @param csvFilePath provides the path of file
+     * @param keyFunction provides the map key of a record
+     * @param rowFilter provides the test every parsed row must pass, null to keep every row
+     * @return map of loaded data, the last kept row winning for a repeated key
+     * @throws IOException when the file cannot be mapped
+     * @throws CensusAnalyserException when the header or a row does not match the schema
+     */
+    public Map<String, CensusDAO> read(String csvFilePath, Function<CensusDAO, String> keyFunction,
+                                       Predicate<CensusDAO> rowFilter) throws IOException, CensusAnalyserException
+    {
+        List<Map<String, CensusDAO>> windowMaps = new ArrayList<>();
+        mappedCSVReader.forEachWindow(csvFilePath, (window, limit, bindings) -> {
+            int chunkSize = Math.max(MIN_CHUNK_SIZE, limit / (forkJoinPool.getParallelism() * 4));
+            try
+            {
+                windowMaps.add(forkJoinPool.invoke(
+                        new ChunkTask(window, bindings, 0, limit, chunkSize, keyFunction, rowFilter)));
+            }
+            catch (RuntimeException e)
+            {
+                throw unwrap(e);
+            }
+        });
+        Map<String, CensusDAO> censusMap = windowMaps.isEmpty() ? new HashMap<>() : windowMaps.get(0);
+        for (int index = 1; index < windowMaps.size(); index++)
+            censusMap = merge(censusMap, windowMaps.get(index));
+        return censusMap;
+    }
+
+    /**
+     * METHOD TO STREAM THE ROWS OF A CSV FILE THAT PASS A FILTER, PARSED ON THE WORKERS OF THE POOL
+     * Newline aligned chunks are parsed a few at a time ahead of the consumer, which receives their
+     * rows in file order on the calling thread, so only the chunks in flight are held in memory
+     * @param csvFilePath provides the path of file
+     * @param rowFilter provides the test every parsed row must pass, null to keep every row
+     * @param rowConsumer receives every kept row in file order
+     * @throws IOException when the file cannot be mapped
+     * @throws CensusAnalyserException when the header or a row does not match the schema
+     */
+    public void forEach(String csvFilePath, Predicate<CensusDAO> rowFilter, Consumer<CensusDAO> rowConsumer)
+            throws IOException, CensusAnalyserException
+    {
+        int maxChunksInFlight = forkJoinPool.getParallelism() * 2;
+        mappedCSVReader.forEachWindow(csvFilePath, (window, limit, bindings) -> {
+            Deque<ForkJoinTask<List<CensusDAO>>> chunksInFlight = new ArrayDeque<>();
+            int from = 0;
+            while (from < limit || !chunksInFlight.isEmpty())
+            {
+                while (from < limit && chunksInFlight.size() < maxChunksInFlight)
+                {
+                    int chunkFrom = from;
+                    int chunkTo = limit - from > STREAM_CHUNK_SIZE
+                            ? MappedCSVReader.nextLineStart(window, from + STREAM_CHUNK_SIZE, limit) : limit;
+                    chunksInFlight.add(forkJoinPool.submit(() -> {
+                        List<CensusDAO> chunkRows = new ArrayList<>();
+                        mappedCSVReader.newRangeParser(window, bindings).parse(chunkFrom, chunkTo, rowFilter,
+                                chunkRows::add);
+                        return chunkRows;
+                    }));
+                    from = chunkTo;
+                }
+                try
+                {
+                    chunksInFlight.poll().join().forEach(rowConsumer);
+                }
+                catch (RuntimeException e)
+                {
+                    for (ForkJoinTask<List<CensusDAO>> chunk : chunksInFlight)
+                        chunk.quietlyJoin();
+                    throw unwrap(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * METHOD TO MERGE TWO PARTIAL MAPS, ROWS OF THE LATER RANGE WINNING ON DUPLICATE KEYS
+     * @param earlier provides the map of the range that comes first in the file
+     * @param later provides the map of the range that follows it
+     * @return merged map, reusing the larger of the two
+     */
+    private static Map<String, CensusDAO> merge(Map<String, CensusDAO> earlier, Map<String, CensusDAO> later)
+    {
+        if (earlier.size() >= later.size())
+        {
+            earlier.putAll(later);
+            return earlier;
+        }
+        earlier.forEach(later::putIfAbsent);
+        return later;
+    }
+
+    private static RuntimeException unwrap(RuntimeException exception) throws CensusAnalyserException
+    {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause())
+        {
+            if (cause instanceof CensusAnalyserException)
+                throw (CensusAnalyserException) cause;
+        }
+        return exception;
+    }
+
+    private final class ChunkTask extends RecursiveTask<Map<String, CensusDAO>>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final ByteBuffer window;
+        private final CensusColumn[] bindings;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+        private final Function<CensusDAO, String> keyFunction;
+        private final Predicate<CensusDAO> rowFilter;
+
+        private ChunkTask(ByteBuffer window, CensusColumn[] bindings, int from, int to, int chunkSize,
+                          Function<CensusDAO, String> keyFunction, Predicate<CensusDAO> rowFilter)
+        {
+            this.window = window;
+            this.bindings = bindings;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+            this.keyFunction = keyFunction;
+            this.rowFilter = rowFilter;
+        }
+
+        @Override
+        protected Map<String, CensusDAO> compute()
+        {
+            int middle = to - from > chunkSize
+                    ? MappedCSVReader.nextLineStart(window, from + (to - from) / 2, to) : to;
+            if (middle >= to)
+                return parseChunk();
+            ChunkTask later = new ChunkTask(window, bindings, middle, to, chunkSize, keyFunction, rowFilter);
+            later.fork();
+            Map<String, CensusDAO> earlierMap =
+                    new ChunkTask(window, bindings, from, middle, chunkSize, keyFunction, rowFilter).compute();
+            return merge(earlierMap, later.join());
+        }
+
+        private Map<String, CensusDAO> parseChunk()
+        {
+            Map<String, CensusDAO> chunkMap = new HashMap<>();
+            try
+            {
+                mappedCSVReader.newRangeParser(window, bindings)
+                        .parse(from, to, rowFilter, censusDAO -> chunkMap.put(keyFunction.apply(censusDAO), censusDAO));
+            }
+            catch (CensusAnalyserException e)
+            {
+                throw new IllegalStateException(e);
+            }
+            return chunkMap;
+        }
+    }
+}
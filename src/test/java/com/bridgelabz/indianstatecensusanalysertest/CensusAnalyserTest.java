@@ -1,9 +1,30 @@
 package com.bridgelabz.indianstatecensusanalysertest;
 
 import com.bridgelabz.indianstatecensusanalyser.exception.CensusAnalyserException;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusCursor;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusDAO;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusDiff;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusField;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusGrouping;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusPredicate;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusStatistics;
+import com.bridgelabz.indianstatecensusanalyser.model.CensusTable;
 import com.bridgelabz.indianstatecensusanalyser.model.IndiaCensusCSV;
+import com.bridgelabz.indianstatecensusanalyser.model.IndiaStateCodeCSV;
 import com.bridgelabz.indianstatecensusanalyser.model.USCensusCSV;
 import com.bridgelabz.indianstatecensusanalyser.services.CensusAnalyser;
+import com.bridgelabz.indianstatecensusanalyser.services.CensusBatchRunner;
+import com.bridgelabz.indianstatecensusanalyser.services.CensusDirectoryWatcher;
+import com.bridgelabz.indianstatecensusanalyser.services.CensusRegistry;
+import com.bridgelabz.indianstatecensusanalyser.utility.CensusAdapter;
+import com.bridgelabz.indianstatecensusanalyser.utility.CensusAdapterFactory;
+import com.bridgelabz.indianstatecensusanalyser.utility.CensusCSVSchema;
+import com.bridgelabz.indianstatecensusanalyser.utility.CensusExternalSorter;
+import com.bridgelabz.indianstatecensusanalyser.utility.CensusInputStreams;
+import com.bridgelabz.indianstatecensusanalyser.utility.CensusJoin;
+import com.bridgelabz.indianstatecensusanalyser.utility.CensusMetrics;
+import com.bridgelabz.indianstatecensusanalyser.utility.CensusResultCache;
+import com.bridgelabz.indianstatecensusanalyser.utility.InMemoryCensusMetrics;
 import com.google.gson.Gson;
 import org.hamcrest.CoreMatchers;
 import org.junit.Assert;
@@ -11,7 +32,25 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 public class CensusAnalyserTest
 {
@@ -41,6 +80,31 @@ public class CensusAnalyserTest
         }
     }
 
+    @Test
+    public void givenIndianCensusCSVFile_WhenLoadedWithMappedLoader_ReturnsCorrectRecords()
+            throws CensusAnalyserException
+    {
+        int numOfRecords = indiaCensusAnalyser.loadCensusData(CensusAnalyser.Country.INDIA,
+                CensusAnalyser.LoaderMode.MAPPED, ',', "./src/test/resources/IndiaStateCensusData.csv",
+                "./src/test/resources/IndiaStateCode.csv");
+        Assert.assertEquals(29, numOfRecords);
+    }
+
+    @Test
+    public void givenIndiaCensusData_WhenLoadedWithMappedLoader_WithIncorrectDelimiter_ShouldThrowException()
+    {
+        try
+        {
+            indiaCensusAnalyser.loadCensusData(CensusAnalyser.Country.INDIA, CensusAnalyser.LoaderMode.MAPPED,
+                    ';', "./src/test/resources/IndiaStateCensusData.csv");
+            Assert.fail();
+        }
+        catch (CensusAnalyserException e)
+        {
+            Assert.assertEquals(CensusAnalyserException.ExceptionType.INCORRECT_DELIMITER_OR_HEADER, e.type);
+        }
+    }
+
     @Test
     public void givenIndiaCensusData_WithWrongFile_ShouldThrowException()
     {
@@ -113,6 +177,40 @@ public class CensusAnalyserTest
         }
     }
 
+    @Test
+    public void givenIndiaStateCodeCSVFile_WhenJoinedAsSideFile_ShouldReturnJoinStatistics()
+            throws CensusAnalyserException
+    {
+        CensusJoin censusJoin = new CensusJoin(CensusAnalyser.LoaderMode.MAPPED, ',')
+                .sideFile("./src/test/resources/IndiaStateCode.csv", IndiaStateCodeCSV.class,
+                        CensusJoin.JoinKey.STATE);
+        int numOfRecords = indiaCensusAnalyser.loadCensusData(CensusAnalyser.Country.INDIA, censusJoin,
+                "./src/test/resources/IndiaStateCensusData.csv");
+        CensusJoin.JoinStatistics joinStatistics = censusJoin.getJoinStatistics().get(0);
+        Assert.assertEquals(29, numOfRecords);
+        Assert.assertEquals(29, joinStatistics.matchedRecords);
+        Assert.assertEquals(0, joinStatistics.unmatchedCensusRecords);
+    }
+
+    @Test
+    public void givenSideFilesKeyedByStateThenStateCode_WhenJoined_ShouldMatchCodesFilledByEarlierSideFile()
+            throws CensusAnalyserException
+    {
+        CensusJoin censusJoin = new CensusJoin(CensusAnalyser.LoaderMode.MAPPED, ',')
+                .sideFile("./src/test/resources/IndiaStateCode.csv", IndiaStateCodeCSV.class,
+                        CensusJoin.JoinKey.STATE)
+                .sideFile("./src/test/resources/IndiaStateCode.csv", IndiaStateCodeCSV.class,
+                        CensusJoin.JoinKey.STATE_CODE);
+        indiaCensusAnalyser.loadCensusData(CensusAnalyser.Country.INDIA, censusJoin,
+                "./src/test/resources/IndiaStateCensusData.csv");
+        CensusJoin.JoinStatistics stateStatistics = censusJoin.getJoinStatistics().get(0);
+        CensusJoin.JoinStatistics stateCodeStatistics = censusJoin.getJoinStatistics().get(1);
+        Assert.assertEquals(29, stateStatistics.matchedRecords);
+        Assert.assertEquals(29, stateCodeStatistics.matchedRecords);
+        Assert.assertEquals(0, stateCodeStatistics.unmatchedCensusRecords);
+        Assert.assertEquals("Kerala", indiaCensusAnalyser.getStateOfStateCode("KL"));
+    }
+
     @Test
     public void givenIndiaStateCodeData_WithWrongFile_ShouldThrowException()
     {
@@ -291,6 +389,121 @@ public class CensusAnalyserTest
         }
     }
 
+    @Test
+    public void givenCensusRecords_WhenStoredInCensusTable_ShouldEncodeStringsOnceAndMaterializeSameRecords()
+    {
+        CensusDAO kerala = censusDAO("Kerala", "KL", 33406061, 38863);
+        CensusDAO goa = censusDAO("Goa", null, 1458545, 3702);
+        CensusDAO keralaCoast = censusDAO("Kerala Coast", "KL", 2000000, 590);
+        CensusTable censusTable = CensusTable.of(Arrays.asList(kerala, goa, keralaCoast));
+        Assert.assertEquals(3, censusTable.size());
+        Assert.assertEquals(4, censusTable.dictionarySize());
+        Assert.assertEquals(censusTable.stateCodeId(0), censusTable.stateCodeId(2));
+        Assert.assertEquals(CensusTable.NO_VALUE, censusTable.stateCodeId(1));
+        Assert.assertEquals(33406061L, censusTable.population(0));
+        Assert.assertEquals(3702, censusTable.totalArea(1), 0.0);
+        CensusDAO materialized = censusTable.getCensusDAO(2);
+        Assert.assertNotSame(keralaCoast, materialized);
+        Assert.assertEquals("Kerala Coast", materialized.state);
+        Assert.assertEquals("KL", materialized.stateCode);
+        Assert.assertEquals(Integer.valueOf(2000000), materialized.population);
+        Assert.assertEquals(590, materialized.populationDensity, 0.0);
+        Assert.assertNull(censusTable.getCensusDAO(1).stateCode);
+    }
+
+    @Test
+    public void givenCensusTable_WhenBuilt_ShouldHoldSortIndexOfEveryFieldInDefaultOrder()
+    {
+        List<CensusDAO> censusDAOs = new ArrayList<>();
+        for (int index = 0; index < 40; index++)
+            censusDAOs.add(censusDAO("State " + (index * 17) % 40, index % 9 == 0 ? null : "S" + index % 6,
+                    (index * 7) % 11, (index * 13) % 5));
+        CensusTable censusTable = CensusTable.of(censusDAOs);
+        for (CensusField field : CensusField.values())
+        {
+            int[] sortedRows = censusTable.sortedRows(field);
+            Assert.assertEquals(censusTable.size(), sortedRows.length);
+            Assert.assertEquals(censusTable.size(), Arrays.stream(sortedRows).distinct().count());
+            for (int rank = 1; rank < sortedRows.length; rank++)
+                Assert.assertTrue(field + " at rank " + rank,
+                        compareRows(censusTable, field, sortedRows[rank - 1], sortedRows[rank]) <= 0);
+            Assert.assertArrayEquals(Arrays.copyOfRange(sortedRows, 5, 12), censusTable.sortedRows(field, 5, 12));
+            Assert.assertEquals(sortedRows[3], censusTable.sortedRow(field, 3));
+        }
+    }
+
+    private static int compareRows(CensusTable censusTable, CensusField field, int firstRow, int secondRow)
+    {
+        switch (field)
+        {
+            case STATE:
+                return censusTable.state(firstRow).compareTo(censusTable.state(secondRow));
+            case STATE_CODE:
+                String firstCode = censusTable.stateCode(firstRow);
+                String secondCode = censusTable.stateCode(secondRow);
+                if (firstCode == null || secondCode == null)
+                    return firstCode == null ? (secondCode == null ? 0 : 1) : -1;
+                return firstCode.compareTo(secondCode);
+            case POPULATION:
+                return Long.compare(censusTable.population(secondRow), censusTable.population(firstRow));
+            case POPULATION_DENSITY:
+                return Double.compare(censusTable.populationDensity(secondRow),
+                        censusTable.populationDensity(firstRow));
+            default:
+                return Double.compare(censusTable.totalArea(secondRow), censusTable.totalArea(firstRow));
+        }
+    }
+
+    @Test
+    public void givenIndianCensusData_WhenStreamedByPopulation_ShouldMatchSortedJson()
+    {
+        try
+        {
+            indiaCensusAnalyser.loadCensusData(CensusAnalyser.Country.INDIA, ',',
+                    "./src/test/resources/IndiaStateCensusData.csv");
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            indiaCensusAnalyser.writeSortedCensusData("population", outputStream);
+            Assert.assertEquals(indiaCensusAnalyser.getSortedCensusData("population"),
+                    new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+        }
+        catch (CensusAnalyserException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    public void givenIndianCensusData_WhenSavedAsSnapshot_ShouldReloadSameSortedData()
+            throws IOException, CensusAnalyserException
+    {
+        Path snapshotFile = Files.createTempFile("IndiaStateCensusData", ".snapshot");
+        try
+        {
+            indiaCensusAnalyser.loadCensusData(CensusAnalyser.Country.INDIA, ',',
+                    "./src/test/resources/IndiaStateCensusData.csv",
+                    "./src/test/resources/IndiaStateCode.csv");
+            indiaCensusAnalyser.saveSnapshot(snapshotFile.toString());
+            CensusAnalyser snapshotCensusAnalyser = new CensusAnalyser(CensusAnalyser.Country.INDIA);
+            int numOfRecords = snapshotCensusAnalyser.loadSnapshot(snapshotFile.toString());
+            Assert.assertEquals(29, numOfRecords);
+            Assert.assertEquals(indiaCensusAnalyser.getSortedCensusData("stateCode"),
+                    snapshotCensusAnalyser.getSortedCensusData("stateCode"));
+            try
+            {
+                usCensusAnalyser.loadSnapshot(snapshotFile.toString());
+                Assert.fail();
+            }
+            catch (CensusAnalyserException e)
+            {
+                Assert.assertEquals(CensusAnalyserException.ExceptionType.SNAPSHOT_FILE_PROBLEM, e.type);
+            }
+        }
+        finally
+        {
+            Files.delete(snapshotFile);
+        }
+    }
+
     @Test
     public void givenUSCensusCSVFile_ReturnsCorrectRecords()
     {
@@ -306,6 +519,54 @@ public class CensusAnalyserTest
         }
     }
 
+    @Test
+    public void givenUSCensusCSVFile_WhenLoadedInParallel_ReturnsCorrectRecords()
+    {
+        try
+        {
+            int numOfRecords = usCensusAnalyser.loadCensusData(CensusAnalyser.Country.US,
+                    CensusAnalyser.LoaderMode.PARALLEL, ',', "./src/test/resources/USCensusData.csv");
+            Assert.assertEquals(51, numOfRecords);
+        }
+        catch (CensusAnalyserException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    public void givenUSCensusFileSpanningManyChunks_WhenLoadedInParallel_ShouldMatchSequentialLoad()
+            throws IOException, CensusAnalyserException
+    {
+        Path censusFile = Files.createTempFile("USCensusData", ".csv");
+        try
+        {
+            try (Writer writer = Files.newBufferedWriter(censusFile, StandardCharsets.UTF_8))
+            {
+                writer.write("State Id,State,Population,Housing units,Total area,Water area,Land area,"
+                        + "Population Density,Housing Density\n");
+                for (int row = 0; row < 200000; row++)
+                    writer.write("S" + row % 70001 + ",State " + row % 70001 + "," + row + "," + row % 7
+                            + "," + (row % 977) * 1.25 + ",1,2," + (row % 89) * 0.5 + ",4\n");
+            }
+            Map<String, CensusDAO> parallelMap = CensusAdapterFactory.getCensusDataObject(
+                    CensusAnalyser.Country.US, CensusAnalyser.LoaderMode.PARALLEL, ',', censusFile.toString());
+            Map<String, CensusDAO> sequentialMap = CensusAdapterFactory.getCensusDataObject(
+                    CensusAnalyser.Country.US, CensusAnalyser.LoaderMode.MAPPED, ',', censusFile.toString());
+            Assert.assertTrue(Files.size(censusFile) > 8 << 20);
+            Assert.assertEquals(70001, parallelMap.size());
+            Assert.assertEquals(sequentialMap.keySet(), parallelMap.keySet());
+            Gson gson = new Gson();
+            for (Map.Entry<String, CensusDAO> censusEntry : sequentialMap.entrySet())
+                Assert.assertEquals(gson.toJson(censusEntry.getValue()),
+                        gson.toJson(parallelMap.get(censusEntry.getKey())));
+        }
+        finally
+        {
+            Files.delete(censusFile);
+        }
+    }
+
     @Test
     public void givenUSCensusData_WhenSortedByPopulation_ShouldReturnFirstStateInList()
     {
@@ -340,6 +601,61 @@ public class CensusAnalyserTest
         }
     }
 
+    @Test
+    public void givenUSCensusData_WhenTopThreeByPopulation_ShouldReturnThreeRecordsStartingWithCalifornia()
+    {
+        try
+        {
+            usCensusAnalyser.loadCensusData(CensusAnalyser.Country.US, ',',
+                    "./src/test/resources/USCensusData.csv");
+            String topCensus = usCensusAnalyser.getTopCensusData("population", 3);
+            USCensusCSV[] censusList = new Gson().fromJson(topCensus, USCensusCSV[].class);
+            Assert.assertEquals(3, censusList.length);
+            Assert.assertThat(censusList[0].state, CoreMatchers.is("California"));
+        }
+        catch (CensusAnalyserException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    public void givenUSCensusData_WhenBottomOneByPopulation_ShouldReturnWyoming()
+    {
+        try
+        {
+            usCensusAnalyser.loadCensusData(CensusAnalyser.Country.US, ',',
+                    "./src/test/resources/USCensusData.csv");
+            String bottomCensus = usCensusAnalyser.getBottomCensusData("population", 1);
+            USCensusCSV[] censusList = new Gson().fromJson(bottomCensus, USCensusCSV[].class);
+            Assert.assertThat(censusList[0].state, CoreMatchers.is("Wyoming"));
+        }
+        catch (CensusAnalyserException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    public void givenUSCensusData_WhenPagedByTotalArea_ShouldReturnRequestedPage()
+    {
+        try
+        {
+            usCensusAnalyser.loadCensusData(CensusAnalyser.Country.US, ',',
+                    "./src/test/resources/USCensusData.csv");
+            USCensusCSV[] sortedList = new Gson().fromJson(usCensusAnalyser.getSortedCensusData("totalArea"),
+                    USCensusCSV[].class);
+            USCensusCSV[] pageList = new Gson().fromJson(usCensusAnalyser.getSortedCensusData("totalArea", 10, 5),
+                    USCensusCSV[].class);
+            Assert.assertEquals(5, pageList.length);
+            Assert.assertThat(pageList[0].state, CoreMatchers.is(sortedList[10].state));
+        }
+        catch (CensusAnalyserException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
     @Test
     public void givenUSCensusData_WhenSortedByPopulationDensity_ShouldReturnFirstStateInList()
     {
@@ -423,4 +739,616 @@ public class CensusAnalyserTest
             e.printStackTrace();
         }
     }
+
+    @Test
+    public void givenLoadedIndiaCensusData_WhenComparedWithUS_ShouldKeepLoadedData()
+    {
+        try
+        {
+            indiaCensusAnalyser.loadCensusData(CensusAnalyser.Country.INDIA, ',',
+                    "./src/test/resources/IndiaStateCensusData.csv");
+            String mostDenselyPopulated = indiaCensusAnalyser.getMostDenselyPopulatedState
+                    (',', "./src/test/resources/IndiaStateCensusData.csv",
+                            "./src/test/resources/USCensusData.csv");
+            String sortedCensusData = indiaCensusAnalyser.getSortedCensusData("state");
+            IndiaCensusCSV[] censusCSV = new Gson().fromJson(sortedCensusData, IndiaCensusCSV[].class);
+            Assert.assertEquals("District of Columbia", mostDenselyPopulated);
+            Assert.assertEquals(29, censusCSV.length);
+            Assert.assertEquals("Andhra Pradesh", censusCSV[0].state);
+        }
+        catch (CensusAnalyserException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    public void givenIndiaAndUSCensusData_WhenLoadedInRegistry_ShouldCompareAcrossCountries()
+            throws CensusAnalyserException
+    {
+        CensusRegistry censusRegistry = new CensusRegistry();
+        censusRegistry.loadCensusData(CensusAnalyser.Country.INDIA, CensusAnalyser.LoaderMode.MAPPED, ',',
+                "./src/test/resources/IndiaStateCensusData.csv");
+        censusRegistry.loadCensusData(CensusAnalyser.Country.US, CensusAnalyser.LoaderMode.MAPPED, ',',
+                "./src/test/resources/USCensusData.csv");
+        String mergedCensusData = censusRegistry.getMergedCensusData("population", 2);
+        IndiaCensusCSV[] censusCSV = new Gson().fromJson(mergedCensusData, IndiaCensusCSV[].class);
+        Assert.assertEquals("District of Columbia",
+                censusRegistry.getMaxCensusData("populationDensity").state);
+        Assert.assertEquals(2, censusCSV.length);
+        Assert.assertEquals("Uttar Pradesh", censusCSV[0].state);
+    }
+
+    @Test
+    public void givenCountryAdapterId_WhenLoadedInRegistryAndReloaded_ShouldMatchEnumLookups()
+            throws CensusAnalyserException
+    {
+        CensusRegistry censusRegistry = new CensusRegistry();
+        censusRegistry.loadCensusData("US", CensusAnalyser.LoaderMode.MAPPED, ',',
+                "./src/test/resources/USCensusData.csv");
+        CensusAnalyser censusAnalyser = new CensusAnalyser("INDIA", censusRegistry, new CensusResultCache(),
+                CensusAnalyser.Storage.HEAP);
+        CensusDiff censusDiff = censusAnalyser.reloadCensusData("INDIA", CensusAnalyser.LoaderMode.MAPPED, ',',
+                "./src/test/resources/IndiaStateCensusData.csv");
+        censusRegistry.register("INDIA", CensusTable.of(CensusAdapterFactory.getCensusDataObject("INDIA",
+                CensusAnalyser.LoaderMode.MAPPED, ',', "./src/test/resources/IndiaStateCensusData.csv").values()));
+        Assert.assertSame(censusRegistry.getCensusTable("US"),
+                censusRegistry.getCensusTable(CensusAnalyser.Country.US));
+        Assert.assertEquals(29, censusDiff.addedRecords.size());
+        Assert.assertEquals(29, censusRegistry.getCensusTable(CensusAnalyser.Country.INDIA).size());
+        Assert.assertEquals("District of Columbia",
+                censusRegistry.getMaxCensusData("populationDensity").state);
+    }
+
+    @Test
+    public void givenIndiaCensusData_WhenReloadedWithoutChanges_ShouldReturnEmptyDiff()
+            throws CensusAnalyserException
+    {
+        CensusDiff firstDiff = indiaCensusAnalyser.reloadCensusData(CensusAnalyser.Country.INDIA,
+                CensusAnalyser.LoaderMode.MAPPED, ',', "./src/test/resources/IndiaStateCensusData.csv",
+                "./src/test/resources/IndiaStateCode.csv");
+        CensusDiff secondDiff = indiaCensusAnalyser.reloadCensusData(CensusAnalyser.Country.INDIA,
+                CensusAnalyser.LoaderMode.MAPPED, ',', "./src/test/resources/IndiaStateCensusData.csv",
+                "./src/test/resources/IndiaStateCode.csv");
+        Assert.assertEquals(29, firstDiff.addedRecords.size());
+        Assert.assertTrue(secondDiff.isEmpty());
+    }
+
+    @Test
+    public void givenReloadedIndiaCensusData_WhenOnlyStateCodeFileChanges_ShouldParseOnlyThatFile()
+            throws CensusAnalyserException, IOException
+    {
+        Path censusDirectory = Files.createTempDirectory("census-reload");
+        Path censusPath = Files.copy(Paths.get("./src/test/resources/IndiaStateCensusData.csv"),
+                censusDirectory.resolve("IndiaStateCensusData.csv"));
+        Path stateCodePath = Files.copy(Paths.get("./src/test/resources/IndiaStateCode.csv"),
+                censusDirectory.resolve("IndiaStateCode.csv"));
+        InMemoryCensusMetrics censusMetrics = new InMemoryCensusMetrics();
+        CensusMetrics.setRegistry(censusMetrics);
+        try
+        {
+            CensusDiff firstDiff = indiaCensusAnalyser.reloadCensusData(CensusAnalyser.Country.INDIA,
+                    CensusAnalyser.LoaderMode.OPEN_CSV, ',', censusPath.toString(), stateCodePath.toString());
+            Assert.assertEquals(29, firstDiff.addedRecords.size());
+            Assert.assertEquals(2, censusMetrics.getStageStatistics(CensusMetrics.Stage.PARSE).count);
+            String stateCodes = new String(Files.readAllBytes(stateCodePath), StandardCharsets.UTF_8);
+            Files.write(stateCodePath, stateCodes.replace(",KL", ",KER").getBytes(StandardCharsets.UTF_8));
+            censusMetrics.reset();
+            CensusDiff secondDiff = indiaCensusAnalyser.reloadCensusData(CensusAnalyser.Country.INDIA,
+                    CensusAnalyser.LoaderMode.OPEN_CSV, ',', censusPath.toString(), stateCodePath.toString());
+            InMemoryCensusMetrics.StageStatistics parseStatistics =
+                    censusMetrics.getStageStatistics(CensusMetrics.Stage.PARSE);
+            Assert.assertEquals(1, parseStatistics.count);
+            Assert.assertEquals(stateCodePath.toString(), parseStatistics.slowestSubject);
+            Assert.assertEquals(1, secondDiff.updatedRecords.size());
+            Assert.assertEquals("Kerala", secondDiff.updatedRecords.get(0).state);
+            Assert.assertEquals("KER", secondDiff.updatedRecords.get(0).stateCode);
+            Assert.assertEquals("Kerala", indiaCensusAnalyser.getStateOfStateCode("KER"));
+            Assert.assertEquals(29, indiaCensusAnalyser.getJsonSortedCensusData("population").size());
+        }
+        finally
+        {
+            CensusMetrics.setRegistry(null);
+            Files.delete(censusPath);
+            Files.delete(stateCodePath);
+            Files.delete(censusDirectory);
+        }
+    }
+
+    @Test
+    public void givenCensusTable_WhenDiffsAppliedRepeatedly_ShouldSortLikeFreshTableAndCompactDictionary()
+    {
+        List<CensusDAO> censusDAOs = new ArrayList<>();
+        for (int index = 0; index < 100; index++)
+            censusDAOs.add(censusDAO("State " + index, "S" + index % 7, index % 5, index % 3));
+        CensusTable censusTable = CensusTable.of(censusDAOs);
+        for (int reload = 1; reload <= 20; reload++)
+        {
+            for (int index = (reload * 10) % 100; index < (reload * 10) % 100 + 10; index++)
+                censusDAOs.set(index, censusDAO("State " + index + " v" + reload, "S" + (index + reload) % 7,
+                        (index + reload) % 5, index % 3));
+            censusTable = censusTable.apply(CensusDiff.between(censusTable, censusDAOs));
+            CensusTable freshTable = CensusTable.of(censusDAOs);
+            for (CensusField field : CensusField.values())
+            {
+                for (int rank = 0; rank < freshTable.size(); rank++)
+                    Assert.assertEquals(freshTable.state(freshTable.sortedRow(field, rank)),
+                            censusTable.state(censusTable.sortedRow(field, rank)));
+            }
+            Assert.assertTrue(censusTable.dictionarySize() <= 2 * freshTable.dictionarySize());
+        }
+    }
+
+    private static CensusDAO censusDAO(String state, String stateCode, int population, double totalArea)
+    {
+        CensusDAO censusDAO = new CensusDAO();
+        censusDAO.state = state;
+        censusDAO.stateCode = stateCode;
+        censusDAO.population = population;
+        censusDAO.totalArea = totalArea;
+        censusDAO.populationDensity = totalArea;
+        return censusDAO;
+    }
+
+    @Test
+    public void givenWatchedIndiaCensusDirectory_WhenStateCodeFileArrives_ShouldReloadCensusData()
+            throws IOException, InterruptedException
+    {
+        Path censusDirectory = Files.createTempDirectory("census-watch");
+        Files.copy(Paths.get("./src/test/resources/IndiaStateCensusData.csv"),
+                censusDirectory.resolve("IndiaStateCensusData.csv"));
+        BlockingQueue<CensusDiff> censusDiffs = new LinkedBlockingQueue<>();
+        try (CensusDirectoryWatcher censusDirectoryWatcher = new CensusDirectoryWatcher(100,
+                new CensusDirectoryWatcher.Listener()
+                {
+                    @Override
+                    public void censusDataLoaded(String countryId, CensusDiff censusDiff)
+                    {
+                        censusDiffs.add(censusDiff);
+                    }
+                }))
+        {
+            censusDirectoryWatcher.watch(indiaCensusAnalyser, CensusAnalyser.Country.INDIA,
+                    CensusAnalyser.LoaderMode.MAPPED, ',', censusDirectory, "IndiaStateCensusData.csv",
+                    "IndiaStateCode.csv").start();
+            CensusDiff loadedDiff = censusDiffs.poll(10, TimeUnit.SECONDS);
+            Files.copy(Paths.get("./src/test/resources/IndiaStateCode.csv"),
+                    censusDirectory.resolve("IndiaStateCode.csv"));
+            CensusDiff reloadedDiff = censusDiffs.poll(10, TimeUnit.SECONDS);
+            Assert.assertEquals(29, loadedDiff.addedRecords.size());
+            Assert.assertEquals(29, reloadedDiff.updatedRecords.size());
+        }
+        finally
+        {
+            for (String fileName : new String[]{"IndiaStateCensusData.csv", "IndiaStateCode.csv"})
+                Files.deleteIfExists(censusDirectory.resolve(fileName));
+            Files.delete(censusDirectory);
+        }
+    }
+
+    @Test
+    public void givenWatchedEmptyIndiaCensusDirectory_WhenMatchingFileArrives_ShouldRetryThenLoadIt()
+            throws IOException, InterruptedException
+    {
+        Path censusDirectory = Files.createTempDirectory("census-watch");
+        BlockingQueue<CensusAnalyserException> censusFailures = new LinkedBlockingQueue<>();
+        BlockingQueue<CensusDiff> censusDiffs = new LinkedBlockingQueue<>();
+        try (CensusDirectoryWatcher censusDirectoryWatcher = new CensusDirectoryWatcher(50,
+                new CensusDirectoryWatcher.Listener()
+                {
+                    @Override
+                    public void censusDataLoaded(String countryId, CensusDiff censusDiff)
+                    {
+                        censusDiffs.add(censusDiff);
+                    }
+
+                    @Override
+                    public void censusDataFailed(String countryId, CensusAnalyserException exception)
+                    {
+                        censusFailures.add(exception);
+                    }
+                }))
+        {
+            censusDirectoryWatcher.watch(indiaCensusAnalyser, CensusAnalyser.Country.INDIA,
+                    CensusAnalyser.LoaderMode.MAPPED, ',', censusDirectory, "IndiaStateCensusData*.csv").start();
+            CensusAnalyserException firstFailure = censusFailures.poll(10, TimeUnit.SECONDS);
+            CensusAnalyserException retriedFailure = censusFailures.poll(10, TimeUnit.SECONDS);
+            Files.copy(Paths.get("./src/test/resources/IndiaStateCensusData.csv"),
+                    censusDirectory.resolve("IndiaStateCensusData-2011.csv"));
+            CensusDiff loadedDiff = censusDiffs.poll(10, TimeUnit.SECONDS);
+            Assert.assertEquals(CensusAnalyserException.ExceptionType.CSV_FILE_PROBLEM, firstFailure.type);
+            Assert.assertNotNull(retriedFailure);
+            Assert.assertEquals(29, loadedDiff.addedRecords.size());
+        }
+        finally
+        {
+            Files.deleteIfExists(censusDirectory.resolve("IndiaStateCensusData-2011.csv"));
+            Files.delete(censusDirectory);
+        }
+    }
+
+    @Test
+    public void givenGzipCompressedIndiaCensusCSVFile_WhenLoaded_ShouldReturnCorrectRecords()
+            throws IOException, CensusAnalyserException
+    {
+        Path compressedFile = Files.createTempFile("IndiaStateCensusData", ".csv.gz");
+        try (OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(compressedFile)))
+        {
+            Files.copy(Paths.get("./src/test/resources/IndiaStateCensusData.csv"), outputStream);
+        }
+        try
+        {
+            int numOfRecords = indiaCensusAnalyser.loadCensusData(CensusAnalyser.Country.INDIA,
+                    CensusAnalyser.LoaderMode.MAPPED, ',', compressedFile.toString());
+            Assert.assertEquals(29, numOfRecords);
+        }
+        finally
+        {
+            Files.delete(compressedFile);
+        }
+    }
+
+    @Test
+    public void givenMoreGzipFilesThanProcessors_WhenOpenedAtOnce_ShouldReadEveryFileOnBoundedThreads()
+            throws IOException
+    {
+        Path compressedFile = Files.createTempFile("USCensusDataRepeated", ".csv.gz");
+        byte[] censusRow = "AL,Alabama,4779736,2389868,135767.43,13576.74,122190.69,36.2,18.10\n"
+                .getBytes(StandardCharsets.UTF_8);
+        try (OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(compressedFile)))
+        {
+            for (int row = 0; row < 100000; row++)
+                outputStream.write(censusRow);
+        }
+        List<BufferedReader> readers = new ArrayList<>();
+        try
+        {
+            int processors = Runtime.getRuntime().availableProcessors();
+            for (int index = 0; index < processors * 2 + 2; index++)
+                readers.add(CensusInputStreams.newBufferedReader(compressedFile.toString()));
+            long decompressionThreads = Thread.getAllStackTraces().keySet().stream()
+                    .filter(thread -> thread.getName().startsWith("census-decompression")).count();
+            Assert.assertTrue(decompressionThreads <= processors);
+            for (BufferedReader reader : readers)
+                Assert.assertEquals(100000, reader.lines().count());
+        }
+        finally
+        {
+            for (BufferedReader reader : readers)
+                reader.close();
+            Files.delete(compressedFile);
+        }
+    }
+
+    @Test
+    public void givenCountries_WhenAdaptersResolved_ShouldReturnCachedAdapterOfEachCountry()
+    {
+        for (CensusAnalyser.Country country : CensusAnalyser.Country.values())
+        {
+            CensusAdapter censusAdapter = CensusAdapterFactory.getCensusAdapter(country);
+            Assert.assertEquals(country.name(), censusAdapter.getCountryId());
+            Assert.assertSame(censusAdapter, CensusAdapterFactory.getCensusAdapter(country));
+            Assert.assertSame(censusAdapter, CensusAdapterFactory.getCensusAdapter(country.name()));
+        }
+    }
+
+    @Test
+    public void givenUSCensusCSVBean_WhenMappedBySchema_ShouldCopyEveryBoundField()
+    {
+        CensusDAO censusDAO = CensusCSVSchema.of(USCensusCSV.class)
+                .toCensusDAO(new USCensusCSV("AL", "Alabama", 4779736, 135767.43, 35.21));
+        Assert.assertEquals("AL", censusDAO.stateCode);
+        Assert.assertEquals("Alabama", censusDAO.state);
+        Assert.assertEquals(Integer.valueOf(4779736), censusDAO.population);
+        Assert.assertEquals(135767.43, censusDAO.totalArea, 0.0);
+        Assert.assertEquals(35.21, censusDAO.populationDensity, 0.0);
+    }
+
+    @Test
+    public void givenUSCensusData_WhenPopulationAggregated_ShouldReturnTotalsAndMedian()
+            throws CensusAnalyserException
+    {
+        usCensusAnalyser.loadCensusData(CensusAnalyser.Country.US, ',',
+                "./src/test/resources/USCensusData.csv");
+        List<CensusStatistics> censusStatistics = usCensusAnalyser.getCensusStatistics("population",
+                CensusGrouping.ALL, 50);
+        Assert.assertEquals(51, censusStatistics.get(0).count);
+        Assert.assertEquals(37253956, censusStatistics.get(0).max, 0.0);
+        Assert.assertEquals(563626, censusStatistics.get(0).min, 0.0);
+        Assert.assertEquals(4339367, censusStatistics.get(0).percentiles.get(50.0), 0.0);
+    }
+
+    @Test
+    public void givenIndiaCensusData_WhenLoadedWithPredicate_ShouldKeepOnlyMatchingStates()
+            throws CensusAnalyserException
+    {
+        CensusPredicate censusPredicate = CensusPredicate.greaterThan(CensusField.POPULATION_DENSITY, 800)
+                .and(CensusPredicate.equalTo(CensusField.STATE_CODE, "KL"));
+        int numOfRecords = indiaCensusAnalyser.loadCensusData(CensusAnalyser.Country.INDIA,
+                CensusAnalyser.LoaderMode.MAPPED, ',', censusPredicate,
+                "./src/test/resources/IndiaStateCensusData.csv", "./src/test/resources/IndiaStateCode.csv");
+        IndiaCensusCSV[] censusList = new Gson().fromJson(indiaCensusAnalyser.getSortedCensusData("state"),
+                IndiaCensusCSV[].class);
+        Assert.assertEquals(1, numOfRecords);
+        Assert.assertEquals("Kerala", censusList[0].state);
+    }
+
+    @Test
+    public void givenRepeatedSortRequests_WhenDataReloaded_ShouldServeCachedJsonUntilReload()
+            throws CensusAnalyserException, IOException
+    {
+        Path censusDirectory = Files.createTempDirectory("census-cache");
+        Path censusPath = Files.copy(Paths.get("./src/test/resources/USCensusData.csv"),
+                censusDirectory.resolve("USCensusData.csv"));
+        CensusResultCache resultCache = usCensusAnalyser.getResultCache();
+        try
+        {
+            usCensusAnalyser.loadCensusData(CensusAnalyser.Country.US, ',', censusPath.toString());
+            long missCount = resultCache.getMissCount();
+            String sortedCensus = usCensusAnalyser.getSortedCensusData("population");
+            Assert.assertEquals(1, resultCache.getMissCount() - missCount);
+            long hitCount = resultCache.getHitCount();
+            Assert.assertSame(sortedCensus, usCensusAnalyser.getSortedCensusData("population"));
+            Assert.assertEquals(1, resultCache.getHitCount() - hitCount);
+            String censusData = new String(Files.readAllBytes(censusPath), StandardCharsets.UTF_8);
+            Files.write(censusPath, censusData.replace("AL,Alabama,4779736,", "AL,Alabama,99999999,")
+                    .getBytes(StandardCharsets.UTF_8));
+            usCensusAnalyser.loadCensusData(CensusAnalyser.Country.US, ',', censusPath.toString());
+            missCount = resultCache.getMissCount();
+            hitCount = resultCache.getHitCount();
+            String reloadedCensus = usCensusAnalyser.getSortedCensusData("population");
+            USCensusCSV[] censusList = new Gson().fromJson(reloadedCensus, USCensusCSV[].class);
+            Assert.assertEquals(1, resultCache.getMissCount() - missCount);
+            Assert.assertEquals(0, resultCache.getHitCount() - hitCount);
+            Assert.assertEquals("California",
+                    new Gson().fromJson(sortedCensus, USCensusCSV[].class)[0].state);
+            Assert.assertEquals("Alabama", censusList[0].state);
+            Assert.assertEquals(99999999, (int) censusList[0].population);
+        }
+        finally
+        {
+            Files.deleteIfExists(censusPath);
+            Files.delete(censusDirectory);
+        }
+    }
+
+    @Test
+    public void givenMetricsRegistry_WhenCensusDataLoadedAndSorted_ShouldRecordEveryStage()
+    {
+        InMemoryCensusMetrics censusMetrics = new InMemoryCensusMetrics();
+        CensusMetrics.setRegistry(censusMetrics);
+        try
+        {
+            int numOfRecords = usCensusAnalyser.loadCensusData(CensusAnalyser.Country.US, ',',
+                    "./src/test/resources/USCensusData.csv");
+            usCensusAnalyser.getSortedCensusData("population");
+            InMemoryCensusMetrics.StageStatistics parseStatistics =
+                    censusMetrics.getStageStatistics(CensusMetrics.Stage.PARSE);
+            Assert.assertEquals(1, parseStatistics.count);
+            Assert.assertEquals(numOfRecords, parseStatistics.rows);
+            Assert.assertTrue(parseStatistics.bytes > 0);
+            Assert.assertEquals(CensusField.values().length,
+                    censusMetrics.getStageStatistics(CensusMetrics.Stage.SORT).count);
+            Assert.assertEquals(1, censusMetrics.getStageStatistics(CensusMetrics.Stage.SERIALIZE).count);
+        }
+        catch (CensusAnalyserException e)
+        {
+            e.printStackTrace();
+        }
+        finally
+        {
+            CensusMetrics.setRegistry(null);
+        }
+    }
+
+    @Test
+    public void givenOffHeapStorage_WhenCensusDataLoadedAndSnapshotMapped_ShouldReturnSameSortedData()
+            throws CensusAnalyserException, IOException
+    {
+        indiaCensusAnalyser.loadCensusData(CensusAnalyser.Country.INDIA, ',',
+                "./src/test/resources/IndiaStateCensusData.csv",
+                "./src/test/resources/IndiaStateCode.csv");
+        for (CensusAnalyser.LoaderMode loaderMode : CensusAnalyser.LoaderMode.values())
+        {
+            CensusAnalyser offHeapCensusAnalyser = new CensusAnalyser(CensusAnalyser.Country.INDIA,
+                    new CensusRegistry(), new CensusResultCache(), CensusAnalyser.Storage.OFF_HEAP);
+            offHeapCensusAnalyser.loadCensusData(CensusAnalyser.Country.INDIA, loaderMode, ',',
+                    "./src/test/resources/IndiaStateCensusData.csv",
+                    "./src/test/resources/IndiaStateCode.csv");
+            Assert.assertEquals(indiaCensusAnalyser.getSortedCensusData("stateCode"),
+                    offHeapCensusAnalyser.getSortedCensusData("stateCode"));
+            Assert.assertEquals(indiaCensusAnalyser.getSortedCensusData("population"),
+                    offHeapCensusAnalyser.getSortedCensusData("population"));
+        }
+        CensusAnalyser offHeapCensusAnalyser = new CensusAnalyser(CensusAnalyser.Country.INDIA,
+                new CensusRegistry(), new CensusResultCache(), CensusAnalyser.Storage.OFF_HEAP);
+        CensusDiff firstDiff = offHeapCensusAnalyser.reloadCensusData(CensusAnalyser.Country.INDIA,
+                CensusAnalyser.LoaderMode.MAPPED, ',', "./src/test/resources/IndiaStateCensusData.csv",
+                "./src/test/resources/IndiaStateCode.csv");
+        Assert.assertEquals(29, firstDiff.addedRecords.size());
+        Assert.assertEquals("Kerala", ((IndiaCensusCSV) offHeapCensusAnalyser.getStateCensusData("Kerala")).state);
+        Assert.assertEquals("Kerala", offHeapCensusAnalyser.getStateOfStateCode("KL"));
+        Assert.assertNull(offHeapCensusAnalyser.getStateCensusData("Atlantis"));
+        Path snapshotPath = Files.createTempFile("IndiaStateCensusDataOffHeap", ".snapshot");
+        try
+        {
+            offHeapCensusAnalyser.saveSnapshot(snapshotPath.toString());
+            int numOfRecords = offHeapCensusAnalyser.loadSnapshot(snapshotPath.toString());
+            Assert.assertEquals(29, numOfRecords);
+            Assert.assertEquals(indiaCensusAnalyser.getSortedCensusData("population"),
+                    offHeapCensusAnalyser.getSortedCensusData("population"));
+            Assert.assertEquals("Kerala", offHeapCensusAnalyser.getStateOfStateCode("KL"));
+            CensusDiff reloadDiff = offHeapCensusAnalyser.reloadCensusData(CensusAnalyser.Country.INDIA,
+                    CensusAnalyser.LoaderMode.PARALLEL, ',', "./src/test/resources/IndiaStateCensusData.csv",
+                    "./src/test/resources/IndiaStateCode.csv");
+            Assert.assertTrue(reloadDiff.isEmpty());
+        }
+        finally
+        {
+            Files.deleteIfExists(snapshotPath);
+        }
+    }
+
+    @Test
+    public void givenNonAsciiStates_WhenBuiltOffHeap_ShouldSortAndLookUpLikeHeapTable()
+    {
+        List<CensusDAO> censusDAOs = Arrays.asList(censusDAO("\uFF21ndaman", "AN", 3, 1),
+                censusDAO("\uD83D\uDE00 Smiley", "SM", 1, 2), censusDAO("\u00C9tat", "ET", 2, 3),
+                censusDAO("Zanskar", "AN", 2, 4), censusDAO("Assam", "AS", 5, 5));
+        CensusTable heapTable = CensusTable.of(censusDAOs);
+        CensusTable.OffHeapBuilder offHeapBuilder = new CensusTable.OffHeapBuilder(2);
+        for (CensusDAO censusDAO : censusDAOs)
+            offHeapBuilder.add(censusDAO);
+        CensusTable offHeapTable = offHeapBuilder.build();
+        Assert.assertTrue(offHeapTable.isOffHeap());
+        for (CensusField field : CensusField.values())
+        {
+            for (int rank = 0; rank < heapTable.size(); rank++)
+                Assert.assertEquals(heapTable.state(heapTable.sortedRow(field, rank)),
+                        offHeapTable.state(offHeapTable.sortedRow(field, rank)));
+        }
+        Assert.assertEquals("\uD83D\uDE00 Smiley", offHeapTable.state(offHeapTable.rowOfState("\uD83D\uDE00 Smiley")));
+        Assert.assertEquals("Assam", offHeapTable.state(offHeapTable.rowOfStateCode("AS")));
+        Assert.assertEquals(CensusTable.NO_VALUE, offHeapTable.rowOfState("\u00C9ta"));
+        Assert.assertTrue(CensusDiff.between(heapTable, offHeapTable).isEmpty());
+    }
+
+    @Test
+    public void givenIndiaCensusData_WhenLookedUpByStateAndStateCode_ShouldReturnMatchingState()
+            throws CensusAnalyserException
+    {
+        indiaCensusAnalyser.loadCensusData(CensusAnalyser.Country.INDIA, ',',
+                "./src/test/resources/IndiaStateCensusData.csv",
+                "./src/test/resources/IndiaStateCode.csv");
+        IndiaCensusCSV censusData = (IndiaCensusCSV) indiaCensusAnalyser.getStateCensusData("Kerala");
+        Assert.assertEquals("Kerala", censusData.state);
+        Assert.assertEquals("Kerala", indiaCensusAnalyser.getStateOfStateCode("KL"));
+        Assert.assertNull(indiaCensusAnalyser.getStateCensusData("Atlantis"));
+        Assert.assertNull(indiaCensusAnalyser.getStateOfStateCode("ZZ"));
+    }
+
+    @Test
+    public void givenBatchOfCensusFiles_WhenOneFileMissing_ShouldExportOthersAndReportFailure() throws IOException
+    {
+        Path outputDirectory = Files.createTempDirectory("census-batch");
+        String populationJsonPath = outputDirectory.resolve("IndiaByPopulation.json").toString();
+        String areaJsonPath = outputDirectory.resolve("USByArea.json").toString();
+        List<CensusBatchRunner.JobResult> results = new CensusBatchRunner(2, 1).run(Arrays.asList(
+                new CensusBatchRunner.Job(CensusAnalyser.Country.INDIA, CensusAnalyser.LoaderMode.OPEN_CSV, ',',
+                        "./src/test/resources/IndiaStateCensusData.csv", "./src/test/resources/IndiaStateCode.csv")
+                        .export("population", populationJsonPath),
+                new CensusBatchRunner.Job(CensusAnalyser.Country.US, CensusAnalyser.LoaderMode.OPEN_CSV, ',',
+                        "./src/test/resources/MissingCensusData.csv").export("totalArea", areaJsonPath)));
+        Assert.assertTrue(results.get(0).isSuccess());
+        Assert.assertEquals(29, results.get(0).numOfRecords);
+        Assert.assertTrue(Files.size(Paths.get(populationJsonPath)) > 0);
+        Assert.assertEquals(CensusAnalyserException.ExceptionType.CSV_FILE_PROBLEM,
+                results.get(1).failures.get("./src/test/resources/MissingCensusData.csv").type);
+        Assert.assertFalse(Files.exists(Paths.get(areaJsonPath)));
+    }
+
+    @Test
+    public void givenBatchJob_WhenFieldExportedTwiceAndOneWriteFails_ShouldWriteBothFilesAndLeaveNoPartialFile()
+            throws IOException
+    {
+        Path outputDirectory = Files.createTempDirectory("census-batch");
+        String firstJsonPath = outputDirectory.resolve("IndiaByPopulation.json").toString();
+        String secondJsonPath = outputDirectory.resolve("IndiaByPopulationCopy.json").toString();
+        Path blockedPath = Files.createDirectory(outputDirectory.resolve("IndiaByArea.json"));
+        Files.createFile(blockedPath.resolve("occupied"));
+        List<CensusBatchRunner.JobResult> results = new CensusBatchRunner(1, 1).run(Arrays.asList(
+                new CensusBatchRunner.Job(CensusAnalyser.Country.INDIA, CensusAnalyser.LoaderMode.OPEN_CSV, ',',
+                        "./src/test/resources/IndiaStateCensusData.csv", "./src/test/resources/IndiaStateCode.csv")
+                        .export("population", firstJsonPath).export("population", secondJsonPath)
+                        .export("totalArea", blockedPath.toString())));
+        Assert.assertEquals(Arrays.asList(firstJsonPath, secondJsonPath), results.get(0).writtenFiles);
+        Assert.assertEquals(new String(Files.readAllBytes(Paths.get(firstJsonPath)), StandardCharsets.UTF_8),
+                new String(Files.readAllBytes(Paths.get(secondJsonPath)), StandardCharsets.UTF_8));
+        Assert.assertTrue(results.get(0).failures.containsKey(blockedPath.toString()));
+        try (Stream<Path> outputFiles = Files.list(outputDirectory))
+        {
+            Assert.assertEquals(3, outputFiles.count());
+        }
+    }
+
+    @Test
+    public void givenUSCensusData_WhenPulledThroughCursor_ShouldEmitRecordsInSortedOrderOnDemand()
+            throws CensusAnalyserException
+    {
+        int numOfRecords = usCensusAnalyser.loadCensusData(CensusAnalyser.Country.US, ',',
+                "./src/test/resources/USCensusData.csv");
+        List<CensusDAO> firstRecords = new ArrayList<>();
+        try (CensusCursor censusCursor = usCensusAnalyser.getSortedCensusCursor("population"))
+        {
+            Assert.assertEquals(3, censusCursor.next(3, firstRecords::add));
+            int remainingRecords = 0;
+            while (censusCursor.hasNext())
+            {
+                Assert.assertTrue(censusCursor.next().population <= firstRecords.get(2).population);
+                remainingRecords++;
+            }
+            Assert.assertEquals(numOfRecords - 3, remainingRecords);
+        }
+        USCensusCSV[] sortedCensus = new Gson().fromJson(usCensusAnalyser.getSortedCensusData("population"),
+                USCensusCSV[].class);
+        Assert.assertEquals(sortedCensus[0].state, firstRecords.get(0).state);
+    }
+
+    @Test
+    public void givenUSCensusFile_WhenSortedExternallyInSmallRuns_ShouldMatchInMemorySortAndDeleteRuns()
+            throws CensusAnalyserException, IOException
+    {
+        Path runDirectory = Files.createTempDirectory("census-runs");
+        try
+        {
+            StringWriter sortedCensus = new StringWriter();
+            usCensusAnalyser.writeExternallySortedCensusData("population",
+                    new CensusExternalSorter(CensusExternalSorter.DEFAULT_MEMORY_BUDGET, 5, runDirectory.toString()),
+                    ',', "./src/test/resources/USCensusData.csv", sortedCensus);
+            usCensusAnalyser.loadCensusData(CensusAnalyser.Country.US, ',',
+                    "./src/test/resources/USCensusData.csv");
+            Assert.assertEquals(usCensusAnalyser.getSortedCensusData("population"), sortedCensus.toString());
+            Assert.assertEquals(0, runDirectory.toFile().list().length);
+        }
+        finally
+        {
+            Files.deleteIfExists(runDirectory);
+        }
+    }
+
+    @Test
+    public void givenUSCensusFileWithMoreRunsThanMergeFanIn_WhenSortedExternally_ShouldMergeInPassesAndBreakTiesByState()
+            throws CensusAnalyserException, IOException
+    {
+        Path runDirectory = Files.createTempDirectory("census-runs");
+        Path censusFile = Files.createTempFile("USCensusDataGenerated", ".csv");
+        try
+        {
+            StringBuilder censusCsv = new StringBuilder("State Id,State,Population,Housing units,Total area,"
+                    + "Water area,Land area,Population Density,Housing Density\n");
+            for (int index = 0; index < 200; index++)
+            {
+                int state = 199 - index;
+                censusCsv.append("S").append(state).append(",State ").append(state).append(',')
+                        .append(1000 + index % 7).append(",0,").append(index % 3).append(".5,0,0,")
+                        .append(index % 5).append(".25,0\n");
+            }
+            Files.write(censusFile, censusCsv.toString().getBytes(StandardCharsets.UTF_8));
+            usCensusAnalyser.loadCensusData(CensusAnalyser.Country.US, ',', censusFile.toString());
+            for (String fieldName : new String[] {"population", "totalArea", "populationDensity", "stateCode"})
+            {
+                StringWriter sortedCensus = new StringWriter();
+                usCensusAnalyser.writeExternallySortedCensusData(fieldName,
+                        new CensusExternalSorter(CensusExternalSorter.DEFAULT_MEMORY_BUDGET, 1,
+                                runDirectory.toString()), ',', censusFile.toString(), sortedCensus);
+                Assert.assertEquals(usCensusAnalyser.getSortedCensusData(fieldName), sortedCensus.toString());
+                Assert.assertEquals(0, runDirectory.toFile().list().length);
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(censusFile);
+            Files.deleteIfExists(runDirectory);
+        }
+    }
 }
\ No newline at end of file